@@ -0,0 +1,33 @@
+package com.huy.quizme_backend.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Payload CBOR của một tin nhắn phòng, gắn vào tin nhắn qua header
+ * {@link FrameCodecChannelInterceptor#CBOR_PAYLOAD_HEADER}.
+ * <p>
+ * Đối tượng được serialize thẳng sang CBOR khi kết nối CBOR đầu tiên nhận tin nhắn,
+ * và chỉ một lần cho mọi subscriber của tin nhắn đó.
+ */
+public final class CborPayload {
+    private final ObjectMapper cborMapper;
+    private Object value;
+    private byte[] encoded;
+
+    public CborPayload(ObjectMapper cborMapper, Object value) {
+        this.cborMapper = cborMapper;
+        this.value = value;
+    }
+
+    /**
+     * Trả về payload đã mã hoá, mã hoá ở lần gọi đầu tiên.
+     */
+    public synchronized byte[] encode() throws JsonProcessingException {
+        if (encoded == null) {
+            encoded = cborMapper.writeValueAsBytes(value);
+            value = null;
+        }
+        return encoded;
+    }
+}
@@ -0,0 +1,21 @@
+package com.huy.quizme_backend.config;
+
+/**
+ * Định dạng mã hoá payload của các frame STOMP gửi đến client, thoả thuận theo từng kết nối.
+ */
+public enum FrameCodec {
+    // Mặc định: JSON dạng text
+    JSON,
+    // CBOR nhị phân, chỉ dùng được trên WebSocket thuần (/ws-raw)
+    CBOR;
+
+    /**
+     * Chuyển giá trị header "codec" của frame CONNECT thành codec, mặc định JSON.
+     */
+    public static FrameCodec fromHeader(String value) {
+        if (value != null && value.trim().equalsIgnoreCase("cbor")) {
+            return CBOR;
+        }
+        return JSON;
+    }
+}
@@ -0,0 +1,149 @@
+package com.huy.quizme_backend.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Bộ chặn kênh WebSocket thoả thuận và áp dụng codec cho các frame của phòng chơi.
+ * <p>
+ * Client chọn codec bằng header {@code codec} trong frame CONNECT (mặc định JSON).
+ * Với các kết nối chọn CBOR, tin nhắn gửi đến {@code /topic/room/**} được gửi dưới dạng frame nhị phân
+ * ({@code content-type: application/cbor}, {@code codec: cbor}) với payload CBOR mà
+ * {@code WebSocketService} gắn vào tin nhắn ({@link #CBOR_PAYLOAD_HEADER}); payload JSON không bị giải mã lại.
+ * CBOR chỉ được chấp nhận trên endpoint WebSocket thuần vì SockJS chỉ truyền được frame text.
+ * <p>
+ * Broker sao chép header của tin nhắn cho mọi subscriber, nên mỗi tin nhắn chỉ được mã hoá
+ * một lần cho cả phòng.
+ */
+@Component
+@Slf4j
+public class FrameCodecChannelInterceptor implements ChannelInterceptor {
+    public static final String CODEC_HEADER = "codec";
+    // Header (không gửi đến client) chứa CborPayload của tin nhắn phòng
+    public static final String CBOR_PAYLOAD_HEADER = "cborPayload";
+    private static final String RAW_TRANSPORT_ATTRIBUTE = "rawWebSocketTransport";
+    private static final String ROOM_TOPIC_PREFIX = "/topic/room/";
+
+    private final ConcurrentMap<String, FrameCodec> sessionCodecs = new ConcurrentHashMap<>();
+    private final Counter encodedFrames;
+    private final Counter encodeFailures;
+
+    public FrameCodecChannelInterceptor(MeterRegistry meterRegistry) {
+        this.encodedFrames = Counter.builder("game.codec.encoded")
+                .description("Số frame đã được gửi bằng CBOR")
+                .register(meterRegistry);
+        this.encodeFailures = Counter.builder("game.codec.failures")
+                .description("Số frame không mã hoá được sang CBOR (gửi lại bằng JSON)")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Đánh dấu các kết nối đi qua endpoint WebSocket thuần để cho phép codec nhị phân.
+     */
+    public HandshakeInterceptor rawTransportMarker() {
+        return new HandshakeInterceptor() {
+            @Override
+            public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                           WebSocketHandler wsHandler, Map<String, Object> attributes) {
+                attributes.put(RAW_TRANSPORT_ATTRIBUTE, Boolean.TRUE);
+                return true;
+            }
+
+            @Override
+            public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                       WebSocketHandler wsHandler, Exception exception) {
+            }
+        };
+    }
+
+    /**
+     * Kênh vào: ghi nhận codec khi CONNECT và giải phóng khi DISCONNECT.
+     * Kênh ra: thay payload của các tin nhắn phòng bằng bản CBOR cho kết nối dùng CBOR.
+     */
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageType messageType = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        if (messageType == SimpMessageType.CONNECT) {
+            negotiate(message);
+        } else if (messageType == SimpMessageType.DISCONNECT) {
+            String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+            if (sessionId != null) {
+                sessionCodecs.remove(sessionId);
+            }
+        } else if (messageType == SimpMessageType.MESSAGE) {
+            return encode(message);
+        }
+        return message;
+    }
+
+    private void negotiate(Message<?> message) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !StompCommand.CONNECT.equals(accessor.getCommand())) {
+            return;
+        }
+
+        FrameCodec codec = FrameCodec.fromHeader(accessor.getFirstNativeHeader(CODEC_HEADER));
+        if (codec == FrameCodec.JSON) {
+            return;
+        }
+
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        if (attributes == null || !Boolean.TRUE.equals(attributes.get(RAW_TRANSPORT_ATTRIBUTE))) {
+            log.debug("Session {} requested {} over SockJS, falling back to JSON", accessor.getSessionId(), codec);
+            return;
+        }
+
+        sessionCodecs.put(accessor.getSessionId(), codec);
+        log.debug("Session {} negotiated frame codec {}", accessor.getSessionId(), codec);
+    }
+
+    private Message<?> encode(Message<?> message) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId == null || sessionCodecs.get(sessionId) != FrameCodec.CBOR) {
+            return message;
+        }
+
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null || !destination.startsWith(ROOM_TOPIC_PREFIX)
+                || !(message.getHeaders().get(CBOR_PAYLOAD_HEADER) instanceof CborPayload payload)) {
+            return message;
+        }
+
+        byte[] encoded;
+        try {
+            encoded = payload.encode();
+        } catch (JsonProcessingException e) {
+            encodeFailures.increment();
+            log.warn("Không thể mã hoá payload sang CBOR: {}", e.getMessage());
+            return message;
+        }
+        encodedFrames.increment();
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        accessor.removeHeader(CBOR_PAYLOAD_HEADER);
+        accessor.setContentType(MediaType.APPLICATION_CBOR);
+        accessor.setNativeHeader(CODEC_HEADER, "cbor");
+        return MessageBuilder.createMessage(encoded, accessor.getMessageHeaders());
+    }
+}
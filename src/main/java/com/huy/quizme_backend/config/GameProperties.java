@@ -0,0 +1,77 @@
+package com.huy.quizme_backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cấu hình phiên chơi game (prefix "app.game").
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.game")
+public class GameProperties {
+    // Mặc định có gửi sự kiện TIMER mỗi giây hay không (cho client cũ chưa dùng deadline)
+    private boolean legacyTimerTicks = false;
+
+    // Số người chơi tối thiểu để phòng chuyển sang chế độ phòng lớn (kết quả gửi riêng từng người)
+    private int largeRoomThreshold = 200;
+
+    // Số người chơi tối thiểu để chỉ broadcast top-N bảng xếp hạng (mỗi người nhận thứ hạng riêng)
+    private int topLeaderboardThreshold = 1000;
+
+    // Số người chơi trong bảng xếp hạng top-N
+    private int leaderboardTopN = 10;
+
+    // Số người chơi phía trên và phía dưới trong bảng xếp hạng riêng
+    private int leaderboardNeighbours = 2;
+
+    // Gửi bảng xếp hạng dạng snapshot + delta thay cho toàn bộ bảng sau mỗi câu hỏi
+    private boolean deltaLeaderboard = false;
+
+    public boolean isLegacyTimerTicks() {
+        return legacyTimerTicks;
+    }
+
+    public void setLegacyTimerTicks(boolean legacyTimerTicks) {
+        this.legacyTimerTicks = legacyTimerTicks;
+    }
+
+    public int getLargeRoomThreshold() {
+        return largeRoomThreshold;
+    }
+
+    public void setLargeRoomThreshold(int largeRoomThreshold) {
+        this.largeRoomThreshold = largeRoomThreshold;
+    }
+
+    public int getTopLeaderboardThreshold() {
+        return topLeaderboardThreshold;
+    }
+
+    public void setTopLeaderboardThreshold(int topLeaderboardThreshold) {
+        this.topLeaderboardThreshold = topLeaderboardThreshold;
+    }
+
+    public int getLeaderboardTopN() {
+        return leaderboardTopN;
+    }
+
+    public void setLeaderboardTopN(int leaderboardTopN) {
+        this.leaderboardTopN = leaderboardTopN;
+    }
+
+    public int getLeaderboardNeighbours() {
+        return leaderboardNeighbours;
+    }
+
+    public void setLeaderboardNeighbours(int leaderboardNeighbours) {
+        this.leaderboardNeighbours = leaderboardNeighbours;
+    }
+
+    public boolean isDeltaLeaderboard() {
+        return deltaLeaderboard;
+    }
+
+    public void setDeltaLeaderboard(boolean deltaLeaderboard) {
+        this.deltaLeaderboard = deltaLeaderboard;
+    }
+}
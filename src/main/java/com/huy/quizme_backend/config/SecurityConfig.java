@@ -1,5 +1,7 @@
 package com.huy.quizme_backend.config;
 
+import com.huy.quizme_backend.security.BoundedPasswordEncoder;
+import com.huy.quizme_backend.security.PasswordHashingExecutor;
 import com.huy.quizme_backend.security.jwt.JwtAuthenticationFilter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
@@ -31,11 +33,12 @@ public class SecurityConfig {
     private final CorsProperties corsProperties;
     private final UserDetailsService userDetailsService;
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final PasswordHashingExecutor passwordHashingExecutor;
 
-    // Bean để mã hóa mật khẩu
+    // Bean để mã hóa mật khẩu, chạy trên thread pool mã hoá có giới hạn
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), passwordHashingExecutor);
     }
 
     // Bean để cung cấp AuthenticationProvider
@@ -1,7 +1,7 @@
 package com.huy.quizme_backend.config;
 
-import com.huy.quizme_backend.enity.User;
-import com.huy.quizme_backend.security.jwt.JwtTokenProvider;
+import com.huy.quizme_backend.security.UserPrincipal;
+import com.huy.quizme_backend.security.jwt.JwtPrincipalResolver;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.Message;
@@ -11,7 +11,6 @@ import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
@@ -24,8 +23,7 @@ import org.springframework.util.StringUtils;
 @Slf4j
 public class WebSocketAuthChannelInterceptor implements ChannelInterceptor {
 
-    private final JwtTokenProvider jwtTokenProvider;
-    private final UserDetailsService userDetailsService;
+    private final JwtPrincipalResolver jwtPrincipalResolver;
 
     /**
      * Xử lý tin nhắn trước khi gửi
@@ -42,9 +40,9 @@ public class WebSocketAuthChannelInterceptor implements ChannelInterceptor {
             // Trích xuất JWT token từ header
             String token = extractTokenFromHeader(accessor);
 
-            if (StringUtils.hasText(token) && jwtTokenProvider.validateToken(token)) {
-                String username = jwtTokenProvider.getUsernameFromJWT(token);
-                User userDetails = (User) userDetailsService.loadUserByUsername(username);
+            UserPrincipal userDetails = StringUtils.hasText(token) ? jwtPrincipalResolver.resolve(token) : null;
+
+            if (userDetails != null) {
 
                 // Tạo đối tượng xác thực
                 UsernamePasswordAuthenticationToken authentication =
@@ -52,7 +50,7 @@ public class WebSocketAuthChannelInterceptor implements ChannelInterceptor {
 
                 // Thiết lập xác thực trong accessor
                 accessor.setUser(authentication);
-                log.info("User authenticated for WebSocket connection: {}", username);
+                log.info("User authenticated for WebSocket connection: {}", userDetails.getUsername());
             }
         }
 
@@ -1,12 +1,23 @@
 package com.huy.quizme_backend.config;
 
+import com.huy.quizme_backend.engine.OutboundFlowControl;
+import com.huy.quizme_backend.engine.RoomBrokerMessageHandler;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.util.List;
 
 @Configuration
 @EnableWebSocketMessageBroker
@@ -14,39 +25,87 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final WebSocketAuthChannelInterceptor authChannelInterceptor;
+    private final FrameCodecChannelInterceptor frameCodecChannelInterceptor;
+    private final OutboundFlowControl outboundFlowControl;
 
     /**
      * Cấu hình message broker cho WebSocket
-     * - Sử dụng Simple Broker với prefix "/topic"
+     * - Simple Broker chỉ xử lý prefix "/queue" (riêng từng người dùng), CONNECT và heartbeat
+     * - Prefix "/topic" (theo phòng) do {@link RoomBrokerMessageHandler} xử lý
      * - Đặt prefix cho các điểm đến ứng dụng là "/app"
+     * - Đặt prefix cho các điểm đến riêng của người dùng là "/user"
      */
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        config.enableSimpleBroker("/queue");
         config.setApplicationDestinationPrefixes("/app");
+        config.setUserDestinationPrefix("/user");
+    }
+
+    /**
+     * Broker cho các destination "/topic"
+     * - Destination "/topic/room/{roomId}/..." được tra trực tiếp theo phòng và sự kiện
+     * - Fan-out được chia theo phòng trên nhiều shard chạy song song
+     */
+    @Bean
+    public RoomBrokerMessageHandler roomBrokerMessageHandler(
+            @Qualifier("clientInboundChannel") SubscribableChannel clientInboundChannel,
+            @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel,
+            @Qualifier("brokerChannel") SubscribableChannel brokerChannel,
+            MeterRegistry meterRegistry,
+            @Value("${app.websocket.broker.shards:0}") int shards
+    ) {
+        return new RoomBrokerMessageHandler(clientInboundChannel, clientOutboundChannel, brokerChannel,
+                List.of("/topic"), shards, meterRegistry);
     }
 
     /**
      * Đăng ký các điểm cuối STOMP
      * - "/ws" cho SockJS
-     * - "/ws-raw" cho WebSocket thuần túy
+     * - "/ws-raw" cho WebSocket thuần túy (hỗ trợ codec nhị phân)
+     * - Giữ thứ tự nhận của frame trong cùng một phiên (câu trả lời đến làn của phòng đúng thứ tự gửi)
      */
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
+        registry.setPreserveReceiveOrder(true);
+
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
 
         registry.addEndpoint("/ws-raw")
-                .setAllowedOriginPatterns("*");
+                .setAllowedOriginPatterns("*")
+                .addInterceptors(frameCodecChannelInterceptor.rawTransportMarker());
+    }
+
+    /**
+     * Cấu hình transport WebSocket
+     * - Mỗi phiên (cả "/ws" và "/ws-raw") gửi qua hàng đợi riêng có giới hạn byte và thời gian
+     * - ConcurrentWebSocketSessionDecorator của Spring bọc ngoài hàng đợi và chỉ đo thời gian đưa frame
+     *   vào hàng đợi (trả về ngay), nên được đặt cùng giới hạn để chỉ hàng đợi áp dụng giới hạn thực sự
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.addDecoratorFactory(outboundFlowControl::decorate)
+                .setSendTimeLimit(Math.toIntExact(outboundFlowControl.sendTimeLimitMs()))
+                .setSendBufferSizeLimit(outboundFlowControl.bufferSizeLimit());
     }
 
     /**
      * Cấu hình các kênh WebSocket
-     * - Thêm interceptor để xác thực người dùng
+     * - Thêm interceptor để xác thực người dùng và thoả thuận codec
      */
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        registration.interceptors(authChannelInterceptor);
+        registration.interceptors(authChannelInterceptor, frameCodecChannelInterceptor);
+    }
+
+    /**
+     * Cấu hình kênh gửi đến client
+     * - Mã hoá lại payload của các tin nhắn phòng theo codec đã thoả thuận
+     */
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(frameCodecChannelInterceptor);
     }
 }
\ No newline at end of file
@@ -3,7 +3,7 @@ package com.huy.quizme_backend.controller;
 import com.huy.quizme_backend.dto.request.ChatMessageRequest;
 import com.huy.quizme_backend.dto.response.ApiResponse;
 import com.huy.quizme_backend.dto.response.ChatMessageResponse;
-import com.huy.quizme_backend.enity.User;
+import com.huy.quizme_backend.security.UserPrincipal;
 import com.huy.quizme_backend.service.ChatService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -50,7 +50,7 @@ public class ChatController {
         // Lấy ID người dùng nếu người dùng đã đăng nhập
         Long userId = null;
         if (principal != null) {
-            User currentUser = (User) ((Authentication) principal).getPrincipal();
+            UserPrincipal currentUser = (UserPrincipal) ((Authentication) principal).getPrincipal();
             userId = currentUser.getId();
         }
 
@@ -2,7 +2,7 @@ package com.huy.quizme_backend.controller;
 
 import com.huy.quizme_backend.dto.request.ChatMessageRequest;
 import com.huy.quizme_backend.dto.response.ChatMessageResponse;
-import com.huy.quizme_backend.enity.User;
+import com.huy.quizme_backend.security.UserPrincipal;
 import com.huy.quizme_backend.service.ChatService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
@@ -45,7 +45,7 @@ public class ChatWebSocketController {
         // Nếu không có người dùng đăng nhập, userId sẽ là null
         Long userId = null;
         if (principal != null) {
-            User currentUser = (User) ((Authentication) principal).getPrincipal();
+            UserPrincipal currentUser = (UserPrincipal) ((Authentication) principal).getPrincipal();
             userId = currentUser.getId();
         }
 
@@ -1,5 +1,6 @@
 package com.huy.quizme_backend.controller;
 
+import com.huy.quizme_backend.dto.game.ClockSyncDTO;
 import com.huy.quizme_backend.dto.response.ApiResponse;
 import com.huy.quizme_backend.dto.response.GameStatusResponse;
 import com.huy.quizme_backend.service.GameSessionService;
@@ -25,10 +26,11 @@ public class GameRestController {
      */
     @PostMapping("/rooms/{roomId}/start")
     public ApiResponse<Boolean> startGame(
-            @PathVariable Long roomId
+            @PathVariable Long roomId,
+            @RequestParam(required = false) Boolean legacyTimer
     ) {
-        // Khởi tạo phiên trò chơi
-        gameSessionService.initGameSession(roomId);
+        // Khởi tạo phiên trò chơi (legacyTimer: gửi TIMER mỗi giây cho client cũ)
+        gameSessionService.initGameSession(roomId, legacyTimer);
 
         // Bắt đầu tiến trình trò chơi
         Boolean started = gameSessionService.startGame(roomId);
@@ -36,6 +38,14 @@ public class GameRestController {
         return ApiResponse.success(started, "Game started successfully");
     }
 
+    /**
+     * Đồng bộ đồng hồ: trả về thời điểm server để client tính độ lệch với deadline của giai đoạn.
+     */
+    @GetMapping("/time")
+    public ApiResponse<ClockSyncDTO> getServerTime(@RequestParam(required = false) Long clientTime) {
+        return ApiResponse.success(ClockSyncDTO.now(clientTime), "Server time");
+    }
+
     /**
      * Lấy trạng thái trò chơi.
      */
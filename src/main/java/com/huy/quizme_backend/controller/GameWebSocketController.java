@@ -1,7 +1,10 @@
 package com.huy.quizme_backend.controller;
 
 import com.huy.quizme_backend.dto.game.AnswerRequest;
-import com.huy.quizme_backend.enity.User;
+import com.huy.quizme_backend.dto.game.ClockSyncDTO;
+import com.huy.quizme_backend.dto.game.LeaderboardSyncRequest;
+import com.huy.quizme_backend.engine.InboundLaneDispatcher;
+import com.huy.quizme_backend.security.UserPrincipal;
 import com.huy.quizme_backend.service.GameSessionService;
 import com.huy.quizme_backend.service.GameProgressService;
 import lombok.RequiredArgsConstructor;
@@ -9,6 +12,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 
@@ -23,9 +27,37 @@ import java.security.Principal;
 public class GameWebSocketController {
     private final GameSessionService gameSessionService;
     private final GameProgressService gameProgressService;
+    private final InboundLaneDispatcher inboundLanes;
+
+    /**
+     * Đồng bộ đồng hồ qua STOMP: client gửi tới /app/time và nhận phản hồi tại /user/queue/time.
+     */
+    @MessageMapping("/time")
+    @SendToUser(destinations = "/queue/time", broadcast = false)
+    public ClockSyncDTO handleClockSync(@Payload(required = false) ClockSyncDTO request) {
+        return ClockSyncDTO.now(request != null ? request.getClientTime() : null);
+    }
+
+    /**
+     * Đồng bộ bảng xếp hạng delta: client báo thiếu sequence và nhận lại snapshot
+     * tại /user/queue/leaderboard-snapshot.
+     */
+    @MessageMapping("/leaderboard-sync/{roomId}")
+    public void handleLeaderboardSync(
+            @DestinationVariable Long roomId,
+            @Payload(required = false) LeaderboardSyncRequest request,
+            Principal principal
+    ) {
+        if (principal == null) {
+            return;
+        }
+        gameSessionService.requestLeaderboardSnapshot(roomId, principal.getName(),
+                request != null ? request.getLastSequence() : null);
+    }
 
     /**
      * Xử lý khi người chơi gửi câu trả lời.
+     * Câu trả lời được xử lý trên làn của phòng: đúng thứ tự trong một phòng, song song giữa các phòng.
      */
     @MessageMapping("/answer/{roomId}")
     public void handlePlayerAnswer(
@@ -37,15 +69,22 @@ public class GameWebSocketController {
         // Nếu không có người dùng đăng nhập, userId sẽ là null
         Long userId = null;
         if (principal != null) {
-            User currentUser = (User) ((Authentication) principal).getPrincipal();
+            UserPrincipal currentUser = (UserPrincipal) ((Authentication) principal).getPrincipal();
             userId = currentUser.getId();
         }
 
         // Xử lý câu trả lời thông qua GameSessionService
-        boolean success = gameSessionService.processAnswerSubmission(roomId, userId, answer);
+        Long playerId = userId;
+        boolean accepted = inboundLanes.dispatch(roomId, () -> {
+            boolean success = gameSessionService.processAnswerSubmission(roomId, playerId, answer);
+
+            if (!success) {
+                log.warn("Failed to process answer submission for user {} in room {}", playerId, roomId);
+            }
+        });
 
-        if (!success) {
-            log.warn("Failed to process answer submission for user {} in room {}", userId, roomId);
+        if (!accepted) {
+            log.warn("Dropped answer submission for user {} in room {}: inbound lane is full", playerId, roomId);
         }
     }
 }
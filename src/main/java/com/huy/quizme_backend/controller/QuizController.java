@@ -5,7 +5,7 @@ import com.huy.quizme_backend.dto.response.ApiResponse;
 import com.huy.quizme_backend.dto.response.PageResponse;
 import com.huy.quizme_backend.dto.response.QuizResponse;
 import com.huy.quizme_backend.enity.enums.Difficulty;
-import com.huy.quizme_backend.enity.User;
+import com.huy.quizme_backend.security.UserPrincipal;
 import com.huy.quizme_backend.service.QuizService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -111,7 +111,7 @@ public class QuizController {
             @ModelAttribute @Valid QuizRequest quizRequest,
             Principal principal) {
         // Lấy user hiện tại
-        User currentUser = (User) ((Authentication) principal).getPrincipal();
+        UserPrincipal currentUser = (UserPrincipal) ((Authentication) principal).getPrincipal();
         Long creatorId = currentUser.getId();
         
         // Tạo quiz mới
@@ -134,7 +134,7 @@ public class QuizController {
             @ModelAttribute @Valid QuizRequest quizRequest,
             Principal principal) {
         // Lấy user hiện tại
-        User currentUser = (User) ((Authentication) principal).getPrincipal();
+        UserPrincipal currentUser = (UserPrincipal) ((Authentication) principal).getPrincipal();
         Long currentUserId = currentUser.getId();
         
         // Cập nhật quiz
@@ -155,7 +155,7 @@ public class QuizController {
             @PathVariable Long id,
             Principal principal) {
         // Lấy user hiện tại
-        User currentUser = (User) ((Authentication) principal).getPrincipal();
+        UserPrincipal currentUser = (UserPrincipal) ((Authentication) principal).getPrincipal();
         Long currentUserId = currentUser.getId();
         
         // Xóa quiz
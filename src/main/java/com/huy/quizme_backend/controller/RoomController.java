@@ -6,8 +6,8 @@ import com.huy.quizme_backend.dto.request.RoomRequest;
 import com.huy.quizme_backend.dto.response.ApiResponse;
 import com.huy.quizme_backend.dto.response.RoomResponse;
 import com.huy.quizme_backend.enity.Room;
-import com.huy.quizme_backend.enity.User;
 import com.huy.quizme_backend.enity.enums.RoomStatus;
+import com.huy.quizme_backend.security.UserPrincipal;
 import com.huy.quizme_backend.service.RoomService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -40,7 +40,7 @@ public class RoomController {
             Principal principal
     ) {
         // Lấy user hiện tại
-        User currentUser = (User) ((Authentication) principal).getPrincipal();
+        UserPrincipal currentUser = (UserPrincipal) ((Authentication) principal).getPrincipal();
         Long hostId = currentUser.getId();
 
         // Tạo phòng mới
@@ -65,7 +65,7 @@ public class RoomController {
         // Lấy user ID nếu người dùng đã đăng nhập
         Long userId = null;
         if (principal != null) {
-            User currentUser = (User) ((Authentication) principal).getPrincipal();
+            UserPrincipal currentUser = (UserPrincipal) ((Authentication) principal).getPrincipal();
             userId = currentUser.getId();
         }
 
@@ -93,7 +93,7 @@ public class RoomController {
         // Lấy user ID nếu người dùng đã đăng nhập
         Long userId = null;
         if (principal != null) {
-            User currentUser = (User) ((Authentication) principal).getPrincipal();
+            UserPrincipal currentUser = (UserPrincipal) ((Authentication) principal).getPrincipal();
             userId = currentUser.getId();
         }
 
@@ -124,7 +124,7 @@ public class RoomController {
         // Lấy user ID nếu người dùng đã đăng nhập
         Long userId = null;
         if (principal != null) {
-            User currentUser = (User) ((Authentication) principal).getPrincipal();
+            UserPrincipal currentUser = (UserPrincipal) ((Authentication) principal).getPrincipal();
             userId = currentUser.getId();
         }
 
@@ -150,7 +150,7 @@ public class RoomController {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Authentication required");
         }
 
-        User currentUser = (User) ((Authentication) principal).getPrincipal();
+        UserPrincipal currentUser = (UserPrincipal) ((Authentication) principal).getPrincipal();
         Long userId = currentUser.getId();
 
         RoomResponse room = roomService.closeRoom(roomId, userId);
@@ -216,7 +216,7 @@ public class RoomController {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Authentication required");
         }
 
-        User currentUser = (User) ((Authentication) principal).getPrincipal();
+        UserPrincipal currentUser = (UserPrincipal) ((Authentication) principal).getPrincipal();
         Long userId = currentUser.getId();
 
         RoomResponse room = roomService.updateRoom(roomId, userId, roomRequest);
@@ -241,7 +241,7 @@ public class RoomController {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Authentication required");
         }
 
-        User currentUser = (User) ((Authentication) principal).getPrincipal();
+        UserPrincipal currentUser = (UserPrincipal) ((Authentication) principal).getPrincipal();
         Long userId = currentUser.getId();
 
         RoomResponse room = roomService.startGame(roomId, userId);
@@ -5,8 +5,8 @@ import com.huy.quizme_backend.dto.response.ApiResponse;
 import com.huy.quizme_backend.dto.response.PageResponse;
 import com.huy.quizme_backend.dto.response.UserProfileResponse;
 import com.huy.quizme_backend.dto.response.UserResponse;
-import com.huy.quizme_backend.enity.User;
 import com.huy.quizme_backend.enity.enums.Role;
+import com.huy.quizme_backend.security.UserPrincipal;
 import com.huy.quizme_backend.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -105,8 +105,8 @@ public class UserController {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Authentication required");
         }
 
-        User currentUser = (User) ((Authentication) principal).getPrincipal();
-        UserProfileResponse profile = userService.getCurrentUserProfile(currentUser);
+        UserPrincipal currentUser = (UserPrincipal) ((Authentication) principal).getPrincipal();
+        UserProfileResponse profile = userService.getCurrentUserProfile(currentUser.getId());
 
         return ApiResponse.success(profile, "User profile retrieved successfully");
     }
@@ -140,8 +140,8 @@ public class UserController {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Authentication required");
         }
 
-        User currentUser = (User) ((Authentication) principal).getPrincipal();
-        UserResponse updatedUser = userService.uploadAvatar(currentUser, avatarFile);
+        UserPrincipal currentUser = (UserPrincipal) ((Authentication) principal).getPrincipal();
+        UserResponse updatedUser = userService.uploadAvatar(currentUser.getId(), avatarFile);
 
         return ApiResponse.success(updatedUser, "Avatar uploaded successfully");
     }
@@ -159,8 +159,8 @@ public class UserController {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Authentication required");
         }
 
-        User currentUser = (User) ((Authentication) principal).getPrincipal();
-        UserResponse updatedUser = userService.removeAvatar(currentUser);
+        UserPrincipal currentUser = (UserPrincipal) ((Authentication) principal).getPrincipal();
+        UserResponse updatedUser = userService.removeAvatar(currentUser.getId());
 
         return ApiResponse.success(updatedUser, "Avatar removed successfully");
     }
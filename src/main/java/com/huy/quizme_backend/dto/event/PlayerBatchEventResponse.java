@@ -0,0 +1,22 @@
+package com.huy.quizme_backend.dto.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Sự kiện cho một lô người chơi cùng phòng (ví dụ các người chơi bị timeout trong cùng một tick).
+ * Luôn có dạng danh sách, kể cả khi lô chỉ có một người chơi.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PlayerBatchEventResponse {
+    private List<PlayerEventResponse> players;
+    private String message;
+    private String eventType; // "leave" or "timeout"
+}
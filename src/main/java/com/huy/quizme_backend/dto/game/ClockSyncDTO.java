@@ -0,0 +1,30 @@
+package com.huy.quizme_backend.dto.game;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO đồng bộ đồng hồ giữa client và server.
+ * Client gửi thời điểm của mình, server trả lại kèm thời điểm server để client tính độ lệch:
+ * offset ≈ serverTime - (clientTime + thời điểm nhận) / 2.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClockSyncDTO {
+    // Thời điểm client gửi yêu cầu (epoch milliseconds, do client cung cấp)
+    private Long clientTime;
+    // Thời điểm server xử lý yêu cầu (epoch milliseconds)
+    private Long serverTime;
+
+    // Tạo phản hồi đồng bộ cho thời điểm client cho trước
+    public static ClockSyncDTO now(Long clientTime) {
+        return ClockSyncDTO.builder()
+                .clientTime(clientTime)
+                .serverTime(System.currentTimeMillis())
+                .build();
+    }
+}
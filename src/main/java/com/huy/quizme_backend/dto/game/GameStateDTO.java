@@ -18,6 +18,9 @@ public class GameStateDTO {
     private boolean gameActive;
     private QuestionGameDTO currentQuestion;
     private Integer remainingTime;
+    // Trạng thái và deadline (epoch milliseconds) của giai đoạn hiện tại
+    private String phase;
+    private Long phaseDeadline;
     private LeaderboardDTO leaderboard;
     private Integer questionNumber;
     private Integer totalQuestions;
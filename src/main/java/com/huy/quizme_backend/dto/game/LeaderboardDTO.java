@@ -19,6 +19,8 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 public class LeaderboardDTO {
     private List<PlayerRankingDTO> rankings;
+    // Tổng số người chơi (rankings có thể chỉ là top N)
+    private Integer totalPlayers;
 
     /**
      * DTO cho thông tin xếp hạng của một người chơi
@@ -0,0 +1,43 @@
+package com.huy.quizme_backend.dto.game;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO cho luồng bảng xếp hạng dạng delta.
+ * <p>
+ * Snapshot chứa toàn bộ người chơi (kèm tên và avatar); delta chỉ chứa các người chơi có điểm
+ * hoặc thứ hạng thay đổi. Mỗi lần công bố tăng {@code sequence} thêm 1; client thấy thiếu
+ * sequence thì gửi yêu cầu đồng bộ để nhận lại snapshot.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaderboardDeltaDTO {
+    private Long sequence;
+    private Boolean snapshot;
+    private Integer totalPlayers;
+    private List<Entry> entries;
+
+    /**
+     * Một dòng của bảng xếp hạng; tên và avatar chỉ có trong snapshot
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Entry {
+        private Long userId;
+        private Integer score;
+        private Integer rank;
+        private String username;
+        private String avatar;
+    }
+}
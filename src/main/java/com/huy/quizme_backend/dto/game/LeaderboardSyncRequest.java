@@ -0,0 +1,18 @@
+package com.huy.quizme_backend.dto.game;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO client gửi khi phát hiện thiếu sequence trong luồng bảng xếp hạng delta
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaderboardSyncRequest {
+    // Sequence cuối cùng client đã nhận
+    private Long lastSequence;
+}
@@ -0,0 +1,39 @@
+package com.huy.quizme_backend.dto.game;
+
+import com.huy.quizme_backend.session.PhaseState;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO gửi một lần khi chuyển giai đoạn, mang deadline theo đồng hồ server.
+ * Client tự đếm ngược dựa trên deadline và độ lệch đồng hồ (xem ClockSyncDTO).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PhaseEventDTO {
+    private String status;
+    private Integer questionNumber;
+    private Long epoch;
+    // Thời điểm kết thúc giai đoạn (epoch milliseconds theo đồng hồ server)
+    private Long deadline;
+    // Độ dài giai đoạn (giây)
+    private Integer duration;
+    // Thời điểm server gửi sự kiện (epoch milliseconds)
+    private Long serverTime;
+
+    // Tạo DTO từ giai đoạn hiện tại
+    public static PhaseEventDTO fromPhase(PhaseState phase, int duration, long deadline) {
+        return PhaseEventDTO.builder()
+                .status(phase.getStatus().name())
+                .questionNumber(phase.getQuestionIndex() + 1)
+                .epoch(phase.getEpoch())
+                .deadline(deadline)
+                .duration(duration)
+                .serverTime(System.currentTimeMillis())
+                .build();
+    }
+}
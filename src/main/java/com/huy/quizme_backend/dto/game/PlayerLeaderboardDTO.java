@@ -0,0 +1,26 @@
+package com.huy.quizme_backend.dto.game;
+
+import com.huy.quizme_backend.dto.game.LeaderboardDTO.PlayerRankingDTO;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO bảng xếp hạng riêng của một người chơi (chế độ top-N cho phòng rất lớn):
+ * thứ hạng, điểm của người chơi và các người chơi xếp ngay trên/dưới.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlayerLeaderboardDTO {
+    private Long userId;
+    private Integer rank;
+    private Integer score;
+    private Integer totalPlayers;
+    // Các người chơi xung quanh (bao gồm chính người chơi), theo thứ tự xếp hạng
+    private List<PlayerRankingDTO> neighbours;
+}
@@ -0,0 +1,27 @@
+package com.huy.quizme_backend.dto.game;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO kết quả câu hỏi riêng của một người chơi, gửi qua kênh riêng (/user/queue/question-result)
+ * trong chế độ phòng lớn thay cho danh sách câu trả lời của cả phòng.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlayerQuestionResultDTO {
+    private Long questionId;
+    private Long userId;
+    private Boolean answered;
+    private Boolean isCorrect;
+    // Điểm nhận được ở câu hỏi này
+    private Integer score;
+    // Tổng điểm và thứ hạng sau câu hỏi này
+    private Integer totalScore;
+    private Integer rank;
+    private Double timeTaken;
+}
@@ -0,0 +1,189 @@
+package com.huy.quizme_backend.engine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Đồng hồ chung của tất cả các phòng chơi.
+ * <p>
+ * Mỗi phòng có tối đa một giai đoạn (phase) đang chạy. Một giai đoạn gồm một deadline và
+ * (tuỳ chọn) các tick 1 giây; tất cả đều được điều khiển bởi một {@link HashedWheelTimer} duy nhất,
+ * mỗi phòng chỉ giữ một timeout trong bánh xe tại một thời điểm. Các tick được căn theo
+ * thời điểm bắt đầu giai đoạn nên không bị trôi dần theo thời gian.
+ * <p>
+ * Tick và deadline được chuyển vào {@link RoomActorExecutor} của phòng, nên chúng chạy tuần tự
+ * với mọi thay đổi trạng thái khác của phòng. {@link #startPhase} và {@link #cancel} cũng phải
+ * được gọi từ actor của phòng; khi đó một timer cũ đã bị thay thế hoặc huỷ sẽ không bao giờ chạy.
+ */
+@Component
+@Slf4j
+public class GameClock {
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final HashedWheelTimer wheel;
+    private final RoomActorExecutor roomActors;
+    private final ConcurrentMap<Long, Phase> phases = new ConcurrentHashMap<>();
+    private final Timer driftTimer;
+
+    public GameClock(
+            MeterRegistry meterRegistry,
+            RoomActorExecutor roomActors,
+            @Value("${app.game.clock.tick-ms:50}") long tickMs,
+            @Value("${app.game.clock.wheel-size:512}") int wheelSize
+    ) {
+        this.roomActors = roomActors;
+        // Worker của bánh xe chỉ chuyển timeout vào hộp thư của phòng, không chạy logic game
+        this.wheel = new HashedWheelTimer("game-clock-wheel", tickMs, TimeUnit.MILLISECONDS, wheelSize, Runnable::run);
+
+        this.driftTimer = Timer.builder("game.clock.drift")
+                .description("Độ trễ giữa thời điểm tick dự kiến và thời điểm thực thi")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("game.clock.pending", wheel, HashedWheelTimer::pendingTimeouts)
+                .description("Số timeout đang chờ trong bánh xe thời gian")
+                .register(meterRegistry);
+        Gauge.builder("game.clock.batch.size", wheel, HashedWheelTimer::lastBatchSize)
+                .description("Số timeout hết hạn trong tick gần nhất")
+                .register(meterRegistry);
+        Gauge.builder("game.clock.phases", phases, ConcurrentMap::size)
+                .description("Số phòng đang có giai đoạn chạy")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Bắt đầu giai đoạn mới cho phòng, huỷ giai đoạn cũ nếu có.
+     * <p>
+     * {@code onTick} nhận số giây còn lại tại mỗi giây (bắt đầu từ {@code totalSeconds},
+     * kết thúc ở 0), ngay sau tick cuối cùng {@code onDeadline} được gọi. Nếu {@code onTick}
+     * là null thì chỉ có một timeout duy nhất cho deadline.
+     *
+     * @param roomId       ID phòng
+     * @param totalSeconds Độ dài giai đoạn (giây)
+     * @param onTick       Callback mỗi giây, có thể null
+     * @param onDeadline   Callback khi hết thời gian
+     * @return Deadline của giai đoạn (epoch milliseconds)
+     */
+    public long startPhase(Long roomId, int totalSeconds, IntConsumer onTick, Runnable onDeadline) {
+        Phase phase = new Phase(roomId, Math.max(0, totalSeconds), onTick, onDeadline);
+        Phase previous = phases.put(roomId, phase);
+        if (previous != null) {
+            previous.cancel();
+        }
+        schedule(phase, onTick != null ? 0 : phase.totalSeconds);
+        return phase.deadlineEpochMillis;
+    }
+
+    /**
+     * Huỷ giai đoạn đang chạy của phòng (nếu có).
+     */
+    public void cancel(Long roomId) {
+        Phase phase = phases.remove(roomId);
+        if (phase != null) {
+            phase.cancel();
+            log.debug("Đã hủy timer cho phòng {}", roomId);
+        }
+    }
+
+    /**
+     * Deadline của giai đoạn hiện tại (epoch milliseconds), 0 nếu không có giai đoạn nào.
+     */
+    public long deadlineMillis(Long roomId) {
+        Phase phase = phases.get(roomId);
+        return phase != null ? phase.deadlineEpochMillis : 0;
+    }
+
+    /**
+     * Số mili giây còn lại của giai đoạn hiện tại, 0 nếu không có giai đoạn nào.
+     */
+    public long remainingMillis(Long roomId) {
+        Phase phase = phases.get(roomId);
+        if (phase == null) {
+            return 0;
+        }
+        long deadline = phase.startNanos + phase.totalSeconds * NANOS_PER_SECOND;
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        log.info("Shutting down game clock ({} pending timeouts)", wheel.pendingTimeouts());
+        phases.values().forEach(Phase::cancel);
+        phases.clear();
+        wheel.stop();
+    }
+
+    private void schedule(Phase phase, int tickIndex) {
+        long target = phase.startNanos + tickIndex * NANOS_PER_SECOND;
+        long delay = target - System.nanoTime();
+        phase.current = wheel.newTimeout(
+                () -> roomActors.execute(phase.roomId, () -> fire(phase, tickIndex, target)),
+                delay, TimeUnit.NANOSECONDS);
+    }
+
+    private void fire(Phase phase, int tickIndex, long target) {
+        driftTimer.record(Math.max(0, System.nanoTime() - target), TimeUnit.NANOSECONDS);
+
+        if (phase.cancelled || phases.get(phase.roomId) != phase) {
+            return;
+        }
+
+        int remaining = phase.totalSeconds - tickIndex;
+        if (phase.onTick != null) {
+            try {
+                phase.onTick.accept(remaining);
+            } catch (Exception e) {
+                log.error("Lỗi khi xử lý tick cho phòng {}: {}", phase.roomId, e.getMessage(), e);
+            }
+        }
+
+        if (remaining > 0) {
+            schedule(phase, tickIndex + 1);
+            return;
+        }
+
+        // Hết giờ: chỉ giai đoạn vẫn còn là giai đoạn hiện tại mới được chuyển tiếp
+        if (phases.remove(phase.roomId, phase)) {
+            phase.onDeadline.run();
+        }
+    }
+
+    /**
+     * Một giai đoạn đang chạy của phòng.
+     */
+    private static final class Phase {
+        private final Long roomId;
+        private final int totalSeconds;
+        private final IntConsumer onTick;
+        private final Runnable onDeadline;
+        private final long startNanos = System.nanoTime();
+        private final long deadlineEpochMillis;
+        private volatile boolean cancelled;
+        private volatile HashedWheelTimer.Timeout current;
+
+        private Phase(Long roomId, int totalSeconds, IntConsumer onTick, Runnable onDeadline) {
+            this.roomId = roomId;
+            this.totalSeconds = totalSeconds;
+            this.onTick = onTick;
+            this.onDeadline = onDeadline;
+            this.deadlineEpochMillis = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(totalSeconds);
+        }
+
+        private void cancel() {
+            cancelled = true;
+            HashedWheelTimer.Timeout timeout = current;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,531 @@
+package com.huy.quizme_backend.engine;
+
+import com.huy.quizme_backend.session.AnswerSheet;
+import com.huy.quizme_backend.session.ConnectionStatus;
+import com.huy.quizme_backend.session.GameSession;
+import com.huy.quizme_backend.session.GameStatus;
+import com.huy.quizme_backend.session.ParticipantSession;
+import com.huy.quizme_backend.session.PhaseState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Nhật ký (journal) chỉ ghi nối tiếp các sự kiện của phiên chơi, dùng để khôi phục phiên chơi
+ * trong bộ nhớ sau khi ứng dụng khởi động lại hoặc bị crash.
+ * <p>
+ * Mỗi trò chơi có một file riêng, tạo khi khởi tạo phiên. Khi trò chơi kết thúc, journal được đánh dấu
+ * hoàn tất ({@link #markCompleted}) và chỉ bị xoá sau khi kết quả đã được lưu vào database; journal
+ * đã hoàn tất còn lại khi khởi động nghĩa là cần lưu lại kết quả thay vì tiếp tục trò chơi. File được
+ * memory-map nên ghi một bản ghi chỉ là sao chép vào bộ nhớ. Dữ liệu đã ghi vẫn còn trong
+ * page cache nếu tiến trình bị crash; việc đẩy xuống đĩa ({@code force}) được gom lại
+ * (group commit) trên một thread riêng sau mỗi {@code group-commit-ms}, nên người ghi không phải chờ.
+ * <p>
+ * Mỗi bản ghi gồm độ dài, CRC32C và nội dung; khi đọc lại, bản ghi đầu tiên bị cắt dở hoặc sai CRC
+ * đánh dấu điểm kết thúc của journal.
+ */
+@Component
+@Slf4j
+public class GameJournal {
+    private static final String FILE_PREFIX = "room-";
+    private static final String FILE_SUFFIX = ".journal";
+    // Độ dài (int) + CRC (int)
+    private static final int HEADER_SIZE = 8;
+
+    private static final byte INIT = 1;
+    private static final byte ANSWER = 2;
+    private static final byte PHASE = 3;
+    private static final byte SCORES = 4;
+    private static final byte COMPLETED = 5;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final long groupCommitMs;
+    private final ConcurrentMap<Long, JournalFile> journals = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService syncExecutor =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("game-journal-sync").factory());
+
+    private final Counter records;
+    private final Timer syncTime;
+
+    public GameJournal(
+            MeterRegistry meterRegistry,
+            @Value("${app.game.journal.enabled:false}") boolean enabled,
+            @Value("${app.game.journal.dir:${java.io.tmpdir}/quizme-journal}") String directory,
+            @Value("${app.game.journal.segment-size:1048576}") int segmentSize,
+            @Value("${app.game.journal.group-commit-ms:10}") long groupCommitMs
+    ) {
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.segmentSize = segmentSize;
+        this.groupCommitMs = groupCommitMs;
+
+        Gauge.builder("game.journal.open", journals, ConcurrentMap::size)
+                .description("Số journal của trò chơi đang mở")
+                .register(meterRegistry);
+        this.records = Counter.builder("game.journal.records")
+                .description("Số bản ghi đã ghi vào journal")
+                .register(meterRegistry);
+        this.syncTime = Timer.builder("game.journal.sync")
+                .description("Thời gian đẩy một journal xuống đĩa")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        syncExecutor.scheduleWithFixedDelay(this::sync, groupCommitMs, groupCommitMs, TimeUnit.MILLISECONDS);
+        log.info("Game journal enabled in {}", directory);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        syncExecutor.shutdownNow();
+        // Giữ lại file để khôi phục các trò chơi đang diễn ra khi khởi động lại
+        journals.values().forEach(journal -> journal.close(false));
+        journals.clear();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Tạo journal mới cho phiên chơi vừa khởi tạo và ghi trạng thái ban đầu (người chơi theo slot).
+     */
+    public void open(GameSession gameSession) {
+        if (!enabled) {
+            return;
+        }
+
+        Path file = directory.resolve(FILE_PREFIX + gameSession.getRoomId() + "-" + System.currentTimeMillis() + FILE_SUFFIX);
+        try {
+            JournalFile journal = new JournalFile(file, segmentSize, 0);
+            JournalFile previous = journals.put(gameSession.getRoomId(), journal);
+            if (previous != null) {
+                previous.close(true);
+            }
+            append(journal, INIT, buffer -> writeInit(buffer, gameSession));
+        } catch (IOException | RuntimeException e) {
+            log.error("Không thể tạo journal cho phòng {}: {}", gameSession.getRoomId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Ghi câu trả lời đã được chấp nhận.
+     */
+    public void appendAnswer(Long roomId, int questionIndex, int slot, int optionMask, int answerTimeMs, boolean correct) {
+        JournalFile journal = journals.get(roomId);
+        if (journal != null) {
+            append(journal, ANSWER, buffer -> buffer
+                    .putInt(questionIndex)
+                    .putInt(slot)
+                    .putInt(optionMask)
+                    .putInt(answerTimeMs)
+                    .put((byte) (correct ? 1 : 0)));
+        }
+    }
+
+    /**
+     * Ghi giai đoạn mới cùng deadline (epoch milliseconds) của nó.
+     */
+    public void appendPhase(Long roomId, PhaseState phase, long deadlineMillis) {
+        JournalFile journal = journals.get(roomId);
+        if (journal != null) {
+            append(journal, PHASE, buffer -> buffer
+                    .putInt(phase.getStatus().ordinal())
+                    .putInt(phase.getQuestionIndex())
+                    .putLong(deadlineMillis));
+        }
+    }
+
+    /**
+     * Ghi điểm của từng slot cho câu hỏi vừa chấm điểm.
+     */
+    public void appendScores(Long roomId, int questionIndex, AnswerSheet answerSheet) {
+        JournalFile journal = journals.get(roomId);
+        if (journal != null) {
+            int capacity = answerSheet.capacity();
+            append(journal, SCORES, buffer -> {
+                buffer.putInt(questionIndex).putInt(capacity);
+                for (int slot = 0; slot < capacity; slot++) {
+                    buffer.putInt(answerSheet.getScore(slot));
+                }
+            });
+        }
+    }
+
+    /**
+     * Trò chơi đã kết thúc: ghi bản ghi hoàn tất (kèm thời gian bắt đầu/kết thúc) rồi đóng journal.
+     * File được giữ lại cho đến khi gọi {@link #discard} sau khi kết quả đã được lưu.
+     *
+     * @param finalizeResults Trò chơi có cần lưu kết quả cuối cùng (GameResult) hay không
+     * @return File journal, null nếu phòng không có journal
+     */
+    public Path markCompleted(GameSession gameSession, boolean finalizeResults) {
+        JournalFile journal = journals.remove(gameSession.getRoomId());
+        if (journal == null) {
+            return null;
+        }
+        append(journal, COMPLETED, buffer -> buffer
+                .putLong(toEpochMillis(gameSession.getStartTime()))
+                .putLong(toEpochMillis(gameSession.getEndTime()))
+                .put((byte) (finalizeResults ? 1 : 0)));
+        journal.close(false);
+        return journal.file;
+    }
+
+    /**
+     * Các journal còn lại từ lần chạy trước (trò chơi chưa kết thúc).
+     */
+    public List<Path> pendingJournals() {
+        List<Path> files = new ArrayList<>();
+        if (!enabled || !Files.isDirectory(directory)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            log.error("Không thể đọc thư mục journal {}: {}", directory, e.getMessage());
+        }
+        return files;
+    }
+
+    /**
+     * Đọc lại journal theo thứ tự ghi.
+     *
+     * @return false nếu journal không có trạng thái ban đầu hợp lệ
+     */
+    public boolean replay(Path file, Replay replay) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            boolean[] initialized = new boolean[1];
+            scan(buffer, (type, payload) -> {
+                if (type == INIT) {
+                    initialized[0] = true;
+                    readInit(payload, replay);
+                } else if (initialized[0]) {
+                    dispatch(type, payload, replay);
+                }
+            });
+            return initialized[0];
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Tiếp tục ghi vào journal của phiên chơi đã khôi phục.
+     */
+    public void resume(Long roomId, Path file) {
+        try {
+            long end;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                end = scan(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), (type, payload) -> {
+                });
+            }
+            journals.put(roomId, new JournalFile(file, segmentSize, end));
+        } catch (IOException e) {
+            log.error("Không thể mở lại journal {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Xoá journal đã lưu xong hoặc không khôi phục được.
+     */
+    public void discard(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Không thể xoá journal {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void append(JournalFile journal, byte type, Consumer<ByteBuffer> writer) {
+        try {
+            journal.append(type, writer);
+            records.increment();
+        } catch (IOException | RuntimeException e) {
+            log.error("Không thể ghi journal {}: {}", journal.file, e.getMessage());
+        }
+    }
+
+    private void sync() {
+        for (JournalFile journal : journals.values()) {
+            if (journal.dirty) {
+                syncTime.record(journal::force);
+            }
+        }
+    }
+
+    /**
+     * Đọc các bản ghi hợp lệ từ đầu buffer.
+     *
+     * @return vị trí ngay sau bản ghi hợp lệ cuối cùng
+     */
+    private static long scan(ByteBuffer buffer, RecordVisitor visitor) {
+        CRC32C crc = new CRC32C();
+        int position = 0;
+        while (position + HEADER_SIZE < buffer.limit()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || length > buffer.limit() - position - HEADER_SIZE) {
+                break;
+            }
+            int checksum = buffer.getInt(position + 4);
+            ByteBuffer record = buffer.slice(position + HEADER_SIZE, length);
+            crc.reset();
+            crc.update(record.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+
+            byte type = record.get();
+            visitor.visit(type, record);
+            position += HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    private static void dispatch(byte type, ByteBuffer payload, Replay replay) {
+        switch (type) {
+            case ANSWER -> replay.answer(payload.getInt(), payload.getInt(), payload.getInt(), payload.getInt(),
+                    payload.get() != 0);
+            case PHASE -> replay.phase(GameStatus.values()[payload.getInt()], payload.getInt(), payload.getLong());
+            case SCORES -> {
+                int questionIndex = payload.getInt();
+                int[] scores = new int[payload.getInt()];
+                for (int slot = 0; slot < scores.length; slot++) {
+                    scores[slot] = payload.getInt();
+                }
+                replay.scores(questionIndex, scores);
+            }
+            case COMPLETED -> replay.completed(toDateTime(payload.getLong()), toDateTime(payload.getLong()),
+                    payload.get() != 0);
+            default -> log.warn("Bỏ qua bản ghi journal không xác định: {}", type);
+        }
+    }
+
+    private static void writeInit(ByteBuffer buffer, GameSession gameSession) {
+        buffer.putLong(gameSession.getRoomId());
+        buffer.putLong(gameSession.getQuizId());
+        buffer.putLong(gameSession.getGameResultId() != null ? gameSession.getGameResultId() : -1L);
+        buffer.put((byte) (gameSession.isLegacyTimerTicks() ? 1 : 0));
+        buffer.putInt(gameSession.getParticipants().size());
+        for (ParticipantSession participant : gameSession.getParticipants().values()) {
+            buffer.putInt(participant.getSlot());
+            buffer.putLong(participant.getParticipantId() != null ? participant.getParticipantId() : -1L);
+            buffer.putLong(participant.getUserId());
+            writeString(buffer, participant.getUsername());
+            writeString(buffer, participant.getAvatarUrl());
+        }
+    }
+
+    private static void readInit(ByteBuffer payload, Replay replay) {
+        long roomId = payload.getLong();
+        long quizId = payload.getLong();
+        long gameResultId = payload.getLong();
+        boolean legacyTimerTicks = payload.get() != 0;
+        int count = payload.getInt();
+
+        // Người chơi được coi là mất kết nối cho đến khi kết nối lại sau khi khởi động
+        List<ParticipantSession> participants = new ArrayList<>(count);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < count; i++) {
+            ParticipantSession participant = new ParticipantSession();
+            participant.setSlot(payload.getInt());
+            long participantId = payload.getLong();
+            participant.setParticipantId(participantId >= 0 ? participantId : null);
+            participant.setUserId(payload.getLong());
+            participant.setUsername(readString(payload));
+            participant.setAvatarUrl(readString(payload));
+            participant.setScore(0);
+            participant.setRank(0);
+            participant.setConnectionStatus(ConnectionStatus.DISCONNECTED);
+            participant.setDisconnectedAt(now);
+            participants.add(participant);
+        }
+        replay.init(roomId, quizId, gameResultId >= 0 ? gameResultId : null, legacyTimerTicks, participants);
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1L;
+    }
+
+    private static LocalDateTime toDateTime(long epochMillis) {
+        return epochMillis >= 0 ? LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()) : null;
+    }
+
+    private static void writeString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Nhận các bản ghi khi đọc lại journal.
+     */
+    public interface Replay {
+        void init(Long roomId, Long quizId, Long gameResultId, boolean legacyTimerTicks, List<ParticipantSession> participants);
+
+        void answer(int questionIndex, int slot, int optionMask, int answerTimeMs, boolean correct);
+
+        void phase(GameStatus status, int questionIndex, long deadlineMillis);
+
+        void scores(int questionIndex, int[] scores);
+
+        /**
+         * Trò chơi đã kết thúc nhưng kết quả có thể chưa được lưu xong.
+         */
+        void completed(LocalDateTime startTime, LocalDateTime endTime, boolean finalizeResults);
+    }
+
+    @FunctionalInterface
+    private interface RecordVisitor {
+        void visit(byte type, ByteBuffer payload);
+    }
+
+    /**
+     * File journal của một trò chơi, memory-map theo từng đoạn và mở rộng khi đầy.
+     */
+    private static final class JournalFile {
+        private final Path file;
+        private final FileChannel channel;
+        private final int segmentSize;
+        private final CRC32C crc = new CRC32C();
+        private MappedByteBuffer buffer;
+        // Vị trí bắt đầu của vùng đang map trong file
+        private long mappedOffset;
+        private volatile boolean dirty;
+        private boolean closed;
+
+        private JournalFile(Path file, int segmentSize, long position) throws IOException {
+            this.file = file;
+            this.segmentSize = segmentSize;
+            this.channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // Bỏ phần ghi dở (nếu có) sau bản ghi hợp lệ cuối cùng
+            channel.truncate(position);
+            map(position, segmentSize);
+        }
+
+        private synchronized void append(byte type, Consumer<ByteBuffer> writer) throws IOException {
+            if (closed) {
+                return;
+            }
+            if (buffer.remaining() <= HEADER_SIZE) {
+                // Không còn chỗ cho cả phần đầu bản ghi: chuyển sang đoạn mới trước khi ghi
+                map(mappedOffset + buffer.position(), segmentSize);
+                buffer.position(0);
+            }
+            int start = buffer.position();
+            try {
+                buffer.position(start + HEADER_SIZE);
+                buffer.put(type);
+                writer.accept(buffer);
+            } catch (BufferOverflowException e) {
+                // Không đủ chỗ trong đoạn hiện tại: map đoạn mới (đủ lớn) rồi ghi lại
+                buffer.put(start, new byte[buffer.position() - start]);
+                map(mappedOffset + start, Math.max(segmentSize, (buffer.capacity() - start) * 2));
+                buffer.position(0);
+                append(type, writer);
+                return;
+            }
+
+            int length = buffer.position() - start - HEADER_SIZE;
+            crc.reset();
+            crc.update(buffer.slice(start + HEADER_SIZE, length));
+            buffer.putInt(start + 4, (int) crc.getValue());
+            // Ghi độ dài sau cùng: bản ghi chỉ hợp lệ khi đã ghi đầy đủ
+            buffer.putInt(start, length);
+            dirty = true;
+        }
+
+        private void map(long offset, int size) throws IOException {
+            MappedByteBuffer previous = buffer;
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, offset, size);
+            mappedOffset = offset;
+            if (previous != null) {
+                previous.force();
+            }
+        }
+
+        private void force() {
+            // Đẩy xuống đĩa ngoài khoá để không chặn người ghi
+            MappedByteBuffer current;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                dirty = false;
+                current = buffer;
+            }
+            current.force();
+        }
+
+        private synchronized void close(boolean delete) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (!delete) {
+                    buffer.force();
+                }
+                channel.close();
+                if (delete) {
+                    Files.deleteIfExists(file);
+                }
+            } catch (IOException e) {
+                log.warn("Không thể đóng journal {}: {}", file, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.huy.quizme_backend.engine;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bánh xe thời gian (hashed timing wheel) dùng chung cho rất nhiều timeout.
+ * <p>
+ * Một worker thread duy nhất quét một bucket mỗi tick, gom các timeout đã hết hạn
+ * trong bucket đó thành một lô và chuyển sang {@code taskExecutor}. Thêm và huỷ timeout
+ * đều là O(1) và không cần giữ một {@code ScheduledFuture} riêng cho mỗi timer.
+ * Độ chính xác bị giới hạn bởi độ dài tick.
+ */
+@Slf4j
+public class HashedWheelTimer {
+    private static final int ST_INIT = 0;
+    private static final int ST_CANCELLED = 1;
+    private static final int ST_EXPIRED = 2;
+
+    // Số timeout tối đa chuyển từ hàng đợi vào bánh xe mỗi tick để tránh treo worker
+    private static final int MAX_TRANSFER_PER_TICK = 100_000;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Executor taskExecutor;
+    private final Thread worker;
+    private final long startNanos;
+
+    private final Queue<Timeout> pendingAdds = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> pendingCancels = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingCount = new AtomicLong();
+
+    private volatile boolean running = true;
+    private volatile int lastBatchSize;
+
+    // Chỉ được truy cập bởi worker thread
+    private long tick;
+
+    /**
+     * @param name          Tên worker thread
+     * @param tickDuration  Độ dài một tick
+     * @param unit          Đơn vị của tickDuration
+     * @param ticksPerWheel Số bucket (làm tròn lên luỹ thừa của 2)
+     * @param taskExecutor  Executor chạy các task đã hết hạn
+     */
+    public HashedWheelTimer(String name, long tickDuration, TimeUnit unit, int ticksPerWheel, Executor taskExecutor) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be greater than 0");
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) {
+            throw new IllegalArgumentException("ticksPerWheel must be in (0, 2^30]");
+        }
+
+        int size = Integer.highestOneBit(ticksPerWheel - 1) << 1;
+        if (size <= 0) {
+            size = 1;
+        }
+
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.taskExecutor = taskExecutor;
+        this.startNanos = System.nanoTime();
+
+        this.worker = new Thread(this::runWorker, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Lên lịch một task chạy sau khoảng thời gian cho trước.
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        if (!running) {
+            throw new IllegalStateException("Timer đã dừng, không thể lên lịch thêm");
+        }
+
+        long deadline = System.nanoTime() - startNanos + Math.max(0, unit.toNanos(delay));
+        Timeout timeout = new Timeout(task, deadline);
+        pendingCount.incrementAndGet();
+        pendingAdds.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Số timeout đang chờ (chưa hết hạn, chưa bị huỷ).
+     */
+    public long pendingTimeouts() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Số timeout hết hạn trong tick gần nhất.
+     */
+    public int lastBatchSize() {
+        return lastBatchSize;
+    }
+
+    /**
+     * Dừng worker thread. Các timeout chưa hết hạn sẽ bị bỏ qua.
+     */
+    public void stop() {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(TimeUnit.NANOSECONDS.toMillis(tickNanos) * 2 + 100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWorker() {
+        while (running) {
+            long deadline = waitForNextTick();
+            if (deadline < 0) {
+                break;
+            }
+
+            processCancelledTimeouts();
+            transferTimeoutsToBuckets();
+
+            List<Timeout> expired = wheel[(int) (tick & mask)].expireTimeouts();
+            lastBatchSize = expired.size();
+            if (!expired.isEmpty()) {
+                dispatch(expired);
+            }
+
+            tick++;
+        }
+    }
+
+    private void dispatch(List<Timeout> expired) {
+        for (Timeout timeout : expired) {
+            try {
+                taskExecutor.execute(timeout::runTask);
+            } catch (Exception e) {
+                log.error("Không thể chuyển timeout sang executor: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private long waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        for (; ; ) {
+            long current = System.nanoTime() - startNanos;
+            long sleepNanos = deadline - current;
+            if (sleepNanos <= 0) {
+                return current;
+            }
+            LockSupport.parkNanos(this, sleepNanos);
+            if (!running) {
+                return -1;
+            }
+        }
+    }
+
+    private void transferTimeoutsToBuckets() {
+        for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+            Timeout timeout = pendingAdds.poll();
+            if (timeout == null) {
+                break;
+            }
+            if (timeout.state() == ST_CANCELLED) {
+                continue;
+            }
+
+            long calculated = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+
+            // Timeout đã quá hạn được đưa vào bucket hiện tại để chạy ngay tick này
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private void processCancelledTimeouts() {
+        for (; ; ) {
+            Timeout timeout = pendingCancels.poll();
+            if (timeout == null) {
+                break;
+            }
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+            pendingCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Handle của một timeout đã lên lịch.
+     */
+    public final class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(ST_INIT);
+
+        // Các trường dưới đây chỉ được truy cập bởi worker thread
+        private long remainingRounds;
+        private Timeout next;
+        private Timeout prev;
+        private Bucket bucket;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Huỷ timeout. Trả về false nếu timeout đã chạy hoặc đã bị huỷ trước đó.
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            pendingCancels.add(this);
+            return true;
+        }
+
+        private int state() {
+            return state.get();
+        }
+
+        private boolean expire() {
+            if (!state.compareAndSet(ST_INIT, ST_EXPIRED)) {
+                return false;
+            }
+            pendingCount.decrementAndGet();
+            return true;
+        }
+
+        private void runTask() {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                log.error("Lỗi khi chạy timeout task: {}", t.getMessage(), t);
+            }
+        }
+    }
+
+    /**
+     * Danh sách liên kết đôi các timeout trong một bucket, chỉ worker thread truy cập.
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        List<Timeout> expireTimeouts() {
+            List<Timeout> expired = null;
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    if (timeout.expire()) {
+                        if (expired == null) {
+                            expired = new ArrayList<>();
+                        }
+                        expired.add(timeout);
+                    }
+                } else if (timeout.state() == ST_CANCELLED) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+            return expired != null ? expired : List.of();
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.huy.quizme_backend.engine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Phân phối tin nhắn game từ client (câu trả lời) vào các làn (lane) theo phòng.
+ * <p>
+ * Mỗi phòng luôn thuộc về cùng một làn, mỗi làn xử lý tin nhắn tuần tự theo thứ tự được đưa vào
+ * làn ({@link #dispatch}); các làn chạy song song trên virtual thread nên các phòng khác nhau
+ * không phải chờ nhau. Thread của clientInboundChannel chỉ đưa tin nhắn vào làn rồi trả về ngay.
+ * <p>
+ * Thứ tự được giữ từ lúc gọi {@link #dispatch}, không phải từ lúc frame đến server: clientInboundChannel
+ * xử lý frame trên nhiều thread, nên frame của các phiên khác nhau có thể đến làn theo thứ tự khác
+ * thứ tự nhận từ mạng. Frame của cùng một phiên giữ đúng thứ tự gửi nhờ {@code preserveReceiveOrder}
+ * của endpoint STOMP (xem WebSocketConfig).
+ * <p>
+ * Mỗi làn chứa tối đa {@code app.game.inbound.lane-capacity} tin nhắn đang chờ; khi đầy, tin nhắn mới
+ * bị từ chối ngay (metric {@code game.inbound.lane.rejected}) để một phòng quá tải không làm
+ * bộ nhớ tăng không giới hạn.
+ * <p>
+ * Số làn cố định (mặc định gấp đôi số core) để số metric theo làn không tăng theo số phòng.
+ */
+@Component
+@Slf4j
+public class InboundLaneDispatcher {
+    private final ExecutorService executor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("inbound-lane-", 0).factory());
+    private final Lane[] lanes;
+    private final int laneCapacity;
+    private final Counter rejected;
+
+    public InboundLaneDispatcher(
+            MeterRegistry meterRegistry,
+            @Value("${app.game.inbound.lanes:0}") int laneCount,
+            @Value("${app.game.inbound.lane-capacity:10000}") int laneCapacity
+    ) {
+        this.laneCapacity = laneCapacity;
+        this.rejected = Counter.builder("game.inbound.lane.rejected")
+                .description("Số tin nhắn bị từ chối vì làn đã đầy")
+                .register(meterRegistry);
+        int count = laneCount > 0 ? laneCount : Runtime.getRuntime().availableProcessors() * 2;
+        this.lanes = new Lane[count];
+        for (int i = 0; i < count; i++) {
+            lanes[i] = new Lane(i, meterRegistry);
+        }
+    }
+
+    /**
+     * Đưa tác vụ vào làn của phòng.
+     *
+     * @return false nếu làn đã đầy và tác vụ bị bỏ
+     */
+    public boolean dispatch(Long roomId, Runnable task) {
+        if (!lanes[Math.floorMod(roomId.hashCode(), lanes.length)].enqueue(task)) {
+            rejected.increment();
+            return false;
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        log.info("Shutting down {} inbound lanes", lanes.length);
+        executor.shutdownNow();
+    }
+
+    private final class Lane extends Mailbox<Task> {
+        private final int index;
+        private final Queue<Task> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final Timer latency;
+
+        private Lane(int index, MeterRegistry meterRegistry) {
+            super(executor);
+            this.index = index;
+            String lane = Integer.toString(index);
+            Gauge.builder("game.inbound.lane.depth", depth, AtomicInteger::get)
+                    .tag("lane", lane)
+                    .description("Số tin nhắn đang chờ trong làn")
+                    .register(meterRegistry);
+            this.latency = Timer.builder("game.inbound.lane.latency")
+                    .tag("lane", lane)
+                    .description("Thời gian từ khi nhận tin nhắn đến khi xử lý xong")
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+        }
+
+        private boolean enqueue(Runnable task) {
+            // Giữ chỗ trước khi thêm để số tin nhắn đang chờ không bao giờ vượt giới hạn
+            if (depth.incrementAndGet() > laneCapacity) {
+                depth.decrementAndGet();
+                return false;
+            }
+            queue.add(new Task(task, System.nanoTime()));
+            schedule();
+            return true;
+        }
+
+        @Override
+        protected Task poll() {
+            Task task = queue.poll();
+            if (task != null) {
+                depth.decrementAndGet();
+            }
+            return task;
+        }
+
+        @Override
+        protected boolean isEmpty() {
+            return queue.isEmpty();
+        }
+
+        @Override
+        protected void process(Task task) {
+            try {
+                task.runnable.run();
+            } finally {
+                latency.record(System.nanoTime() - task.enqueuedAt, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "inbound-lane-" + index;
+        }
+    }
+
+    private static final class Task {
+        private final Runnable runnable;
+        private final long enqueuedAt;
+
+        private Task(Runnable runnable, long enqueuedAt) {
+            this.runnable = runnable;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.huy.quizme_backend.engine;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hộp thư xử lý tuần tự: các phần tử được lấy ra và xử lý lần lượt, tại mọi thời điểm
+ * có tối đa một thread xử lý hộp thư. Thread xử lý chỉ được xin từ {@code executor} khi
+ * hộp thư chuyển từ rỗng sang có phần tử, và được nhả ngay khi hộp thư rỗng.
+ * <p>
+ * Lớp con quản lý hàng đợi của mình ({@link #poll}, {@link #isEmpty}) và gọi {@link #schedule}
+ * sau mỗi lần thêm phần tử.
+ */
+@Slf4j
+abstract class Mailbox<T> {
+    private final Executor executor;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    protected Mailbox(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Đảm bảo có một thread xử lý hộp thư; gọi sau khi thêm phần tử.
+     */
+    protected final void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RuntimeException e) {
+                scheduled.set(false);
+                log.error("Không thể xử lý hộp thư {}: {}", this, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Có thread đang (hoặc sắp) xử lý hộp thư hay không.
+     */
+    protected final boolean isScheduled() {
+        return scheduled.get();
+    }
+
+    /**
+     * Lấy phần tử tiếp theo, null nếu hộp thư rỗng (hoặc không còn nhận xử lý).
+     */
+    protected abstract T poll();
+
+    protected abstract boolean isEmpty();
+
+    /**
+     * Xử lý một phần tử. Ngoại lệ được ghi log và không làm dừng hộp thư.
+     */
+    protected abstract void process(T item);
+
+    /**
+     * Gọi sau khi thread xử lý đã nhả hộp thư.
+     */
+    protected void onIdle() {
+    }
+
+    private void drain() {
+        for (; ; ) {
+            T item;
+            while ((item = poll()) != null) {
+                try {
+                    process(item);
+                } catch (Throwable t) {
+                    log.error("Lỗi khi xử lý hộp thư {}: {}", this, t.getMessage(), t);
+                }
+            }
+
+            scheduled.set(false);
+            // Có phần tử mới được thêm trong lúc nhả quyền xử lý
+            if (isEmpty() || !scheduled.compareAndSet(false, true)) {
+                break;
+            }
+        }
+        onIdle();
+    }
+}
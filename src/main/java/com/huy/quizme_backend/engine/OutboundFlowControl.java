@@ -0,0 +1,175 @@
+package com.huy.quizme_backend.engine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Kiểm soát luồng gửi WebSocket đến từng client (áp dụng cho cả "/ws" và "/ws-raw").
+ * <p>
+ * Mỗi phiên WebSocket có một hàng đợi gửi riêng ({@link OutboundFrameQueue}) với giới hạn
+ * số byte đang chờ và thời gian tối đa của một lần gửi. Client chậm không làm các phiên khác
+ * phải chờ, frame TIMER và LEADERBOARD bị thay thế bởi frame mới hơn thì bỏ luôn frame cũ,
+ * và khi vượt giới hạn thì các frame đó bị bỏ trước; nếu vẫn vượt thì đóng phiên.
+ * Thời gian của lần gửi đang diễn ra còn được kiểm tra định kỳ trên mọi phiên, nên phiên bị treo
+ * trong {@code sendMessage} bị đóng kể cả khi không còn frame mới.
+ */
+@Component
+@Slf4j
+public class OutboundFlowControl {
+    private final ExecutorService executor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ws-outbound-", 0).factory());
+    private final ConcurrentMap<String, OutboundFrameQueue> queues = new ConcurrentHashMap<>();
+    private final int bufferSizeLimit;
+    private final long sendTimeLimitMs;
+    // Kiểm tra định kỳ thời gian gửi của các phiên
+    private final HashedWheelTimer watchdog =
+            new HashedWheelTimer("ws-send-watchdog", 100, TimeUnit.MILLISECONDS, 64, Runnable::run);
+    private final long checkIntervalMs;
+    private volatile boolean stopped;
+
+    private final AtomicLong queuedFrames = new AtomicLong();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final Counter supersededFrames;
+    private final Counter overflowFrames;
+    private final Counter terminatedSessions;
+    private final DistributionSummary queueDepth;
+
+    public OutboundFlowControl(
+            MeterRegistry meterRegistry,
+            @Value("${app.websocket.outbound.buffer-size-limit:524288}") int bufferSizeLimit,
+            @Value("${app.websocket.outbound.send-time-limit-ms:10000}") long sendTimeLimitMs
+    ) {
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        // Phát hiện lần gửi quá hạn chậm nhất khoảng nửa giới hạn (từ 100 ms đến 1 giây) sau khi hết hạn
+        this.checkIntervalMs = Math.max(100, Math.min(1000, sendTimeLimitMs / 2));
+
+        Gauge.builder("game.ws.outbound.frames", queuedFrames, AtomicLong::get)
+                .description("Tổng số frame đang chờ gửi của tất cả các phiên")
+                .register(meterRegistry);
+        Gauge.builder("game.ws.outbound.bytes", queuedBytes, AtomicLong::get)
+                .description("Tổng kích thước frame đang chờ gửi của tất cả các phiên")
+                .register(meterRegistry);
+        Gauge.builder("game.ws.outbound.sessions", queues, ConcurrentMap::size)
+                .description("Số phiên WebSocket có hàng đợi gửi")
+                .register(meterRegistry);
+        this.supersededFrames = Counter.builder("game.ws.outbound.dropped")
+                .tag("reason", "superseded")
+                .description("Số frame bị bỏ vì có frame mới hơn cùng destination")
+                .register(meterRegistry);
+        this.overflowFrames = Counter.builder("game.ws.outbound.dropped")
+                .tag("reason", "overflow")
+                .description("Số frame bị bỏ vì hàng đợi vượt giới hạn")
+                .register(meterRegistry);
+        this.terminatedSessions = Counter.builder("game.ws.outbound.terminated")
+                .description("Số phiên bị đóng vì gửi quá chậm")
+                .register(meterRegistry);
+        this.queueDepth = DistributionSummary.builder("game.ws.outbound.depth")
+                .description("Số frame trong hàng đợi của phiên khi thêm frame mới")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+
+        watchdog.newTimeout(this::checkSendTimes, checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Bọc handler WebSocket để mọi phiên mới đều gửi qua hàng đợi có giới hạn.
+     */
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                super.afterConnectionEstablished(open(session));
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                OutboundFrameQueue queue = queues.remove(session.getId());
+                if (queue != null) {
+                    queue.discard();
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    /**
+     * Tạo hàng đợi gửi cho phiên mới.
+     */
+    OutboundFrameQueue open(WebSocketSession session) {
+        OutboundFrameQueue queue = new OutboundFrameQueue(session, this);
+        queues.put(session.getId(), queue);
+        return queue;
+    }
+
+    /**
+     * Đóng các phiên có lần gửi đang diễn ra quá giới hạn thời gian.
+     */
+    private void checkSendTimes() {
+        long now = System.currentTimeMillis();
+        for (OutboundFrameQueue queue : queues.values()) {
+            queue.checkSendTime(now);
+        }
+        if (!stopped) {
+            watchdog.newTimeout(this::checkSendTimes, checkIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        log.info("Shutting down WebSocket outbound queues ({} sessions)", queues.size());
+        stopped = true;
+        watchdog.stop();
+        executor.shutdownNow();
+    }
+
+    public int bufferSizeLimit() {
+        return bufferSizeLimit;
+    }
+
+    public long sendTimeLimitMs() {
+        return sendTimeLimitMs;
+    }
+
+    void schedule(Runnable drain) {
+        executor.execute(drain);
+    }
+
+    void queued(int frames, long bytes) {
+        queuedFrames.addAndGet(frames);
+        queuedBytes.addAndGet(bytes);
+    }
+
+    void recordDepth(int depth) {
+        queueDepth.record(depth);
+    }
+
+    void superseded() {
+        supersededFrames.increment();
+    }
+
+    void overflowed() {
+        overflowFrames.increment();
+    }
+
+    void terminated() {
+        terminatedSessions.increment();
+    }
+}
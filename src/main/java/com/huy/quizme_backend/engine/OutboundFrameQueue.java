@@ -0,0 +1,273 @@
+package com.huy.quizme_backend.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hàng đợi gửi của một phiên WebSocket.
+ * <p>
+ * {@link #sendMessage} chỉ thêm frame vào hàng đợi rồi trả về ngay; frame được gửi tuần tự
+ * trên một virtual thread của phiên, nên client chậm chỉ làm chậm chính hàng đợi của nó.
+ * Frame STOMP gửi đến destination TIMER hoặc LEADERBOARD là frame "có thể thay thế":
+ * frame mới thay frame cũ đang chờ cùng destination, và khi hàng đợi vượt giới hạn byte thì
+ * các frame này bị bỏ trước. Nếu vẫn vượt giới hạn (hoặc một lần gửi kéo dài quá giới hạn
+ * thời gian) thì phiên bị đóng với {@link CloseStatus#SESSION_NOT_RELIABLE}. Thời gian gửi được kiểm tra
+ * khi có frame mới và định kỳ bởi {@link OutboundFlowControl}, nên phiên bị treo khi không còn frame
+ * mới cũng bị đóng.
+ */
+@Slf4j
+class OutboundFrameQueue extends WebSocketSessionDecorator {
+    // Chỉ cần đọc phần header của frame STOMP để lấy destination
+    private static final int HEADER_SCAN_LIMIT = 512;
+    private static final String DESTINATION_HEADER = "\ndestination:";
+
+    private final OutboundFlowControl control;
+    private final Deque<Frame> frames = new ArrayDeque<>();
+    // Frame có thể thay thế đang chờ, theo destination
+    private final Map<String, Frame> replaceable = new HashMap<>();
+    private final Sender sender;
+    private int depth;
+    private long bufferSize;
+    private volatile long sendStartTime;
+    private volatile boolean closed;
+
+    OutboundFrameQueue(WebSocketSession delegate, OutboundFlowControl control) {
+        super(delegate);
+        this.control = control;
+        this.sender = new Sender(control);
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) {
+        if (closed) {
+            return;
+        }
+
+        if (!enqueue(message)) {
+            terminate("buffer size limit " + control.bufferSizeLimit() + " exceeded");
+            return;
+        }
+
+        if (!checkSendTime(System.currentTimeMillis())) {
+            return;
+        }
+
+        sender.schedule();
+    }
+
+    /**
+     * Đóng phiên nếu lần gửi đang diễn ra đã kéo dài quá giới hạn thời gian.
+     *
+     * @return false nếu phiên đã bị đóng
+     */
+    boolean checkSendTime(long now) {
+        long start = sendStartTime;
+        if (start > 0 && now - start > control.sendTimeLimitMs()) {
+            terminate("send time limit " + control.sendTimeLimitMs() + " ms exceeded");
+        }
+        return !closed;
+    }
+
+    /**
+     * Bỏ toàn bộ frame đang chờ khi phiên đã đóng.
+     */
+    void discard() {
+        closed = true;
+        synchronized (frames) {
+            control.queued(-depth, -bufferSize);
+            frames.clear();
+            replaceable.clear();
+            depth = 0;
+            bufferSize = 0;
+        }
+    }
+
+    /**
+     * @return false nếu hàng đợi vẫn vượt giới hạn sau khi bỏ các frame có thể thay thế
+     */
+    private boolean enqueue(WebSocketMessage<?> message) {
+        Frame frame = new Frame(message, replaceableKey(message));
+        synchronized (frames) {
+            if (closed) {
+                return true;
+            }
+            if (frame.key != null) {
+                Frame previous = replaceable.put(frame.key, frame);
+                if (previous != null) {
+                    drop(previous);
+                    control.superseded();
+                }
+            }
+
+            frames.addLast(frame);
+            depth++;
+            bufferSize += frame.size;
+            control.queued(1, frame.size);
+            control.recordDepth(depth);
+
+            if (bufferSize > control.bufferSizeLimit()) {
+                // Bỏ các frame TIMER/LEADERBOARD đang chờ trước khi phải đóng phiên
+                for (Frame pending : frames) {
+                    if (pending.key != null && !pending.dropped) {
+                        replaceable.remove(pending.key, pending);
+                        drop(pending);
+                        control.overflowed();
+                    }
+                }
+            }
+            return bufferSize <= control.bufferSizeLimit();
+        }
+    }
+
+    private void drop(Frame frame) {
+        frame.dropped = true;
+        depth--;
+        bufferSize -= frame.size;
+        control.queued(-1, -frame.size);
+    }
+
+    private Frame poll() {
+        if (closed) {
+            return null;
+        }
+        synchronized (frames) {
+            Frame frame;
+            while ((frame = frames.pollFirst()) != null) {
+                if (frame.dropped) {
+                    continue;
+                }
+                if (frame.key != null) {
+                    replaceable.remove(frame.key, frame);
+                }
+                depth--;
+                bufferSize -= frame.size;
+                control.queued(-1, -frame.size);
+                return frame;
+            }
+            return null;
+        }
+    }
+
+    private void send(Frame frame) {
+        sendStartTime = System.currentTimeMillis();
+        try {
+            getDelegate().sendMessage(frame.message);
+        } catch (IOException | RuntimeException e) {
+            log.debug("Failed to send WebSocket frame to session {}: {}", getId(), e.getMessage());
+        } finally {
+            sendStartTime = 0;
+        }
+    }
+
+    private void terminate(String reason) {
+        // Có thể được gọi đồng thời từ thread gửi và từ lần kiểm tra định kỳ
+        synchronized (frames) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        control.terminated();
+        log.warn("Closing slow WebSocket session {}: {}", getId(), reason);
+        try {
+            getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            log.debug("Failed to close WebSocket session {}: {}", getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Destination của frame nếu frame có thể được thay thế bởi frame mới hơn, ngược lại null.
+     */
+    private static String replaceableKey(WebSocketMessage<?> message) {
+        String head;
+        if (message instanceof TextMessage text) {
+            String payload = text.getPayload();
+            head = payload.substring(0, Math.min(payload.length(), HEADER_SCAN_LIMIT));
+        } else if (message instanceof BinaryMessage binary) {
+            ByteBuffer payload = binary.getPayload().duplicate();
+            byte[] bytes = new byte[Math.min(payload.remaining(), HEADER_SCAN_LIMIT)];
+            payload.get(bytes);
+            head = new String(bytes, StandardCharsets.ISO_8859_1);
+        } else {
+            return null;
+        }
+
+        if (!head.startsWith("MESSAGE\n")) {
+            return null;
+        }
+        int start = head.indexOf(DESTINATION_HEADER);
+        int headerEnd = head.indexOf("\n\n");
+        if (start < 0 || (headerEnd >= 0 && start > headerEnd)) {
+            return null;
+        }
+        start += DESTINATION_HEADER.length();
+        int end = head.indexOf('\n', start);
+        if (end < 0) {
+            return null;
+        }
+
+        String destination = head.substring(start, end);
+        return destination.endsWith("/timer") || destination.endsWith("/leaderboard") ? destination : null;
+    }
+
+    /**
+     * Gửi tuần tự các frame đang chờ trên virtual thread của phiên.
+     */
+    private final class Sender extends Mailbox<Frame> {
+        private Sender(OutboundFlowControl control) {
+            super(control::schedule);
+        }
+
+        @Override
+        protected Frame poll() {
+            return OutboundFrameQueue.this.poll();
+        }
+
+        @Override
+        protected boolean isEmpty() {
+            if (closed) {
+                return true;
+            }
+            synchronized (frames) {
+                return depth == 0;
+            }
+        }
+
+        @Override
+        protected void process(Frame frame) {
+            send(frame);
+        }
+
+        @Override
+        public String toString() {
+            return "ws-outbound-" + getId();
+        }
+    }
+
+    private static final class Frame {
+        private final WebSocketMessage<?> message;
+        private final String key;
+        private final int size;
+        private boolean dropped;
+
+        private Frame(WebSocketMessage<?> message, String key) {
+            this.message = message;
+            this.key = key;
+            this.size = message.getPayloadLength();
+        }
+    }
+}
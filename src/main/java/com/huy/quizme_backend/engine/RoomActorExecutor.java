@@ -0,0 +1,110 @@
+package com.huy.quizme_backend.engine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Thực thi tuần tự các tác vụ của từng phòng chơi (mô hình actor).
+ * <p>
+ * Mỗi phòng có một hộp thư (mailbox) riêng; các tác vụ gửi vào cùng một phòng được chạy
+ * lần lượt theo thứ tự gửi, không bao giờ chạy song song với nhau. Hộp thư được xử lý trên
+ * virtual thread nên hàng nghìn phòng có thể chạy song song trên mọi core mà không cần khoá.
+ * Hộp thư rỗng được giải phóng ngay, nên phòng không còn hoạt động không tốn bộ nhớ.
+ */
+@Component
+@Slf4j
+public class RoomActorExecutor {
+    private final ExecutorService executor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("room-actor-", 0).factory());
+    private final ConcurrentMap<Long, RoomMailbox> mailboxes = new ConcurrentHashMap<>();
+    private final Counter taskCounter;
+    private final Counter failureCounter;
+
+    public RoomActorExecutor(MeterRegistry meterRegistry) {
+        this.taskCounter = Counter.builder("game.actor.tasks")
+                .description("Số tác vụ đã thực thi trên actor của phòng")
+                .register(meterRegistry);
+        this.failureCounter = Counter.builder("game.actor.failures")
+                .description("Số tác vụ của actor kết thúc bằng lỗi")
+                .register(meterRegistry);
+        Gauge.builder("game.actor.rooms", mailboxes, ConcurrentMap::size)
+                .description("Số phòng đang có tác vụ chờ hoặc đang chạy")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Gửi tác vụ vào hộp thư của phòng.
+     */
+    public void execute(Long roomId, Runnable task) {
+        // Thêm tác vụ trong compute để không bao giờ thêm vào hộp thư vừa bị giải phóng
+        RoomMailbox mailbox = mailboxes.compute(roomId, (id, existing) -> {
+            RoomMailbox target = existing != null ? existing : new RoomMailbox(id);
+            target.queue.add(task);
+            return target;
+        });
+        mailbox.schedule();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        log.info("Shutting down room actors ({} active rooms)", mailboxes.size());
+        executor.shutdownNow();
+    }
+
+    /**
+     * Hộp thư của một phòng.
+     */
+    private final class RoomMailbox extends Mailbox<Runnable> {
+        private final Long roomId;
+        private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+
+        private RoomMailbox(Long roomId) {
+            super(executor);
+            this.roomId = roomId;
+        }
+
+        @Override
+        protected Runnable poll() {
+            return queue.poll();
+        }
+
+        @Override
+        protected boolean isEmpty() {
+            return queue.isEmpty();
+        }
+
+        @Override
+        protected void process(Runnable task) {
+            taskCounter.increment();
+            try {
+                task.run();
+            } catch (Throwable t) {
+                failureCounter.increment();
+                log.error("Lỗi khi xử lý tác vụ của phòng {}: {}", roomId, t.getMessage(), t);
+            }
+        }
+
+        @Override
+        protected void onIdle() {
+            // Giải phóng hộp thư nếu vẫn rỗng và không có thread nào đang xử lý
+            mailboxes.computeIfPresent(roomId, (id, current) ->
+                    current == this && queue.isEmpty() && !isScheduled() ? null : current);
+        }
+
+        @Override
+        public String toString() {
+            return "room-" + roomId;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.huy.quizme_backend.engine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.broker.DefaultSubscriptionRegistry;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MultiValueMap;
+
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Broker STOMP trong tiến trình cho các destination {@code /topic}, thay cho simple broker.
+ * <p>
+ * Subscription được lưu trong {@link RoomSubscriptionRegistry}: destination
+ * {@code /topic/room/{roomId}/{sự kiện}} được tra trực tiếp theo (roomId, sự kiện), các destination
+ * khác dùng bảng đăng ký mặc định của Spring. Việc gửi một tin nhắn đến các subscriber (fan-out)
+ * chạy trên một trong các shard (mặc định bằng số core); mỗi phòng luôn thuộc cùng một shard nên
+ * tin nhắn của một phòng đến subscriber đúng thứ tự gửi, còn các phòng khác nhau được fan-out song song.
+ * Thread gửi tin nhắn (timer, actor của phòng) chỉ đưa tin nhắn vào shard rồi trả về ngay.
+ * <p>
+ * CONNECT, heartbeat và các kênh {@code /queue} riêng của người dùng vẫn do simple broker xử lý;
+ * broker này chỉ cần SUBSCRIBE, UNSUBSCRIBE, DISCONNECT và MESSAGE. Header {@code selector} không được hỗ trợ.
+ */
+@Slf4j
+public class RoomBrokerMessageHandler extends AbstractBrokerMessageHandler {
+    private final RoomSubscriptionRegistry subscriptionRegistry =
+            new RoomSubscriptionRegistry(new DefaultSubscriptionRegistry());
+    private final ExecutorService executor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("room-broker-", 0).factory());
+    private final Shard[] shards;
+    private final Timer fanoutTime;
+    private final Counter deliveries;
+
+    /**
+     * @param shardCount Số shard fan-out, 0 để dùng số core
+     */
+    public RoomBrokerMessageHandler(
+            SubscribableChannel clientInboundChannel,
+            MessageChannel clientOutboundChannel,
+            SubscribableChannel brokerChannel,
+            Collection<String> destinationPrefixes,
+            int shardCount,
+            MeterRegistry meterRegistry
+    ) {
+        super(clientInboundChannel, clientOutboundChannel, brokerChannel, destinationPrefixes);
+
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        this.shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard(i, meterRegistry);
+        }
+        this.fanoutTime = Timer.builder("game.broker.fanout")
+                .description("Thời gian gửi một tin nhắn đến tất cả subscriber")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.deliveries = Counter.builder("game.broker.deliveries")
+                .description("Số tin nhắn đã chuyển đến subscriber")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void startInternal() {
+        publishBrokerAvailableEvent();
+    }
+
+    @Override
+    protected void stopInternal() {
+        publishBrokerUnavailableEvent();
+        executor.shutdownNow();
+    }
+
+    @Override
+    protected void handleMessageInternal(Message<?> message) {
+        MessageHeaders headers = message.getHeaders();
+        SimpMessageType messageType = SimpMessageHeaderAccessor.getMessageType(headers);
+        if (messageType == null) {
+            return;
+        }
+
+        switch (messageType) {
+            case SUBSCRIBE -> subscriptionRegistry.registerSubscription(message);
+            case UNSUBSCRIBE -> subscriptionRegistry.unregisterSubscription(message);
+            case DISCONNECT -> {
+                String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+                if (sessionId != null) {
+                    subscriptionRegistry.unregisterAllSubscriptions(sessionId);
+                }
+            }
+            case MESSAGE -> {
+                String destination = SimpMessageHeaderAccessor.getDestination(headers);
+                if (destination != null) {
+                    shardOf(destination).enqueue(message);
+                }
+            }
+            default -> {
+                // CONNECT và heartbeat do simple broker trả lời
+            }
+        }
+    }
+
+    private Shard shardOf(String destination) {
+        Long roomId = RoomSubscriptionRegistry.roomIdOf(destination);
+        int key = roomId != null ? roomId.hashCode() : destination.hashCode();
+        return shards[Math.floorMod(key, shards.length)];
+    }
+
+    private void sendToSubscribers(Message<?> message) {
+        MultiValueMap<String, String> subscriptions = subscriptionRegistry.findSubscriptions(message);
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        Object payload = message.getPayload();
+        MessageHeaders headers = message.getHeaders();
+        int[] sent = new int[1];
+        subscriptions.forEach((sessionId, subscriptionIds) -> {
+            for (String subscriptionId : subscriptionIds) {
+                SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+                accessor.setSessionId(sessionId);
+                accessor.setSubscriptionId(subscriptionId);
+                accessor.copyHeadersIfAbsent(headers);
+                accessor.setLeaveMutable(true);
+                try {
+                    getClientOutboundChannelForSession(sessionId)
+                            .send(MessageBuilder.createMessage(payload, accessor.getMessageHeaders()));
+                    sent[0]++;
+                } catch (Throwable t) {
+                    log.error("Không thể gửi tin nhắn đến phiên {}: {}", sessionId, t.getMessage(), t);
+                }
+            }
+        });
+        deliveries.increment(sent[0]);
+        fanoutTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "RoomBrokerMessageHandler [" + shards.length + " shards, " + getDestinationPrefixes() + "]";
+    }
+
+    /**
+     * Hàng đợi fan-out của một nhóm phòng.
+     */
+    private final class Shard extends Mailbox<Message<?>> {
+        private final int index;
+        private final Queue<Message<?>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+
+        private Shard(int index, MeterRegistry meterRegistry) {
+            super(executor);
+            this.index = index;
+            Gauge.builder("game.broker.shard.depth", depth, AtomicInteger::get)
+                    .tag("shard", Integer.toString(index))
+                    .description("Số tin nhắn đang chờ fan-out trong shard")
+                    .register(meterRegistry);
+        }
+
+        private void enqueue(Message<?> message) {
+            depth.incrementAndGet();
+            queue.add(message);
+            schedule();
+        }
+
+        @Override
+        protected Message<?> poll() {
+            Message<?> message = queue.poll();
+            if (message != null) {
+                depth.decrementAndGet();
+            }
+            return message;
+        }
+
+        @Override
+        protected boolean isEmpty() {
+            return queue.isEmpty();
+        }
+
+        @Override
+        protected void process(Message<?> message) {
+            sendToSubscribers(message);
+        }
+
+        @Override
+        public String toString() {
+            return "room-broker-shard-" + index;
+        }
+    }
+}
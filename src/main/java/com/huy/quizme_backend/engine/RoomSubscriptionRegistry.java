@@ -0,0 +1,194 @@
+package com.huy.quizme_backend.engine;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.broker.AbstractSubscriptionRegistry;
+import org.springframework.messaging.simp.broker.SubscriptionRegistry;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Bảng đăng ký subscription của broker, phân vùng theo phòng chơi.
+ * <p>
+ * Các destination dạng {@code /topic/room/{roomId}/{sự kiện}} được lưu trực tiếp theo
+ * (roomId, sự kiện), nên tìm subscriber của một tin nhắn phòng chỉ là hai lần tra bảng băm,
+ * không phải so khớp destination với toàn bộ subscription như bảng đăng ký mặc định.
+ * Kết quả trả về là view trên bảng subscriber của destination, không cấp phát mới mỗi lần gửi.
+ * <p>
+ * Các destination khác (destination {@code /topic} ngoài phòng, destination dạng pattern)
+ * được chuyển cho bảng đăng ký {@code fallback}. Được dùng bởi {@link RoomBrokerMessageHandler}.
+ */
+public class RoomSubscriptionRegistry extends AbstractSubscriptionRegistry {
+    private static final String ROOM_TOPIC_PREFIX = "/topic/room/";
+    private static final MultiValueMap<String, String> NO_SUBSCRIBERS =
+            CollectionUtils.unmodifiableMultiValueMap(new LinkedMultiValueMap<>());
+
+    private final SubscriptionRegistry fallback;
+
+    // roomId -> sự kiện -> sessionId -> các subscriptionId
+    private final ConcurrentMap<Long, ConcurrentMap<String, RoomDestination>> rooms = new ConcurrentHashMap<>();
+    // sessionId -> subscriptionId -> destination phòng đã đăng ký
+    private final ConcurrentMap<String, ConcurrentMap<String, RoomDestination>> sessions = new ConcurrentHashMap<>();
+    // sessionId -> các subscriptionId đăng ký destination phòng bằng pattern (lưu ở bảng mặc định)
+    private final ConcurrentMap<String, Set<String>> roomPatternSubscriptions = new ConcurrentHashMap<>();
+
+    public RoomSubscriptionRegistry(SubscriptionRegistry fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    protected void addSubscriptionInternal(String sessionId, String subscriptionId, String destination, Message<?> message) {
+        RoomDestination roomDestination = subscribe(destination, sessionId, subscriptionId);
+        if (roomDestination == null) {
+            if (destination.startsWith(ROOM_TOPIC_PREFIX)) {
+                roomPatternSubscriptions.computeIfAbsent(sessionId, id -> ConcurrentHashMap.newKeySet())
+                        .add(subscriptionId);
+            }
+            fallback.registerSubscription(message);
+            return;
+        }
+
+        sessions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>())
+                .put(subscriptionId, roomDestination);
+    }
+
+    @Override
+    protected void removeSubscriptionInternal(String sessionId, String subscriptionId, Message<?> message) {
+        ConcurrentMap<String, RoomDestination> subscriptions = sessions.get(sessionId);
+        RoomDestination roomDestination = subscriptions != null ? subscriptions.remove(subscriptionId) : null;
+        if (roomDestination == null) {
+            roomPatternSubscriptions.computeIfPresent(sessionId, (id, subscriptionIds) -> {
+                subscriptionIds.remove(subscriptionId);
+                return subscriptionIds.isEmpty() ? null : subscriptionIds;
+            });
+            fallback.unregisterSubscription(message);
+            return;
+        }
+        remove(roomDestination, sessionId, subscriptionId);
+    }
+
+    @Override
+    public void unregisterAllSubscriptions(String sessionId) {
+        ConcurrentMap<String, RoomDestination> subscriptions = sessions.remove(sessionId);
+        if (subscriptions != null) {
+            subscriptions.forEach((subscriptionId, roomDestination) ->
+                    remove(roomDestination, sessionId, subscriptionId));
+        }
+        roomPatternSubscriptions.remove(sessionId);
+        fallback.unregisterAllSubscriptions(sessionId);
+    }
+
+    @Override
+    protected MultiValueMap<String, String> findSubscriptionsInternal(String destination, Message<?> message) {
+        int eventStart = eventStart(destination);
+        if (eventStart < 0) {
+            return fallback.findSubscriptions(message);
+        }
+
+        MultiValueMap<String, String> subscribers = findRoomSubscribers(destination, eventStart);
+        if (roomPatternSubscriptions.isEmpty()) {
+            return subscribers;
+        }
+
+        // Hiếm gặp: có client đăng ký destination phòng bằng pattern
+        MultiValueMap<String, String> patternSubscribers = fallback.findSubscriptions(message);
+        if (patternSubscribers.isEmpty()) {
+            return subscribers;
+        }
+        MultiValueMap<String, String> merged = new LinkedMultiValueMap<>(subscribers);
+        patternSubscribers.forEach(merged::addAll);
+        return merged;
+    }
+
+    private MultiValueMap<String, String> findRoomSubscribers(String destination, int eventStart) {
+        ConcurrentMap<String, RoomDestination> events = rooms.get(roomIdOf(destination, eventStart));
+        RoomDestination roomDestination = events != null ? events.get(destination.substring(eventStart)) : null;
+        return roomDestination != null ? roomDestination.view : NO_SUBSCRIBERS;
+    }
+
+    private void remove(RoomDestination roomDestination, String sessionId, String subscriptionId) {
+        roomDestination.subscribers.computeIfPresent(sessionId, (id, subscriptionIds) -> {
+            subscriptionIds.remove(subscriptionId);
+            return subscriptionIds.isEmpty() ? null : subscriptionIds;
+        });
+
+        // Giải phóng destination và phòng khi không còn subscriber
+        rooms.computeIfPresent(roomDestination.roomId, (id, events) -> {
+            events.computeIfPresent(roomDestination.event, (event, current) ->
+                    current.subscribers.isEmpty() ? null : current);
+            return events.isEmpty() ? null : events;
+        });
+    }
+
+    /**
+     * Thêm subscription vào destination phòng; null nếu không phải destination phòng cụ thể.
+     */
+    private RoomDestination subscribe(String destination, String sessionId, String subscriptionId) {
+        int eventStart = eventStart(destination);
+        if (eventStart < 0 || destination.indexOf('*') >= 0 || destination.indexOf('{') >= 0) {
+            return null;
+        }
+
+        String event = destination.substring(eventStart);
+        // Thêm trong compute để không gắn subscription vào destination vừa bị giải phóng
+        RoomDestination[] subscribed = new RoomDestination[1];
+        rooms.compute(roomIdOf(destination, eventStart), (id, events) -> {
+            ConcurrentMap<String, RoomDestination> target = events != null ? events : new ConcurrentHashMap<>();
+            RoomDestination roomDestination = target.computeIfAbsent(event, e -> new RoomDestination(id, e));
+            roomDestination.subscribers
+                    .computeIfAbsent(sessionId, s -> new CopyOnWriteArrayList<>())
+                    .add(subscriptionId);
+            subscribed[0] = roomDestination;
+            return target;
+        });
+        return subscribed[0];
+    }
+
+    /**
+     * Vị trí bắt đầu phần sự kiện sau {@code /topic/room/{roomId}}, hoặc -1 nếu không phải destination phòng.
+     */
+    private static int eventStart(String destination) {
+        if (destination == null || !destination.startsWith(ROOM_TOPIC_PREFIX)) {
+            return -1;
+        }
+
+        int start = ROOM_TOPIC_PREFIX.length();
+        int end = start;
+        while (end < destination.length() && Character.isDigit(destination.charAt(end))) {
+            end++;
+        }
+        return end == start || end - start > 18 ? -1 : end;
+    }
+
+    /**
+     * ID phòng của destination {@code /topic/room/{roomId}/...}, null nếu không phải destination phòng.
+     */
+    static Long roomIdOf(String destination) {
+        int eventStart = eventStart(destination);
+        return eventStart >= 0 ? roomIdOf(destination, eventStart) : null;
+    }
+
+    private static Long roomIdOf(String destination, int eventStart) {
+        return Long.parseLong(destination, ROOM_TOPIC_PREFIX.length(), eventStart, 10);
+    }
+
+    private static final class RoomDestination {
+        private final Long roomId;
+        private final String event;
+        private final ConcurrentMap<String, List<String>> subscribers = new ConcurrentHashMap<>();
+        // View chỉ đọc trả về cho broker, phản ánh trực tiếp bảng subscribers
+        private final MultiValueMap<String, String> view = CollectionUtils.unmodifiableMultiValueMap(
+                CollectionUtils.toMultiValueMap(subscribers));
+
+        private RoomDestination(Long roomId, String event) {
+            this.roomId = roomId;
+            this.event = event;
+        }
+    }
+}
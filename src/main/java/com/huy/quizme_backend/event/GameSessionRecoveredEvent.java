@@ -0,0 +1,17 @@
+package com.huy.quizme_backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Sự kiện phát ra khi một phiên chơi được khôi phục từ journal lúc khởi động.
+ */
+@Getter
+@AllArgsConstructor
+public class GameSessionRecoveredEvent {
+    private final Long roomId;
+    // Các người chơi đang được coi là mất kết nối, chờ kết nối lại
+    private final List<Long> userIds;
+}
@@ -0,0 +1,15 @@
+package com.huy.quizme_backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Sự kiện phát ra khi người dùng thay đổi hoặc xoá ảnh đại diện.
+ */
+@Getter
+@AllArgsConstructor
+public class UserAvatarChangedEvent {
+    private final Long userId;
+    // Tên file ảnh đại diện mới, null nếu đã xoá
+    private final String profileImage;
+}
@@ -0,0 +1,14 @@
+package com.huy.quizme_backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Sự kiện phát ra khi thông tin dùng để xác thực người dùng thay đổi
+ * (vai trò, trạng thái hoạt động, thông tin cá nhân, mật khẩu) hoặc người dùng bị xoá.
+ */
+@Getter
+@AllArgsConstructor
+public class UserChangedEvent {
+    private final Long userId;
+}
@@ -1,6 +1,7 @@
 package com.huy.quizme_backend.exception;
 
 import com.huy.quizme_backend.dto.response.ApiResponse;
+import com.huy.quizme_backend.security.PasswordHashingRejectedException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -21,6 +22,14 @@ public class GlobalExceptionHandler {
                 .body(response);
     }
 
+    // Pool mã hoá mật khẩu đã đầy (đăng nhập, đăng ký, đổi mật khẩu): báo client thử lại sau
+    @ExceptionHandler(PasswordHashingRejectedException.class)
+    public ResponseEntity<ApiResponse<String>> handlePasswordHashingRejected(PasswordHashingRejectedException ex) {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(ApiResponse.error(ex.getMessage()));
+    }
+
     // Bắt tất cả các RuntimeException khác
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<ApiResponse<String>> handleYourCustomException(RuntimeException ex) {
@@ -1,6 +1,6 @@
 package com.huy.quizme_backend.listener;
 
-import com.huy.quizme_backend.enity.User;
+import com.huy.quizme_backend.security.UserPrincipal;
 import com.huy.quizme_backend.service.WebSocketSessionRegistry;
 
 import lombok.RequiredArgsConstructor;
@@ -51,8 +51,8 @@ public class WebSocketEventListener {
         // Nếu người dùng đã đăng nhập, lấy thông tin từ authentication
         if (accessor.getUser() instanceof UsernamePasswordAuthenticationToken) {
             UsernamePasswordAuthenticationToken auth = (UsernamePasswordAuthenticationToken) accessor.getUser();
-            if (auth.getPrincipal() instanceof User) {
-                User user = (User) auth.getPrincipal();
+            if (auth.getPrincipal() instanceof UserPrincipal) {
+                UserPrincipal user = (UserPrincipal) auth.getPrincipal();
                 userId = user.getId();
                 log.info("Authenticated user connected: {}", user.getUsername());
             }
@@ -8,6 +8,7 @@ import java.util.Optional;
 
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
     Optional<RefreshToken> findByToken(String token);
+    Optional<RefreshToken> findByUser(User user);
     boolean existsByToken(String token);
 
     void deleteByToken(String token);
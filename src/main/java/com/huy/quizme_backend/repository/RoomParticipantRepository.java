@@ -18,6 +18,10 @@ public interface RoomParticipantRepository extends JpaRepository<RoomParticipant
 
     List<RoomParticipant> findByRoomId(Long roomId);
 
+    // Lấy người tham gia kèm thông tin người dùng trong một truy vấn
+    @Query("SELECT p FROM RoomParticipant p LEFT JOIN FETCH p.user WHERE p.room.id = :roomId")
+    List<RoomParticipant> findWithUserByRoomId(@Param("roomId") Long roomId);
+
     List<RoomParticipant> findByRoomIdOrderByScoreDesc(Long roomId);
 
     // Tìm người tham gia cụ thể
@@ -27,6 +27,20 @@ public interface UserRepository extends JpaRepository<User, Long> {
     // Kiểm tra email đã tồn tại chưa
     Boolean existsByEmail(String email);
 
+    // Kiểm tra username và email đã tồn tại chưa trong một truy vấn
+    @Query("SELECT COUNT(CASE WHEN u.username = ?1 THEN 1 END) AS usernameCount, " +
+            "COUNT(CASE WHEN u.email = ?2 THEN 1 END) AS emailCount " +
+            "FROM User u " +
+            "WHERE u.username = ?1 OR u.email = ?2")
+    UsernameEmailUsage countByUsernameOrEmail(String username, String email);
+
+    // Số người dùng đang dùng username và email
+    interface UsernameEmailUsage {
+        long getUsernameCount();
+
+        long getEmailCount();
+    }
+
     // Lấy Top người dùng có tổng số quiz được chơi nhiều nhất
     @Query("SELECT u " +
             "FROM User u " +
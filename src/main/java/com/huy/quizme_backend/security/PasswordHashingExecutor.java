@@ -0,0 +1,112 @@
+package com.huy.quizme_backend.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Thread pool riêng, có giới hạn, để mã hoá và kiểm tra mật khẩu.
+ * <p>
+ * Mã hoá mật khẩu tốn nhiều CPU; khi nhiều người đăng nhập cùng lúc (cả lớp vào phòng chơi),
+ * giới hạn số thread mã hoá giúp timer game và luồng xử lý STOMP vẫn còn CPU. Khi hàng đợi đầy,
+ * yêu cầu bị từ chối ngay với 503 thay vì xếp hàng không giới hạn.
+ */
+@Component
+@Slf4j
+public class PasswordHashingExecutor {
+    private final ThreadPoolExecutor executor;
+    private final Timer queueTime;
+    private final Timer hashTime;
+    private final Counter rejected;
+
+    public PasswordHashingExecutor(
+            MeterRegistry meterRegistry,
+            @Value("${app.security.password-hashing.threads:0}") int threads,
+            @Value("${app.security.password-hashing.queue-capacity:200}") int queueCapacity
+    ) {
+        int count = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                count, count, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadIndex.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+
+        Gauge.builder("auth.password.hashing.queue", executor, e -> e.getQueue().size())
+                .description("Số yêu cầu mã hoá mật khẩu đang chờ")
+                .register(meterRegistry);
+        this.queueTime = Timer.builder("auth.password.hashing.queue-time")
+                .description("Thời gian chờ trong hàng đợi trước khi mã hoá mật khẩu")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.hashTime = Timer.builder("auth.password.hashing.duration")
+                .description("Thời gian mã hoá hoặc kiểm tra một mật khẩu")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("auth.password.hashing.rejected")
+                .description("Số yêu cầu bị từ chối vì hàng đợi mã hoá mật khẩu đã đầy")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Chạy tác vụ mã hoá trên pool và chờ kết quả.
+     *
+     * @throws PasswordHashingRejectedException nếu hàng đợi đã đầy (503)
+     */
+    public <T> T execute(Supplier<T> task) {
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                queueTime.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+                try {
+                    return task.get();
+                } finally {
+                    hashTime.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.warn("Password hashing queue is full, rejecting request");
+            throw new PasswordHashingRejectedException("Server is busy, please try again later");
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingRejectedException("Request was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
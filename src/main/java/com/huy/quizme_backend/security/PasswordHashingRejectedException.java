@@ -0,0 +1,15 @@
+package com.huy.quizme_backend.security;
+
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+
+/**
+ * Yêu cầu mã hoá mật khẩu bị từ chối vì {@link PasswordHashingExecutor} đã đầy, trả về 503.
+ * <p>
+ * Là {@link InternalAuthenticationServiceException} để DaoAuthenticationProvider và ProviderManager
+ * ném lại nguyên vẹn thay vì bọc thành lỗi xác thực khác (401/500) hay thử provider tiếp theo.
+ */
+public class PasswordHashingRejectedException extends InternalAuthenticationServiceException {
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,55 @@
+package com.huy.quizme_backend.security;
+
+import com.huy.quizme_backend.enity.User;
+import com.huy.quizme_backend.enity.enums.Role;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Principal của request đã xác thực bằng JWT: bản chụp bất biến (ID, username, vai trò,
+ * trạng thái hoạt động) của người dùng, không phải entity JPA.
+ * <p>
+ * Được chia sẻ giữa các request qua {@link UserPrincipalCache}. Service cần entity {@link User}
+ * thì tải lại theo {@link #getId()}.
+ */
+@Getter
+public final class UserPrincipal implements UserDetails {
+    private final Long id;
+    private final String username;
+    private final Role role;
+    private final boolean enabled;
+    private final List<GrantedAuthority> authorities;
+
+    private UserPrincipal(Long id, String username, Role role, boolean enabled) {
+        this.id = id;
+        this.username = username;
+        this.role = role;
+        this.enabled = enabled;
+        this.authorities = List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+
+    public static UserPrincipal from(User user) {
+        return new UserPrincipal(user.getId(), user.getUsername(), user.getRole(), user.isEnabled());
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        // Không giữ mật khẩu; principal chỉ được tạo từ token đã xác thực
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "UserPrincipal[id=" + id + ", username=" + username + ", role=" + role + "]";
+    }
+}
@@ -0,0 +1,100 @@
+package com.huy.quizme_backend.security;
+
+import com.huy.quizme_backend.event.UserAvatarChangedEvent;
+import com.huy.quizme_backend.event.UserChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Bộ nhớ đệm principal theo ID người dùng, dùng khi dựng principal từ JWT.
+ * Chỉ lưu {@link UserPrincipal} bất biến, không lưu entity JPA dùng chung giữa các request.
+ * <p>
+ * Mỗi mục hết hạn sau một khoảng thời gian cố định và bị xoá ngay khi {@code UserService}
+ * thay đổi người dùng, nên vai trò và trạng thái khoá tài khoản có hiệu lực ở request kế tiếp.
+ * Khi đầy, các mục đã hết hạn bị xoá trước, sau đó đến các mục bất kỳ.
+ */
+@Component
+@Slf4j
+public class UserPrincipalCache {
+    private final ConcurrentMap<Long, Entry> users = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long ttlMillis;
+
+    public UserPrincipalCache(
+            @Value("${app.security.user-cache.max-size:10000}") int maxSize,
+            @Value("${app.security.user-cache.ttl-seconds:300}") long ttlSeconds
+    ) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    /**
+     * @return principal đã lưu, hoặc null nếu chưa có hoặc đã hết hạn
+     */
+    public UserPrincipal get(Long userId) {
+        Entry entry = users.get(userId);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            users.remove(userId, entry);
+            return null;
+        }
+        return entry.principal;
+    }
+
+    public void put(UserPrincipal principal) {
+        if (maxSize <= 0 || principal.getId() == null) {
+            return;
+        }
+        if (users.size() >= maxSize) {
+            evict();
+        }
+        users.put(principal.getId(), new Entry(principal, System.currentTimeMillis() + ttlMillis));
+    }
+
+    public void invalidate(Long userId) {
+        users.remove(userId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        invalidate(event.getUserId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserAvatarChanged(UserAvatarChangedEvent event) {
+        invalidate(event.getUserId());
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        users.values().removeIf(entry -> entry.expiresAt < now);
+
+        // Vẫn đầy: bỏ bớt các mục bất kỳ để giữ kích thước dưới giới hạn
+        Iterator<Map.Entry<Long, Entry>> iterator = users.entrySet().iterator();
+        int excess = users.size() - maxSize + 1;
+        while (excess-- > 0 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+        log.debug("Evicted user cache entries, {} remaining", users.size());
+    }
+
+    private static final class Entry {
+        private final UserPrincipal principal;
+        private final long expiresAt;
+
+        private Entry(UserPrincipal principal, long expiresAt) {
+            this.principal = principal;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package com.huy.quizme_backend.security.jwt;
 
-import com.huy.quizme_backend.security.UserDetailsServiceImpl;
+import com.huy.quizme_backend.security.UserPrincipal;
 import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -11,7 +11,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
@@ -24,10 +23,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
     @Autowired
-    private JwtTokenProvider jwtTokenProvider;
-
-    @Autowired
-    private UserDetailsServiceImpl userDetailsService;
+    private JwtPrincipalResolver jwtPrincipalResolver;
 
     @Override
     protected void doFilterInternal(
@@ -41,14 +37,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             // Lấy token từ request
             String token = resolveToken(request);
 
-            // Kiểm tra xem JWT có hợp lệ không
-            if (StringUtils.hasText(token) && jwtTokenProvider.validateToken(token)) {
-                // Lấy tên người dùng từ token
-                String username = jwtTokenProvider.getUsernameFromJWT(token);
-
-                // Tạo đối tượng Authentication từ tên người dùng
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            // Xác thực JWT và lấy người dùng từ claims (qua cache)
+            UserPrincipal userDetails = StringUtils.hasText(token) ? jwtPrincipalResolver.resolve(token) : null;
 
+            if (userDetails != null) {
                 // Tạo đối tượng Authentication và lưu vào SecurityContext
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                         userDetails,
@@ -0,0 +1,58 @@
+package com.huy.quizme_backend.security.jwt;
+
+import com.huy.quizme_backend.enity.User;
+import com.huy.quizme_backend.security.UserDetailsServiceImpl;
+import com.huy.quizme_backend.security.UserPrincipal;
+import com.huy.quizme_backend.security.UserPrincipalCache;
+import io.jsonwebtoken.Claims;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Dựng principal từ JWT cho cả REST ({@link JwtAuthenticationFilter}) và STOMP CONNECT.
+ * <p>
+ * Token chỉ được phân tích và xác thực chữ ký một lần. ID người dùng lấy từ claim {@code uid}
+ * để tra {@link UserPrincipalCache}; chỉ khi cache chưa có mới truy vấn database.
+ * Vai trò và trạng thái hoạt động lấy từ principal trong cache (bị xoá khi người dùng thay đổi),
+ * không lấy từ token, nên thay đổi vai trò có hiệu lực ngay ở request kế tiếp.
+ * Token cũ chưa có claim này vẫn được xác thực theo username như trước.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class JwtPrincipalResolver {
+    private final JwtTokenProvider jwtTokenProvider;
+    private final UserDetailsServiceImpl userDetailsService;
+    private final UserPrincipalCache userCache;
+
+    /**
+     * @param token JWT token
+     * @return principal của token, hoặc null nếu token không hợp lệ hoặc tài khoản đã bị khoá/xoá
+     */
+    public UserPrincipal resolve(String token) {
+        Claims claims = jwtTokenProvider.parseVerifiedClaims(token);
+        if (claims == null) {
+            return null;
+        }
+
+        Long userId = jwtTokenProvider.getUserIdFromClaims(claims);
+        UserPrincipal principal = userId != null ? userCache.get(userId) : null;
+        if (principal == null) {
+            try {
+                User user = userId != null
+                        ? (User) userDetailsService.loadUserById(userId)
+                        : (User) userDetailsService.loadUserByUsername(claims.getSubject());
+                principal = UserPrincipal.from(user);
+            } catch (UsernameNotFoundException e) {
+                log.warn("JWT user not found: {}", e.getMessage());
+                return null;
+            }
+            userCache.put(principal);
+        }
+
+        // Tài khoản bị khoá không được xác thực dù token còn hạn
+        return principal.isEnabled() ? principal : null;
+    }
+}
@@ -2,9 +2,11 @@ package com.huy.quizme_backend.security.jwt;
 
 import com.huy.quizme_backend.enity.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -12,7 +14,11 @@ import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
 import java.util.UUID;
 
@@ -29,70 +35,88 @@ public class JwtTokenProvider {
     @Value("${jwt.refresh-expiration-ms}")
     private long jwtRefreshExpirationInMs; // Thời gian hết hạn của refresh token (ms)
 
-    // Tạo SecretKey từ chuỗi base64 secret
-    private SecretKey getSecretKey() {
+    // Claim chứa ID người dùng
+    public static final String USER_ID_CLAIM = "uid";
+
+    @Value("${jwt.verified-cache-size:10000}")
+    private int verifiedCacheSize; // Số token đã xác thực được lưu lại
+
+    // SecretKey và parser được tạo một lần từ secret
+    private SecretKey secretKey;
+    private JwtParser jwtParser;
+    private VerifiedTokenCache verifiedTokens;
+
+    @PostConstruct
+    void init() {
         byte[] keyBytes = Decoders.BASE64.decode(this.jwtSecret);
-        return Keys.hmacShaKeyFor(keyBytes);
+        this.secretKey = Keys.hmacShaKeyFor(keyBytes);
+        this.jwtParser = Jwts.parser().verifyWith(secretKey).build();
+        this.verifiedTokens = new VerifiedTokenCache(verifiedCacheSize);
     }
 
     /**
-     * Tạo JWT token với subject, thời gian phát hành và thời gian hết hạn
+     * Mã băm SHA-256 của token, dùng làm khoá cho các bộ nhớ đệm thay vì lưu nguyên token
+     */
+    public static String hashToken(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Tạo JWT token với subject, ID người dùng, thời gian phát hành và thời gian hết hạn
      *
-     * @param subject          Tên người dùng
+     * @param user             Người dùng
      * @param expirationMillis Thời gian hết hạn (ms)
      * @return JWT token
      */
-    private String buildToken(String subject, long expirationMillis) {
+    private String buildToken(User user, long expirationMillis) {
         Instant now = Instant.now();
         Date issuedAt = Date.from(now);
         Date expirationDate = Date.from(now.plusMillis(expirationMillis));
 
         return Jwts.builder()
-                .id(UUID.randomUUID().toString()) // Đặt ID là tên người dùng
-                .subject(subject) // Đặt tên người dùng làm subject
+                .id(UUID.randomUUID().toString()) // Đặt ID ngẫu nhiên cho token
+                .subject(user.getUsername()) // Đặt tên người dùng làm subject
+                .claim(USER_ID_CLAIM, user.getId()) // ID người dùng, tránh phải tra cứu theo username
                 .issuedAt(issuedAt) // Đặt thời gian phát hành
                 .expiration(expirationDate) // Đặt thời gian hết hạn
-                .signWith(getSecretKey(), Jwts.SIG.HS512) // Ký token bằng secret key
+                .signWith(secretKey, Jwts.SIG.HS512) // Ký token bằng secret key
                 .compact(); // Tạo token
     }
 
-    // Lấy claims từ JWT token
+    // Lấy claims từ JWT token, token đã xác thực trước đó không cần phân tích lại
     private Claims getClaimsFromToken(String token) {
-        // Phân tích token và lấy claims
-        return Jwts.parser()
-                .verifyWith(getSecretKey()) // Đặt secret key để xác thực
-                .build()
-                .parseSignedClaims(token)
-                .getPayload(); // Trả về claims
+        String tokenHash = hashToken(token);
+        Claims claims = verifiedTokens.get(tokenHash);
+        if (claims == null) {
+            // Phân tích token và lấy claims
+            claims = jwtParser.parseSignedClaims(token).getPayload();
+            verifiedTokens.put(tokenHash, claims);
+        }
+        return claims;
     }
 
     // Tạo access token từ Authentication
     public String generateAccessToken(Authentication authentication) {
-        // Lấy username từ Authentication
-        String username = ((User) authentication.getPrincipal()).getUsername();
-
         // Tạo token
-        return buildToken(username, jwtRefreshExpirationInMs);
+        return buildToken((User) authentication.getPrincipal(), jwtRefreshExpirationInMs);
     }
 
     // Tạo access token từ user
     public String generateAccessToken(User user) {
-        // Lấy username từ user
-        String username = user.getUsername();
-
         // Tạo token
-        return buildToken(username, jwtExpirationInMs);
+        return buildToken(user, jwtExpirationInMs);
     }
 
     // Tạo refresh token từ Authentication
     public String generateRefreshToken(Authentication authentication) {
-        // Lấy username từ Authentication
-        String username = ((User) authentication.getPrincipal()).getUsername();
-
-        System.out.println("Username: " + username);
-
         // Tạo token
-        return buildToken(username, jwtRefreshExpirationInMs);
+        return buildToken((User) authentication.getPrincipal(), jwtRefreshExpirationInMs);
     }
 
     // Lấy username từ JWT token
@@ -114,15 +138,27 @@ public class JwtTokenProvider {
         return getClaimsFromToken(token).getId();
     }
 
+    // Lấy ID người dùng từ claims, null nếu token được phát hành trước khi có claim này
+    public Long getUserIdFromClaims(Claims claims) {
+        Object userId = claims.get(USER_ID_CLAIM);
+        return userId instanceof Number number ? number.longValue() : null;
+    }
+
     // Xác thực JWT token
     public boolean validateToken(String token) {
-        try {
-            // Kiểm tra tính hợp lệ của token
-            Jwts.parser().verifyWith(getSecretKey()) // Xác thực token bằng secret key
-                    .build().parseSignedClaims(token); // Phân tích claims từ token
+        return parseVerifiedClaims(token) != null;
+    }
 
-            // Token hợp lệ
-            return true;
+    /**
+     * Xác thực JWT token và trả về claims trong một lần phân tích
+     *
+     * @param token JWT token
+     * @return Claims đã xác thực, hoặc null nếu token không hợp lệ
+     */
+    public Claims parseVerifiedClaims(String token) {
+        try {
+            // Kiểm tra tính hợp lệ của token và lấy claims
+            return getClaimsFromToken(token);
 
         } catch (io.jsonwebtoken.ExpiredJwtException e) {
             logger.error("JWT token is expired: {}", e.getMessage());
@@ -137,6 +173,6 @@ public class JwtTokenProvider {
             logger.error("Invalid JWT token: {}", e.getMessage());
         }
         // Token không hợp lệ
-        return false;
+        return null;
     }
 }
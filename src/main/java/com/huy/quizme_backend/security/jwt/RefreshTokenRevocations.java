@@ -0,0 +1,84 @@
+package com.huy.quizme_backend.security.jwt;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Tập refresh token đã bị thu hồi (đăng xuất hoặc bị thay bằng token mới khi đăng nhập lại),
+ * theo mã băm của token, giữ đến khi token hết hạn.
+ * <p>
+ * Dùng để từ chối refresh token đã thu hồi mà không cần truy vấn database. Database vẫn là
+ * nguồn dữ liệu chính: token không có trong tập này vẫn được kiểm tra bằng {@code RefreshTokenRepository},
+ * nên khi tập đầy có thể bỏ bớt mục mà không làm token đã thu hồi dùng lại được.
+ */
+@Component
+public class RefreshTokenRevocations {
+    // Mã băm token -> thời điểm hết hạn (ms)
+    private final ConcurrentMap<String, Long> revoked = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    public RefreshTokenRevocations(@Value("${app.security.revoked-refresh-tokens.max-size:100000}") int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public void revoke(String token, Instant expiresAt) {
+        if (maxSize <= 0 || token == null || expiresAt == null || expiresAt.isBefore(Instant.now())) {
+            return;
+        }
+        if (revoked.size() >= maxSize) {
+            evict();
+        }
+        revoked.put(JwtTokenProvider.hashToken(token), expiresAt.toEpochMilli());
+    }
+
+    /**
+     * Thu hồi token sau khi transaction hiện tại commit (việc xoá token trong database đã có hiệu lực);
+     * nếu transaction rollback thì token vẫn dùng được. Không có transaction thì thu hồi ngay.
+     */
+    public void revokeAfterCommit(String token, Instant expiresAt) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            revoke(token, expiresAt);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                revoke(token, expiresAt);
+            }
+        });
+    }
+
+    public boolean isRevoked(String token) {
+        String tokenHash = JwtTokenProvider.hashToken(token);
+        Long expiresAt = revoked.get(tokenHash);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (expiresAt <= System.currentTimeMillis()) {
+            // Token đã hết hạn, sẽ bị từ chối theo thời hạn
+            revoked.remove(tokenHash, expiresAt);
+            return false;
+        }
+        return true;
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+
+        // Vẫn đầy: bỏ bớt các mục bất kỳ, database vẫn từ chối các token đó
+        Iterator<String> iterator = revoked.keySet().iterator();
+        int excess = revoked.size() - maxSize + 1;
+        while (excess-- > 0 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+}
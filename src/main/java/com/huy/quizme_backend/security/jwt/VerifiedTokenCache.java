@@ -0,0 +1,71 @@
+package com.huy.quizme_backend.security.jwt;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Bộ nhớ đệm claims của các JWT đã xác thực chữ ký, theo mã băm của token.
+ * <p>
+ * Mỗi mục hết hạn cùng lúc với token, nên token hết hạn luôn được phân tích lại
+ * và bị từ chối như bình thường. Khi đầy, các mục đã hết hạn bị xoá trước, sau đó đến các mục bất kỳ.
+ */
+class VerifiedTokenCache {
+    private final ConcurrentMap<String, Entry> tokens = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    VerifiedTokenCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return claims đã xác thực, hoặc null nếu chưa có hoặc token đã hết hạn
+     */
+    Claims get(String tokenHash) {
+        Entry entry = tokens.get(tokenHash);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            tokens.remove(tokenHash, entry);
+            return null;
+        }
+        return entry.claims;
+    }
+
+    void put(String tokenHash, Claims claims) {
+        if (maxSize <= 0 || claims.getExpiration() == null) {
+            return;
+        }
+        if (tokens.size() >= maxSize) {
+            evict();
+        }
+        tokens.put(tokenHash, new Entry(claims, claims.getExpiration().getTime()));
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        tokens.values().removeIf(entry -> entry.expiresAt <= now);
+
+        // Vẫn đầy: bỏ bớt các mục bất kỳ để giữ kích thước dưới giới hạn
+        Iterator<Map.Entry<String, Entry>> iterator = tokens.entrySet().iterator();
+        int excess = tokens.size() - maxSize + 1;
+        while (excess-- > 0 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static final class Entry {
+        private final Claims claims;
+        private final long expiresAt;
+
+        private Entry(Claims claims, long expiresAt) {
+            this.claims = claims;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -12,6 +12,7 @@ import com.huy.quizme_backend.repository.RefreshTokenRepository;
 import com.huy.quizme_backend.repository.UserProfileRepository;
 import com.huy.quizme_backend.repository.UserRepository;
 import com.huy.quizme_backend.security.jwt.JwtTokenProvider;
+import com.huy.quizme_backend.security.jwt.RefreshTokenRevocations;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -34,6 +35,7 @@ public class AuthService {
     private final RefreshTokenRepository refreshTokenRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider tokenProvider;
+    private final RefreshTokenRevocations refreshTokenRevocations;
     private final LocalStorageService localStorageService;
 
     // Tạo JWT access token và refresh token
@@ -82,8 +84,11 @@ public class AuthService {
                 .revoked(false)
                 .build();
 
-        // Xóa refresh token cũ nếu có
-        refreshTokenRepository.deleteByUser(user);
+        // Thu hồi và xóa refresh token cũ nếu có
+        refreshTokenRepository.findByUser(user).ifPresent(previous -> {
+            refreshTokenRevocations.revokeAfterCommit(previous.getToken(), previous.getExpiresAt());
+            refreshTokenRepository.delete(previous);
+        });
 
         // Lưu refresh token mới vào cơ sở dữ liệu
         refreshTokenRepository.save(refreshTokenEntity);
@@ -102,12 +107,14 @@ public class AuthService {
     @Transactional
     public AuthResponse register(RegisterRequest registerRequest) {
         // Kiểm tra xem người dùng đã tồn tại chưa
-        if (userRepository.existsByUsername(registerRequest.getUsername())) {
+        UserRepository.UsernameEmailUsage usage =
+                userRepository.countByUsernameOrEmail(registerRequest.getUsername(), registerRequest.getEmail());
+        if (usage.getUsernameCount() > 0) {
             throw new ResponseStatusException(HttpStatus.CONFLICT, "Username already exists");
         }
 
         // Kiểm tra xem email đã tồn tại chưa
-        if (userRepository.existsByEmail(registerRequest.getEmail())) {
+        if (usage.getEmailCount() > 0) {
             throw new ResponseStatusException(HttpStatus.CONFLICT, "Email already exists");
         }
 
@@ -170,16 +177,27 @@ public class AuthService {
     // Phương thức đăng xuất
     @Transactional
     public void logout(String refreshToken) {
-        if (!refreshTokenRepository.existsByToken(refreshToken)) {
+        // Token đã thu hồi thì không cần truy vấn database
+        if (refreshTokenRevocations.isRevoked(refreshToken)) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid refresh token");
         }
-        refreshTokenRepository.deleteByToken(refreshToken);
+
+        RefreshToken token = refreshTokenRepository.findByToken(refreshToken)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid refresh token"));
+        refreshTokenRepository.delete(token);
+        refreshTokenRevocations.revokeAfterCommit(refreshToken, token.getExpiresAt());
     }
 
     // Phương thức làm mới token
     public AuthResponse refreshToken(String refreshToken) {
+        // Token đã thu hồi (đăng xuất hoặc đã đăng nhập lại) thì không cần truy vấn database
+        if (refreshTokenRevocations.isRevoked(refreshToken)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid refresh token");
+        }
+
         // Kiểm tra tính hợp lệ của refresh token
         RefreshToken token = refreshTokenRepository.findByToken(refreshToken)
+                .filter(found -> !Boolean.TRUE.equals(found.getRevoked()))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid refresh token"));
 
         // Kiểm tra xem refresh token có hết hạn không
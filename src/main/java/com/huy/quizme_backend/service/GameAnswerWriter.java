@@ -0,0 +1,461 @@
+package com.huy.quizme_backend.service;
+
+import com.huy.quizme_backend.session.AnswerKey;
+import com.huy.quizme_backend.session.AnswerSheet;
+import com.huy.quizme_backend.session.GameSession;
+import com.huy.quizme_backend.session.ParticipantSession;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ghi câu trả lời của từng câu hỏi đã kết thúc vào database theo kiểu write-behind.
+ * <p>
+ * Khi kết thúc câu hỏi, thread timer chỉ chụp lại kết quả của câu hỏi (một {@link Round})
+ * và đưa vào hàng đợi có giới hạn. Một thread ghi riêng gom các câu hỏi đang chờ và ghi
+ * {@code game_result_question}, {@code game_player_answer}, {@code game_player_answer_option}
+ * bằng JDBC batch trong một transaction.
+ * <p>
+ * Ghi một câu hỏi là idempotent (xoá dữ liệu cũ của cặp kết quả/câu hỏi rồi ghi lại), nên lần ghi
+ * lỗi được thử lại nguyên lô với thời gian chờ tăng dần; nếu vẫn lỗi thì ghi lại từng câu hỏi
+ * để một câu hỏi lỗi không làm mất cả lô. Khi hàng đợi đầy, thread timer chờ tối đa
+ * {@code offer-timeout-ms} trước khi bỏ câu hỏi đó.
+ * <p>
+ * Mỗi phòng được theo dõi số câu hỏi chưa ghi xong; {@link #roomFlushed} cho biết khi nào mọi
+ * câu hỏi của phòng đã được ghi và có câu hỏi nào bị mất (bị bỏ, lỗi, chưa có GameResult) hay không,
+ * để journal của trò chơi chỉ bị xoá khi câu trả lời đã nằm trong database.
+ */
+@Service
+@Slf4j
+public class GameAnswerWriter {
+    private static final String DELETE_OPTIONS_SQL =
+            "DELETE FROM game_player_answer_option WHERE game_player_answer_id IN " +
+                    "(SELECT id FROM game_player_answer WHERE game_result_id = ? AND question_id = ?)";
+    private static final String DELETE_ANSWERS_SQL =
+            "DELETE FROM game_player_answer WHERE game_result_id = ? AND question_id = ?";
+    private static final String DELETE_QUESTION_SQL =
+            "DELETE FROM game_result_question WHERE game_result_id = ? AND question_id = ?";
+    private static final String INSERT_QUESTION_SQL =
+            "INSERT INTO game_result_question (game_result_id, question_id, correct_count, incorrect_count, avg_time) " +
+                    "VALUES (?, ?, ?, ?, ?)";
+    // Người chơi đã rời phòng (room_participant bị xoá) thì bỏ qua thay vì vi phạm khoá ngoại
+    private static final String INSERT_ANSWER_SQL =
+            "INSERT INTO game_player_answer (game_result_id, participant_id, question_id, is_correct, answer_time, score, created_at) " +
+                    "SELECT ?, id, ?, ?, ?, ?, ? FROM room_participant WHERE id = ?";
+    // Một truy vấn cho cả lô, điều kiện (game_result_id, question_id) IN (...) được nối thêm khi ghi
+    private static final String SELECT_ANSWER_IDS_SQL =
+            "SELECT id, game_result_id, question_id, participant_id FROM game_player_answer " +
+                    "WHERE (game_result_id, question_id) IN ";
+    private static final String INSERT_OPTION_SQL =
+            "INSERT INTO game_player_answer_option (game_player_answer_id, option_id) VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final GameProgressService gameProgressService;
+    private final BlockingQueue<Round> queue;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final long offerTimeoutMs;
+    private final long shutdownTimeoutMs;
+    // roomId -> các câu hỏi của phòng chưa ghi xong
+    private final ConcurrentMap<Long, RoomRounds> rooms = new ConcurrentHashMap<>();
+
+    private final Timer flushTime;
+    private final Counter writtenAnswers;
+    private final Counter retries;
+    private final Counter failedRounds;
+    private final Counter rejectedRounds;
+    private final Counter skippedRounds;
+
+    private Thread writerThread;
+    private volatile boolean stopping;
+
+    public GameAnswerWriter(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            GameProgressService gameProgressService,
+            MeterRegistry meterRegistry,
+            @Value("${app.game.persistence.queue-capacity:1024}") int queueCapacity,
+            @Value("${app.game.persistence.batch-size:32}") int batchSize,
+            @Value("${app.game.persistence.max-attempts:5}") int maxAttempts,
+            @Value("${app.game.persistence.retry-backoff-ms:200}") long retryBackoffMs,
+            @Value("${app.game.persistence.offer-timeout-ms:100}") long offerTimeoutMs,
+            @Value("${app.game.persistence.shutdown-timeout-ms:30000}") long shutdownTimeoutMs
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.gameProgressService = gameProgressService;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+
+        Gauge.builder("game.persistence.queue", queue, BlockingQueue::size)
+                .description("Số câu hỏi đã kết thúc đang chờ ghi vào database")
+                .register(meterRegistry);
+        this.flushTime = Timer.builder("game.persistence.flush")
+                .description("Thời gian ghi một lô câu hỏi vào database")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.writtenAnswers = Counter.builder("game.persistence.answers")
+                .description("Số câu trả lời đã ghi vào database")
+                .register(meterRegistry);
+        this.retries = Counter.builder("game.persistence.retries")
+                .description("Số lần thử ghi lại một lô bị lỗi")
+                .register(meterRegistry);
+        this.failedRounds = Counter.builder("game.persistence.failed")
+                .description("Số câu hỏi không ghi được sau khi đã thử lại")
+                .register(meterRegistry);
+        this.rejectedRounds = Counter.builder("game.persistence.rejected")
+                .description("Số câu hỏi bị bỏ vì hàng đợi ghi đã đầy")
+                .register(meterRegistry);
+        this.skippedRounds = Counter.builder("game.persistence.skipped")
+                .description("Số câu hỏi không ghi vì phiên chơi chưa có GameResult")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        writerThread = Thread.ofPlatform().daemon().name("game-answer-writer").start(this::run);
+    }
+
+    /**
+     * Chụp lại kết quả câu hỏi vừa chấm điểm và đưa vào hàng đợi ghi.
+     * Gọi sau khi bảng câu trả lời đã niêm phong và điểm đã được tính.
+     */
+    public void enqueue(GameSession gameSession, AnswerKey answerKey, AnswerSheet answerSheet) {
+        Long roomId = gameSession.getRoomId();
+        if (gameSession.getGameResultId() == null) {
+            skippedRounds.increment();
+            log.error("Phòng {} chưa có GameResult, không ghi được câu hỏi {}", roomId, answerKey.getQuestionId());
+            markLost(roomId);
+            return;
+        }
+
+        Round round = Round.capture(gameProgressService, gameSession, answerKey, answerSheet);
+        rooms.compute(roomId, (id, rounds) -> {
+            RoomRounds target = rounds != null ? rounds : new RoomRounds();
+            target.pending++;
+            return target;
+        });
+        try {
+            if (queue.offer(round, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejectedRounds.increment();
+        log.error("Hàng đợi ghi câu trả lời đã đầy, bỏ câu hỏi {} của phòng {}", answerKey.getQuestionId(), roomId);
+        acknowledge(roomId, false);
+    }
+
+    /**
+     * Chờ các câu hỏi đã đưa vào hàng đợi của phòng được ghi xong. Gọi một lần khi trò chơi kết thúc.
+     *
+     * @return Future hoàn tất khi không còn câu hỏi nào của phòng đang chờ ghi; giá trị false
+     * nếu có câu hỏi của phòng không ghi được
+     */
+    public CompletableFuture<Boolean> roomFlushed(Long roomId) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        rooms.compute(roomId, (id, rounds) -> {
+            if (rounds == null) {
+                future.complete(true);
+                return null;
+            }
+            if (rounds.pending == 0) {
+                future.complete(!rounds.lost);
+                return null;
+            }
+            rounds.flushed = future;
+            return rounds;
+        });
+        return future;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Không ngắt thread ghi: lần ghi đang dở vẫn được thử lại, các câu hỏi còn lại được ghi nốt
+        stopping = true;
+        writerThread.join(shutdownTimeoutMs);
+        if (writerThread.isAlive()) {
+            writerThread.interrupt();
+            log.warn("{} câu hỏi chưa được ghi khi tắt ứng dụng, sẽ được ghi lại từ journal", queue.size());
+        }
+    }
+
+    private void run() {
+        List<Round> batch = new ArrayList<>(batchSize);
+        while (!stopping || !queue.isEmpty()) {
+            try {
+                Round first = queue.poll(stopping ? 0 : 1000, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                // Hết thời gian chờ khi tắt ứng dụng
+                return;
+            } catch (RuntimeException e) {
+                log.error("Lỗi không mong đợi khi ghi câu trả lời: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Round> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                flushTime.record(() -> write(batch));
+                for (Round round : batch) {
+                    acknowledge(round.roomId, true);
+                }
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    log.error("Không ghi được lô {} câu hỏi sau {} lần thử: {}", batch.size(), attempt, e.getMessage());
+                    break;
+                }
+                retries.increment();
+                log.warn("Ghi lô {} câu hỏi lỗi (lần {}), thử lại: {}", batch.size(), attempt, e.getMessage());
+                if (!backoff(attempt)) {
+                    break;
+                }
+            }
+        }
+
+        // Ghi riêng từng câu hỏi để câu hỏi lỗi không làm mất cả lô
+        for (Round round : batch) {
+            boolean written = false;
+            try {
+                write(List.of(round));
+                written = true;
+            } catch (RuntimeException e) {
+                failedRounds.increment();
+                log.error("Không ghi được câu hỏi {} của kết quả {}: {}",
+                        round.questionId, round.gameResultId, e.getMessage());
+            }
+            acknowledge(round.roomId, written);
+        }
+    }
+
+    /**
+     * Một câu hỏi của phòng đã được xử lý (ghi xong hoặc bị mất).
+     */
+    private void acknowledge(Long roomId, boolean written) {
+        RoomRounds[] done = new RoomRounds[1];
+        rooms.computeIfPresent(roomId, (id, rounds) -> {
+            rounds.pending--;
+            rounds.lost |= !written;
+            if (rounds.pending > 0 || rounds.flushed == null) {
+                return rounds;
+            }
+            done[0] = rounds;
+            return null;
+        });
+        // Hoàn tất ngoài compute vì các callback của future chạy trên thread này
+        if (done[0] != null) {
+            done[0].flushed.complete(!done[0].lost);
+        }
+    }
+
+    private void markLost(Long roomId) {
+        rooms.compute(roomId, (id, rounds) -> {
+            RoomRounds target = rounds != null ? rounds : new RoomRounds();
+            target.lost = true;
+            return target;
+        });
+    }
+
+    private boolean backoff(int attempt) {
+        try {
+            Thread.sleep(retryBackoffMs << Math.min(attempt - 1, 6));
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    private void write(List<Round> rounds) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Object[]> keys = new ArrayList<>(rounds.size());
+            List<Object[]> questions = new ArrayList<>(rounds.size());
+            List<Object[]> answers = new ArrayList<>();
+            for (Round round : rounds) {
+                keys.add(new Object[]{round.gameResultId, round.questionId});
+                questions.add(new Object[]{
+                        round.gameResultId, round.questionId, round.correctCount, round.incorrectCount, round.avgTime
+                });
+                Timestamp createdAt = Timestamp.valueOf(round.closedAt);
+                for (Answer answer : round.answers) {
+                    answers.add(new Object[]{
+                            round.gameResultId, round.questionId, answer.correct, answer.answerTime,
+                            answer.score, createdAt, answer.participantId
+                    });
+                }
+            }
+
+            // Xoá dữ liệu của lần ghi trước (nếu có) để thử lại không tạo bản ghi trùng
+            jdbcTemplate.batchUpdate(DELETE_OPTIONS_SQL, keys);
+            jdbcTemplate.batchUpdate(DELETE_ANSWERS_SQL, keys);
+            jdbcTemplate.batchUpdate(DELETE_QUESTION_SQL, keys);
+
+            jdbcTemplate.batchUpdate(INSERT_QUESTION_SQL, questions);
+            jdbcTemplate.batchUpdate(INSERT_ANSWER_SQL, answers);
+
+            // ID của các câu trả lời vừa ghi, lấy bằng một truy vấn cho cả lô:
+            // "gameResultId:questionId" -> participantId -> id
+            Map<String, Map<Long, Long>> answerIds = new HashMap<>();
+            StringBuilder sql = new StringBuilder(SELECT_ANSWER_IDS_SQL).append('(');
+            List<Object> args = new ArrayList<>();
+            for (Round round : rounds) {
+                if (!round.answers.isEmpty()) {
+                    sql.append(args.isEmpty() ? "(?, ?)" : ", (?, ?)");
+                    args.add(round.gameResultId);
+                    args.add(round.questionId);
+                }
+            }
+            if (!args.isEmpty()) {
+                jdbcTemplate.query(sql.append(')').toString(),
+                        rs -> {
+                            answerIds.computeIfAbsent(rs.getLong("game_result_id") + ":" + rs.getLong("question_id"),
+                                            key -> new HashMap<>())
+                                    .put(rs.getLong("participant_id"), rs.getLong("id"));
+                        },
+                        args.toArray());
+            }
+
+            List<Object[]> options = new ArrayList<>();
+            for (Round round : rounds) {
+                Map<Long, Long> roundAnswerIds = answerIds.getOrDefault(round.gameResultId + ":" + round.questionId, Map.of());
+                for (Answer answer : round.answers) {
+                    Long answerId = roundAnswerIds.get(answer.participantId);
+                    if (answerId == null) {
+                        continue;
+                    }
+                    for (long optionId : answer.optionIds) {
+                        options.add(new Object[]{answerId, optionId});
+                    }
+                }
+            }
+            jdbcTemplate.batchUpdate(INSERT_OPTION_SQL, options);
+
+            writtenAnswers.increment(answers.size());
+        });
+    }
+
+    /**
+     * Kết quả bất biến của một câu hỏi đã kết thúc, chụp lại từ bảng câu trả lời.
+     */
+    private static final class Round {
+        private final Long roomId;
+        private final Long gameResultId;
+        private final Long questionId;
+        private final int correctCount;
+        private final int incorrectCount;
+        private final Double avgTime;
+        private final LocalDateTime closedAt;
+        private final List<Answer> answers;
+
+        private Round(Long roomId, Long gameResultId, Long questionId, int correctCount, int incorrectCount,
+                      Double avgTime, LocalDateTime closedAt, List<Answer> answers) {
+            this.roomId = roomId;
+            this.gameResultId = gameResultId;
+            this.questionId = questionId;
+            this.correctCount = correctCount;
+            this.incorrectCount = incorrectCount;
+            this.avgTime = avgTime;
+            this.closedAt = closedAt;
+            this.answers = answers;
+        }
+
+        private static Round capture(
+                GameProgressService gameProgressService,
+                GameSession gameSession,
+                AnswerKey answerKey,
+                AnswerSheet answerSheet
+        ) {
+            int answered = answerSheet.answeredCount();
+            int correct = answerSheet.correctCount();
+            List<Answer> answers = new ArrayList<>(answered);
+            for (int slot = 0; slot < answerSheet.capacity(); slot++) {
+                if (!answerSheet.isAnswered(slot)) {
+                    continue;
+                }
+                ParticipantSession participant = gameSession.getParticipantBySlot(slot);
+                if (participant.getParticipantId() == null) {
+                    continue;
+                }
+
+                int optionMask = answerSheet.getOptionMask(slot);
+                long[] optionIds = new long[Integer.bitCount(optionMask)];
+                int i = 0;
+                for (int mask = optionMask; mask != 0; mask &= mask - 1) {
+                    optionIds[i++] = answerKey.getOptionId(Integer.numberOfTrailingZeros(mask));
+                }
+                answers.add(new Answer(
+                        participant.getParticipantId(),
+                        gameProgressService.validateAnswer(answerKey, optionMask),
+                        answerSheet.getAnswerTimeMs(slot),
+                        answerSheet.getScore(slot),
+                        optionIds));
+            }
+
+            Double avgTime = answered > 0 ? (double) answerSheet.answerTimeSumMs() / answered : null;
+            return new Round(gameSession.getRoomId(), gameSession.getGameResultId(), answerKey.getQuestionId(), correct,
+                    answered - correct, avgTime, LocalDateTime.now(), answers);
+        }
+    }
+
+    /**
+     * Các câu hỏi của một phòng chưa ghi xong; chỉ thay đổi trong compute của bảng rooms.
+     */
+    private static final class RoomRounds {
+        private int pending;
+        private boolean lost;
+        private CompletableFuture<Boolean> flushed;
+    }
+
+    private static final class Answer {
+        private final Long participantId;
+        private final boolean correct;
+        private final double answerTime;
+        private final int score;
+        private final long[] optionIds;
+
+        private Answer(Long participantId, boolean correct, double answerTime, int score, long[] optionIds) {
+            this.participantId = participantId;
+            this.correct = correct;
+            this.answerTime = answerTime;
+            this.score = score;
+            this.optionIds = optionIds;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.huy.quizme_backend.service;
+
+import com.huy.quizme_backend.enity.GameResult;
+import com.huy.quizme_backend.session.GameSession;
+import com.huy.quizme_backend.session.ParticipantSession;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lưu kết quả cuối cùng của trò chơi sau khi GAME_END đã được gửi cho người chơi.
+ * <p>
+ * Thống kê của GameResult và điểm của từng người chơi (room_participant) được ghi trong cùng
+ * một transaction trên virtual thread, không chặn thread timer. Mỗi phòng có một {@link CompletableFuture} theo dõi
+ * việc lưu cho đến khi hoàn tất; khi tắt ứng dụng, các lần lưu đang dở được chờ hoàn tất.
+ */
+@Service
+@Slf4j
+public class GameFinalizationService {
+    private static final String UPDATE_PARTICIPANT_SCORE_SQL =
+            "UPDATE room_participant SET score = ? WHERE id = ?";
+
+    private final GameProgressService gameProgressService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("game-finalize-", 0).factory());
+    // roomId -> việc lưu kết quả đang diễn ra
+    private final ConcurrentMap<Long, CompletableFuture<GameResult>> pending = new ConcurrentHashMap<>();
+
+    private final Timer finalizeTime;
+    private final Counter failures;
+
+    public GameFinalizationService(
+            GameProgressService gameProgressService,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry
+    ) {
+        this.gameProgressService = gameProgressService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+
+        Gauge.builder("game.finalize.pending", pending, ConcurrentMap::size)
+                .description("Số trò chơi đã kết thúc đang chờ lưu kết quả")
+                .register(meterRegistry);
+        this.finalizeTime = Timer.builder("game.finalize.duration")
+                .description("Thời gian lưu kết quả cuối cùng của một trò chơi")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.failures = Counter.builder("game.finalize.failed")
+                .description("Số trò chơi không lưu được kết quả cuối cùng")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Bắt đầu lưu kết quả của phiên chơi đã kết thúc.
+     * Phiên chơi không còn thay đổi sau khi kết thúc nên có thể đọc trên thread khác.
+     *
+     * @return Future hoàn tất khi kết quả đã được lưu
+     */
+    public CompletableFuture<GameResult> finalizeAsync(GameSession gameSession) {
+        Long roomId = gameSession.getRoomId();
+        CompletableFuture<GameResult> future = new CompletableFuture<>();
+        pending.put(roomId, future);
+
+        future.whenComplete((gameResult, error) -> {
+            pending.remove(roomId, future);
+            if (error != null) {
+                failures.increment();
+                log.error("Không lưu được kết quả trò chơi của phòng {}: {}", roomId, error.getMessage(), error);
+            } else {
+                log.info("Đã lưu kết quả trò chơi {} của phòng {}", gameResult.getId(), roomId);
+            }
+        });
+
+        executor.execute(() -> {
+            try {
+                future.complete(finalizeTime.record(() -> persist(gameSession)));
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!pending.isEmpty()) {
+            log.info("Chờ lưu kết quả của {} trò chơi trước khi tắt", pending.size());
+            try {
+                CompletableFuture.allOf(pending.values().toArray(CompletableFuture[]::new))
+                        .get(10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                log.warn("Chưa lưu xong kết quả của {} trò chơi: {}", pending.size(), e.getMessage());
+            }
+        }
+        executor.shutdown();
+    }
+
+    private GameResult persist(GameSession gameSession) {
+        // GameResult và điểm của người chơi được lưu cùng nhau hoặc không lưu gì
+        return transactionTemplate.execute(status -> {
+            GameResult gameResult = gameProgressService.finalizeResults(gameSession);
+
+            // Lưu điểm cuối cùng của từng người chơi trong một batch
+            List<Object[]> scores = new ArrayList<>(gameSession.getParticipants().size());
+            for (ParticipantSession participant : gameSession.getParticipants().values()) {
+                if (participant.getParticipantId() != null) {
+                    scores.add(new Object[]{participant.getScore(), participant.getParticipantId()});
+                }
+            }
+            jdbcTemplate.batchUpdate(UPDATE_PARTICIPANT_SCORE_SQL, scores);
+
+            return gameResult;
+        });
+    }
+}
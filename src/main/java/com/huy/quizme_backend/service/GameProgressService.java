@@ -2,7 +2,10 @@ package com.huy.quizme_backend.service;
 
 import com.huy.quizme_backend.dto.game.GameResultDTO.FinalPlayerRankingDTO;
 import com.huy.quizme_backend.dto.game.LeaderboardDTO;
+import com.huy.quizme_backend.dto.game.LeaderboardDeltaDTO;
 import com.huy.quizme_backend.dto.game.LeaderboardDTO.PlayerRankingDTO;
+import com.huy.quizme_backend.dto.game.PlayerLeaderboardDTO;
+import com.huy.quizme_backend.dto.game.PlayerQuestionResultDTO;
 import com.huy.quizme_backend.dto.game.QuestionGameDTO;
 import com.huy.quizme_backend.dto.game.QuestionGameDTO.QuestionOptionDTO;
 import com.huy.quizme_backend.dto.game.QuestionResultDTO;
@@ -10,9 +13,14 @@ import com.huy.quizme_backend.dto.game.QuestionResultDTO.UserAnswerDTO;
 import com.huy.quizme_backend.enity.*;
 import com.huy.quizme_backend.enity.enums.QuestionType;
 import com.huy.quizme_backend.repository.*;
+import com.huy.quizme_backend.session.AnswerKey;
+import com.huy.quizme_backend.session.AnswerSheet;
 import com.huy.quizme_backend.session.GameSession;
+import com.huy.quizme_backend.session.LeaderboardDeltaTracker;
+import com.huy.quizme_backend.session.LiveLeaderboard;
 import com.huy.quizme_backend.session.ParticipantSession;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import lombok.RequiredArgsConstructor;
 
 import java.util.*;
@@ -26,22 +34,23 @@ import java.util.stream.Collectors;
 public class GameProgressService {
     private final QuizRepository quizRepository;
     private final RoomRepository RoomRepository;
-    private final UserRepository userRepository;
     private final QuestionRepository questionRepository;
     private final QuestionOptionRepository optionRepository;
     private final GameResultService gameResultService;
-    private final LocalStorageService localStorageService;
 
     /**
-     * Tải đầy đủ thông tin Quiz và câu hỏi
+     * Tải đầy đủ thông tin Quiz và câu hỏi vào phiên chơi:
+     * danh sách câu hỏi gửi cho client và đáp án đã biên dịch để chấm điểm.
      */
-    public List<QuestionGameDTO> loadQuizAndPrepareQuestions(Long quizId) {
+    @Transactional(readOnly = true)
+    public void loadQuizIntoSession(GameSession gameSession) {
         // Tải Quiz từ cơ sở dữ liệu
-        Quiz quiz = quizRepository.findById(quizId)
+        Quiz quiz = quizRepository.findById(gameSession.getQuizId())
                 .orElseThrow(() -> new IllegalArgumentException("Quiz not found"));
 
-        // Khởi tạo danh sách QuestionGameDTO
+        // Khởi tạo danh sách QuestionGameDTO và đáp án
         List<QuestionGameDTO> questionGameDTOs = new ArrayList<>();
+        List<AnswerKey> answerKeys = new ArrayList<>();
 
         // Lặp qua từng câu hỏi và chuyển đổi thành QuestionGameDTO
         for (Question question : quiz.getQuestions()) {
@@ -72,49 +81,35 @@ public class GameProgressService {
             // Thiết lập danh sách tùy chọn cho QuestionGameDTO
             questionGameDTO.setOptions(optionDTOs);
 
-            // Thêm QuestionGameDTO vào danh sách
+            // Thêm QuestionGameDTO và đáp án đã biên dịch vào danh sách
             questionGameDTOs.add(questionGameDTO);
+            answerKeys.add(AnswerKey.compile(question));
         }
 
-        return questionGameDTOs;
+        gameSession.setQuizTitle(quiz.getTitle());
+        gameSession.setQuestions(questionGameDTOs);
+        gameSession.setAnswerKeys(List.copyOf(answerKeys));
     }
 
     /**
      * Kiểm tra câu trả lời
+     *
+     * @param answerKey    Đáp án đã biên dịch của câu hỏi
+     * @param selectedMask Bitmask các lựa chọn của người chơi
      */
-    public boolean validateAnswer(Question question, GamePlayerAnswer playerAnswer) {
-        // Lấy type của câu hỏi
-        QuestionType questionType = question.getType();
-
-        // Lấy danh sách các tùy chọn đúng
-        List<Long> correctOptions = question.getOptions().stream()
-                .filter(QuestionOption::getIsCorrect)
-                .map(QuestionOption::getId)
-                .toList();
-
-        // Kiểm tra nếu câu hỏi là trắc nghiệm
-        switch (questionType) {
+    public boolean validateAnswer(AnswerKey answerKey, int selectedMask) {
+        // Kiểm tra theo loại câu hỏi
+        switch (answerKey.getType()) {
             case QUIZ:
-                // Kiểm tra nếu câu trả lời đúng với câu hỏi trắc nghiệm
-                return correctOptions.contains(playerAnswer.getSelectedOptionIds().getFirst());
-
             case TRUE_FALSE:
-                // Kiểm tra nếu câu trả lời đúng với câu hỏi đúng/sai
-                return correctOptions.contains(playerAnswer.getSelectedOptionIds().getFirst());
-
             case QUIZ_AUDIO:
-                // Kiểm tra nếu câu trả lời đúng với câu hỏi trắc nghiệm âm thanh
-                return correctOptions.contains(playerAnswer.getSelectedOptionIds().getFirst());
-
             case QUIZ_VIDEO:
-                // Kiểm tra nếu câu trả lời đúng với câu hỏi trắc nghiệm video
-                return correctOptions.contains(playerAnswer.getSelectedOptionIds().getFirst());
+                // Câu hỏi một đáp án: lựa chọn (duy nhất) phải là đáp án đúng
+                return (selectedMask & answerKey.getCorrectMask()) != 0;
 
             case CHECKBOX:
-                Set<Long> selected = new HashSet<>(playerAnswer.getSelectedOptionIds());
-                Set<Long> correct = new HashSet<>(correctOptions);
-                // Kiểm tra nếu câu trả lời đúng với câu hỏi checkbox
-                return selected.equals(correct);
+                // Câu hỏi nhiều đáp án: phải chọn đúng toàn bộ tập đáp án
+                return selectedMask == answerKey.getCorrectMask();
 
             case TYPE_ANSWER:
                 throw new UnsupportedOperationException("Chưa triển khai kiểm tra câu trả lời cho câu hỏi tự luận");
@@ -126,21 +121,23 @@ public class GameProgressService {
 
     /**
      * Tính điểm dựa trên độ chính xác và thời gian
+     *
+     * @param answerKey    Đáp án đã biên dịch của câu hỏi
+     * @param selectedMask Bitmask các lựa chọn của người chơi
+     * @param timeTaken    Thời gian trả lời (milliseconds)
+     * @param isCorrect    Câu trả lời có đúng không
      */
-    public int calculateScore(Question question, GamePlayerAnswer playerAnswer, boolean isCorrect) {
+    public int calculateScore(AnswerKey answerKey, int selectedMask, double timeTaken, boolean isCorrect) {
         // Nếu câu trả lời sai thì trả về 0 điểm
         if (!isCorrect) {
             return 0;
         }
 
         // Lấy điểm cơ bản từ câu hỏi
-        int basePoints = question.getPoints();
+        int basePoints = answerKey.getPoints();
 
         // Lấy total time từ câu hỏi
-        int totalTime = question.getTimeLimit() * 1000; // Chuyển đổi sang milliseconds
-
-        // Lấy thời gian người chơi đã trả lời
-        Double timeTaken = playerAnswer.getAnswerTime();
+        int totalTime = answerKey.getTimeLimit() * 1000; // Chuyển đổi sang milliseconds
 
         // Tính thời gian còn lại
         double timeRemaining = Math.max(0, totalTime - timeTaken);
@@ -152,23 +149,15 @@ public class GameProgressService {
         int score = (int) (basePoints + (basePoints * timeBonusFactor));
 
         // Xử lý điểm cho Checkbox
-        if (question.getType() == QuestionType.CHECKBOX) {
-            // Lấy số lượng tùy chọn đúng
-            long correctSelectedOptions = playerAnswer.getSelectedOptionIds().stream()
-                    .filter(id -> question.getOptions().stream()
-                            .anyMatch(opt -> opt.getId().equals(id) && opt.getIsCorrect()))
-                    .count();
-
-            // Lấy số lượng tùy chọn sai
-            long incorrectSelectedOptions = playerAnswer.getSelectedOptionIds().stream()
-                    .filter(id -> question.getOptions().stream()
-                            .anyMatch(opt -> opt.getId().equals(id) && !opt.getIsCorrect()))
-                    .count();
+        if (answerKey.getType() == QuestionType.CHECKBOX) {
+            int correctMask = answerKey.getCorrectMask();
+
+            // Lấy số lượng tùy chọn đúng và sai đã chọn
+            int correctSelectedOptions = Integer.bitCount(selectedMask & correctMask);
+            int incorrectSelectedOptions = Integer.bitCount(selectedMask & ~correctMask);
 
             // Lấy tổng số tùy chọn đúng
-            long totalCorrectOptions = question.getOptions().stream()
-                    .filter(QuestionOption::getIsCorrect)
-                    .count();
+            int totalCorrectOptions = Integer.bitCount(correctMask);
 
             // Tính điểm cho Checkbox
             if (correctSelectedOptions > 0) {
@@ -187,45 +176,48 @@ public class GameProgressService {
     /**
      * Tính kết quả cho một câu hỏi
      */
-    public QuestionResultDTO calculateResults(GameSession session, Question currentQuestionEntity) {
+    public QuestionResultDTO calculateResults(GameSession session, AnswerKey answerKey, AnswerSheet answerSheet) {
         // Khởi tạo QuestionResultDTO
         QuestionResultDTO questionResultDTO = new QuestionResultDTO();
-        questionResultDTO.setQuestionId(currentQuestionEntity.getId());
-        questionResultDTO.setCorrectOptions(currentQuestionEntity.getOptions().stream()
-                .filter(QuestionOption::getIsCorrect)
-                .map(QuestionOption::getId)
-                .collect(Collectors.toList()));
-        questionResultDTO.setExplanation(currentQuestionEntity.getExplanation());
-        questionResultDTO.setFunFact(currentQuestionEntity.getFunFact());
+        questionResultDTO.setQuestionId(answerKey.getQuestionId());
+        questionResultDTO.setCorrectOptions(answerKey.getCorrectOptionIds());
+        questionResultDTO.setExplanation(answerKey.getExplanation());
+        questionResultDTO.setFunFact(answerKey.getFunFact());
 
         // Tạo danh sách
         List<UserAnswerDTO> userAnswers = new ArrayList<>();
 
         // Lặp qua từng người chơi trong phiên
         for (ParticipantSession participant : session.getParticipants().values()) {
-            // Lấy câu trả lời của người chơi
-            GamePlayerAnswer playerAnswer = participant.getAnswers().get(currentQuestionEntity.getId());
+            int slot = participant.getSlot();
 
             // Kiểm tra nếu người chơi đã trả lời câu hỏi này
-            if (playerAnswer != null) {
-                // Kiểm tra tính đúng sai của câu trả lời
-                boolean isCorrect = validateAnswer(currentQuestionEntity, playerAnswer);
-
-                // Tính điểm cho người chơi
-                int score = calculateScore(currentQuestionEntity, playerAnswer, isCorrect);
-
-                // Tạo UserAnswerDTO từ GamePlayerAnswer
-                UserAnswerDTO userAnswerDTO = UserAnswerDTO.fromEntity(playerAnswer);
-                userAnswerDTO.setUserId(participant.getUserId());
-                userAnswerDTO.setIsCorrect(isCorrect);
-                userAnswerDTO.setScore(score);
-                userAnswerDTO.setTimeTaken(playerAnswer.getAnswerTime());
+            if (answerSheet.isAnswered(slot)) {
+                int selectedMask = answerSheet.getOptionMask(slot);
+                double timeTaken = answerSheet.getAnswerTimeMs(slot);
 
-                // Thêm vào danh sách câu trả lời người dùng
-                userAnswers.add(userAnswerDTO);
-
-                // Cập nhật điểm số cho người chơi
+                // Kiểm tra tính đúng sai của câu trả lời
+                boolean isCorrect = validateAnswer(answerKey, selectedMask);
+
+                // Tính điểm cho người chơi và ghi lại vào bảng câu trả lời
+                int score = calculateScore(answerKey, selectedMask, timeTaken, isCorrect);
+                answerSheet.setScore(slot, score);
+
+                // Thêm vào danh sách câu trả lời người dùng (phòng lớn gửi riêng cho từng người)
+                if (!session.isLargeRoom()) {
+                    userAnswers.add(UserAnswerDTO.builder()
+                            .userId(participant.getUserId())
+                            .isCorrect(isCorrect)
+                            .score(score)
+                            .timeTaken(timeTaken)
+                            .build());
+                }
+
+                // Cập nhật điểm số cho người chơi và bảng xếp hạng trực tiếp
                 participant.setScore(participant.getScore() + score);
+                if (score != 0) {
+                    session.getLeaderboard().update(slot, participant.getScore());
+                }
             }
         }
 
@@ -235,21 +227,17 @@ public class GameProgressService {
         // Tính toán tỷ lệ lựa chọn cho từng tùy chọn
         List<QuestionResultDTO.OptionStatDTO> optionStats = new ArrayList<>();
 
-        // Lấy tổng số người chơi đã trả lời câu hỏi này
+        // Lấy tổng số người chơi trong phiên
         int totalAnswers = session.getParticipants().size();
-        for (QuestionOption option : currentQuestionEntity.getOptions()) {
-            // Lấy số lượng người chơi đã chọn tùy chọn này
-            long count = session.getParticipants().values().stream()
-                    .filter(p -> p.getAnswers().containsKey(currentQuestionEntity.getId()))
-                    .filter(p -> p.getAnswers().get(currentQuestionEntity.getId()).getSelectedOptionIds().contains(option.getId()))
-                    .count();
-
-            // Tính tỷ lệ phần trăm
-            double percentage = totalAnswers > 0 ? (double) count / totalAnswers * 100 : 0.0;
+        for (int i = 0; i < answerKey.getOptionCount(); i++) {
+            // Tính tỷ lệ phần trăm từ bộ đếm đã cộng dồn khi nhận câu trả lời
+            double percentage = totalAnswers > 0 ? (double) answerSheet.optionCount(i) / totalAnswers * 100 : 0.0;
 
             // Tạo OptionStatDTO và thêm vào danh sách
-            QuestionResultDTO.OptionStatDTO optionStatDTO = QuestionResultDTO.OptionStatDTO.fromEntity(option, percentage);
-            optionStats.add(optionStatDTO);
+            optionStats.add(QuestionResultDTO.OptionStatDTO.builder()
+                    .optionId(answerKey.getOptionId(i))
+                    .percentage(percentage)
+                    .build());
         }
         // Thiết lập danh sách thống kê tùy chọn cho QuestionResultDTO
         questionResultDTO.setOptionStats(optionStats);
@@ -257,36 +245,64 @@ public class GameProgressService {
         return questionResultDTO;
     }
 
+    /**
+     * Tạo kết quả câu hỏi riêng của một người chơi (chế độ phòng lớn).
+     * Gọi sau {@link #calculateResults} để điểm và thứ hạng đã được cập nhật.
+     */
+    public PlayerQuestionResultDTO generatePlayerResult(
+            GameSession session,
+            AnswerKey answerKey,
+            AnswerSheet answerSheet,
+            ParticipantSession participant
+    ) {
+        int slot = participant.getSlot();
+        boolean answered = answerSheet.isAnswered(slot);
+
+        // Thứ hạng mới sau câu hỏi
+        int rank = session.getLeaderboard().rankOf(slot);
+        participant.setRank(rank);
+
+        return PlayerQuestionResultDTO.builder()
+                .questionId(answerKey.getQuestionId())
+                .userId(participant.getUserId())
+                .answered(answered)
+                .isCorrect(answered && validateAnswer(answerKey, answerSheet.getOptionMask(slot)))
+                .score(answerSheet.getScore(slot))
+                .totalScore(participant.getScore())
+                .rank(rank)
+                .timeTaken(answered ? (double) answerSheet.getAnswerTimeMs(slot) : null)
+                .build();
+    }
+
     /**
      * Tạo bảng xếp hạng từ phiên chơi
      */
     public LeaderboardDTO generateLeaderboardDTO(GameSession session) {
-        // Lấy danh sách người chơi từ phiên
-        List<ParticipantSession> participants = new ArrayList<>(session.getParticipants().values());
+        // Chế độ top-N chỉ lấy N người đứng đầu
+        int size = session.getLeaderboard().size();
+        int count = session.getLeaderboardTopN() > 0 ? Math.min(session.getLeaderboardTopN(), size) : size;
 
-        // Sắp xếp danh sách người chơi theo điểm số
-        participants.sort(Comparator.comparingInt(ParticipantSession::getScore).reversed());
+        // Lấy danh sách người chơi đã xếp hạng từ bảng xếp hạng trực tiếp
+        List<ParticipantSession> participants = rankedParticipants(session, 1, count);
 
         // Tạo danh sách bảng xếp hạng
-        List<PlayerRankingDTO> leaderboard = getPlayerRankingDTOS(participants);
+        List<PlayerRankingDTO> leaderboard = getPlayerRankingDTOS(participants, 1);
 
         // Tạo LeaderboardDTO
         LeaderboardDTO leaderboardDTO = new LeaderboardDTO();
         leaderboardDTO.setRankings(leaderboard);
+        leaderboardDTO.setTotalPlayers(size);
 
         // Trả về bảng xếp hạng
         return leaderboardDTO;
     }
 
     public List<FinalPlayerRankingDTO> generateFinalPlayerRankingDTO(GameSession session) {
-        // Lấy danh sách người chơi từ phiên
-        List<ParticipantSession> participants = new ArrayList<>(session.getParticipants().values());
-
-        // Sắp xếp danh sách người chơi theo điểm số
-        participants.sort(Comparator.comparingInt(ParticipantSession::getScore).reversed());
+        // Lấy danh sách người chơi đã xếp hạng từ bảng xếp hạng trực tiếp
+        List<ParticipantSession> participants = rankedParticipants(session, 1, session.getLeaderboard().size());
 
         // Tạo danh sách bảng xếp hạng
-        List<PlayerRankingDTO> leaderboard = getPlayerRankingDTOS(participants);
+        List<PlayerRankingDTO> leaderboard = getPlayerRankingDTOS(participants, 1);
 
         // Chuyển đổi sang FinalPlayerRankingDTO
         List<FinalPlayerRankingDTO> finalRankings = leaderboard.stream()
@@ -304,29 +320,114 @@ public class GameProgressService {
         return finalRankings;
     }
 
-    private List<PlayerRankingDTO> getPlayerRankingDTOS(List<ParticipantSession> participants) {
+    /**
+     * Công bố bảng xếp hạng hiện tại và tạo delta gồm các người chơi có điểm hoặc thứ hạng thay đổi.
+     */
+    public LeaderboardDeltaDTO generateLeaderboardDelta(GameSession session) {
+        LeaderboardDeltaTracker tracker = session.getLeaderboardDeltas();
+        int[] changedSlots = tracker.advance(session.getLeaderboard());
+
+        List<LeaderboardDeltaDTO.Entry> entries = new ArrayList<>(changedSlots.length);
+        for (int slot : changedSlots) {
+            ParticipantSession participant = session.getParticipantBySlot(slot);
+            int rank = tracker.publishedRank(slot);
+            participant.setRank(rank);
+            entries.add(LeaderboardDeltaDTO.Entry.builder()
+                    .userId(participant.getUserId())
+                    .score(tracker.publishedScore(slot))
+                    .rank(rank)
+                    .build());
+        }
+
+        return LeaderboardDeltaDTO.builder()
+                .sequence(tracker.sequence())
+                .snapshot(false)
+                .totalPlayers(session.getLeaderboard().size())
+                .entries(entries)
+                .build();
+    }
+
+    /**
+     * Tạo snapshot của bảng xếp hạng đã công bố gần nhất (kèm tên và avatar).
+     */
+    public LeaderboardDeltaDTO generateLeaderboardSnapshot(GameSession session) {
+        LeaderboardDeltaTracker tracker = session.getLeaderboardDeltas();
+        int[] order = tracker.publishedOrder();
+
+        List<LeaderboardDeltaDTO.Entry> entries = new ArrayList<>(order.length);
+        for (int slot : order) {
+            ParticipantSession participant = session.getParticipantBySlot(slot);
+            entries.add(LeaderboardDeltaDTO.Entry.builder()
+                    .userId(participant.getUserId())
+                    .score(tracker.publishedScore(slot))
+                    .rank(tracker.publishedRank(slot))
+                    .username(participant.getUsername())
+                    .avatar(participant.getAvatarUrl())
+                    .build());
+        }
+
+        return LeaderboardDeltaDTO.builder()
+                .sequence(tracker.sequence())
+                .snapshot(true)
+                .totalPlayers(session.getLeaderboard().size())
+                .entries(entries)
+                .build();
+    }
+
+    /**
+     * Tạo bảng xếp hạng riêng của một người chơi: thứ hạng, điểm và các người chơi xung quanh.
+     */
+    public PlayerLeaderboardDTO generatePlayerLeaderboardDTO(
+            GameSession session,
+            ParticipantSession participant,
+            int neighbours
+    ) {
+        LiveLeaderboard liveLeaderboard = session.getLeaderboard();
+        int rank = liveLeaderboard.rankOf(participant.getSlot());
+        int fromRank = Math.max(1, rank - neighbours);
+
+        // Các người chơi từ fromRank đến rank + neighbours
+        List<ParticipantSession> around = rankedParticipants(session, fromRank, rank + neighbours - fromRank + 1);
+
+        return PlayerLeaderboardDTO.builder()
+                .userId(participant.getUserId())
+                .rank(rank)
+                .score(participant.getScore())
+                .totalPlayers(liveLeaderboard.size())
+                .neighbours(getPlayerRankingDTOS(around, fromRank))
+                .build();
+    }
+
+    /**
+     * Danh sách người chơi theo thứ tự xếp hạng bắt đầu từ thứ hạng {@code fromRank}, không cần sắp xếp lại.
+     * Đồng thời cập nhật thứ hạng hiện tại của từng người chơi trong danh sách.
+     */
+    private List<ParticipantSession> rankedParticipants(GameSession session, int fromRank, int count) {
+        int[] slots = session.getLeaderboard().range(fromRank, count);
+
+        List<ParticipantSession> participants = new ArrayList<>(slots.length);
+        for (int i = 0; i < slots.length; i++) {
+            ParticipantSession participant = session.getParticipantBySlot(slots[i]);
+            participant.setRank(fromRank + i);
+            participants.add(participant);
+        }
+        return participants;
+    }
+
+    private List<PlayerRankingDTO> getPlayerRankingDTOS(List<ParticipantSession> participants, int firstRank) {
         List<PlayerRankingDTO> leaderboard = new ArrayList<>();
 
         // Lặp qua từng người chơi và tạo PlayerRankingDTO
         for (int i = 0; i < participants.size(); i++) {
             ParticipantSession participant = participants.get(i);
 
-            // Lấy info người dùng
-            Long userId = participant.getUserId();
-
-            // Lấy avatar của người dùng từ repository
-            String avatar = userRepository.findAvatarByUserId(userId).orElse(null);
-
-            // Chuye
-            String urlAvatar = localStorageService.getProfileImageUrl(avatar);
-
             // Tạo PlayerRankingDTO
             PlayerRankingDTO playerRankingDTO = new PlayerRankingDTO();
             playerRankingDTO.setUserId(participant.getUserId());
             playerRankingDTO.setUsername(participant.getUsername());
             playerRankingDTO.setScore(participant.getScore());
-            playerRankingDTO.setRank(i + 1);
-            playerRankingDTO.setAvatar(urlAvatar);
+            playerRankingDTO.setRank(firstRank + i);
+            playerRankingDTO.setAvatar(participant.getAvatarUrl());
 
             leaderboard.add(playerRankingDTO);
         }
@@ -337,23 +438,58 @@ public class GameProgressService {
      * Hoàn thiện kết quả trò chơi
      */
     public GameResult finalizeResults(GameSession session) {
-        // Lấy quit từ phiên
-        Quiz quiz = quizRepository.findById(session.getQuizId())
-                .orElseThrow(() -> new IllegalArgumentException("Quiz not found"));
+        // Lấy GameResult đã tạo khi khởi tạo phiên, hoặc tạo mới nếu chưa có
+        GameResult gameResult = session.getGameResultId() != null
+                ? gameResultService.findGameResult(session.getGameResultId()).orElse(null)
+                : null;
+        if (gameResult == null) {
+            gameResult = newGameResult(session);
+        }
 
-        // Lấy phòng từ phiên
-        Room room = RoomRepository.findById(session.getRoomId())
-                .orElseThrow(() -> new IllegalArgumentException("Room not found"));
+        // Thiết lập thời gian và thống kê từ phiên chơi
+        gameResult.setStartTime(session.getStartTime());
+        gameResult.setEndTime(session.getEndTime());
+        gameResult.setParticipantCount(session.getParticipants().size());
+        gameResult.setQuestionCount(session.getQuestions().size());
 
-        // Tạo GameResultDTO
-        GameResult gameResult = new GameResult();
-        gameResult.setQuiz(quiz);
-        gameResult.setRoom(room);
+        IntSummaryStatistics scores = session.getParticipants().values().stream()
+                .mapToInt(ParticipantSession::getScore)
+                .summaryStatistics();
+        if (scores.getCount() > 0) {
+            gameResult.setAvgScore(scores.getAverage());
+            gameResult.setHighestScore(scores.getMax());
+            gameResult.setLowestScore(scores.getMin());
+        }
+
+        // Tỷ lệ hoàn thành từ bộ đếm của các bảng câu trả lời
+        int totalAnswers = Arrays.stream(session.getAnswerSheets())
+                .mapToInt(AnswerSheet::answeredCount)
+                .sum();
+        int maxPossibleAnswers = session.getParticipants().size() * session.getQuestions().size();
+        gameResult.setCompletionRate(maxPossibleAnswers > 0 ?
+                (double) totalAnswers / maxPossibleAnswers : 0.0);
 
         // Trả về kết quả trò chơi
         return gameResultService.saveGameResult(gameResult);
     }
 
+    /**
+     * Tạo GameResult khi khởi tạo phiên chơi, làm khoá cho câu trả lời được ghi trong lúc chơi.
+     */
+    public GameResult createGameResult(GameSession session) {
+        GameResult gameResult = newGameResult(session);
+        gameResult.setParticipantCount(session.getParticipants().size());
+        gameResult.setQuestionCount(session.getQuestions().size());
+        return gameResultService.saveGameResult(gameResult);
+    }
+
+    private GameResult newGameResult(GameSession session) {
+        GameResult gameResult = new GameResult();
+        gameResult.setQuiz(quizRepository.getReferenceById(session.getQuizId()));
+        gameResult.setRoom(RoomRepository.getReferenceById(session.getRoomId()));
+        return gameResult;
+    }
+
     /**
      * Lưu kết quả trò chơi (phương thức cũ - deprecated)
      */
@@ -380,8 +516,8 @@ public class GameProgressService {
                 .min().orElse(0));
 
         // Tính completion rate (tỷ lệ hoàn thành)
-        int totalAnswers = session.getParticipants().values().stream()
-                .mapToInt(p -> p.getAnswers().size())
+        int totalAnswers = Arrays.stream(session.getAnswerSheets())
+                .mapToInt(AnswerSheet::answeredCount)
                 .sum();
         int maxPossibleAnswers = session.getParticipants().size() * session.getQuestions().size();
         gameResult.setCompletionRate(maxPossibleAnswers > 0 ?
@@ -10,6 +10,7 @@ import org.springframework.stereotype.Service;
 import lombok.RequiredArgsConstructor;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Quản lý và truy vấn kết quả trò chơi
@@ -30,6 +31,13 @@ public class GameResultService {
         return gameResultRepository.save(gameResult);
     }
 
+    /**
+     * Tìm kết quả trò chơi theo ID
+     */
+    public Optional<GameResult> findGameResult(Long gameResultId) {
+        return gameResultRepository.findById(gameResultId);
+    }
+
     /**
      * Lấy kết quả trò chơi
      */
@@ -1,34 +1,68 @@
 package com.huy.quizme_backend.service;
 
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.huy.quizme_backend.dto.event.PlayerBatchEventResponse;
+import com.huy.quizme_backend.dto.event.PlayerEventResponse;
 import com.huy.quizme_backend.dto.game.AnswerRequest;
 import com.huy.quizme_backend.dto.game.GameResultDTO;
 import com.huy.quizme_backend.dto.game.GameResultDTO.FinalPlayerRankingDTO;
 import com.huy.quizme_backend.dto.game.GameStateDTO;
+import com.huy.quizme_backend.config.GameProperties;
 import com.huy.quizme_backend.dto.game.LeaderboardDTO;
+import com.huy.quizme_backend.dto.game.PhaseEventDTO;
+import com.huy.quizme_backend.dto.game.PlayerLeaderboardDTO;
+import com.huy.quizme_backend.dto.game.PlayerQuestionResultDTO;
 import com.huy.quizme_backend.dto.game.QuestionGameDTO;
 import com.huy.quizme_backend.dto.game.QuestionResultDTO;
+import com.huy.quizme_backend.engine.GameClock;
+import com.huy.quizme_backend.engine.GameJournal;
+import com.huy.quizme_backend.engine.RoomActorExecutor;
+import com.huy.quizme_backend.event.GameSessionRecoveredEvent;
+import com.huy.quizme_backend.event.UserAvatarChangedEvent;
 import com.huy.quizme_backend.enity.*;
 import com.huy.quizme_backend.repository.*;
+import com.huy.quizme_backend.session.AnswerKey;
+import com.huy.quizme_backend.session.AnswerSheet;
 import com.huy.quizme_backend.session.ConnectionStatus;
 import com.huy.quizme_backend.session.GameSession;
 import com.huy.quizme_backend.session.GameStatus;
+import com.huy.quizme_backend.session.LeaderboardDeltaTracker;
 import com.huy.quizme_backend.session.ParticipantSession;
+import com.huy.quizme_backend.session.PhaseState;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import jakarta.annotation.PreDestroy;
 
-import java.time.Duration;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
 
 /**
  * Quản lý vòng đời và trạng thái phiên chơi game.
+ * <p>
+ * Mọi thay đổi trạng thái của một phiên chơi (chuyển giai đoạn, kết nối/ngắt kết nối, kết thúc game)
+ * đều chạy trên actor của phòng ({@link RoomActorExecutor}), nên được áp dụng tuần tự theo thứ tự.
+ * Riêng câu trả lời được ghi trực tiếp vào {@link AnswerSheet} từ thread gửi.
+ * <p>
+ * Mỗi giai đoạn được chuyển bằng compare-and-set trên {@link PhaseState} mà nó bắt đầu từ đó;
+ * timer cũ hoặc trigger trùng lặp sẽ bị từ chối mà không gây thêm broadcast hay truy vấn DB.
  */
 @Service
 @RequiredArgsConstructor
@@ -38,47 +72,71 @@ public class GameSessionService {
     private final LocalStorageService localStorageService;
     private final GameProgressService gameProgressService;
     private final GameResultService gameResultService;
+    private final GameAnswerWriter gameAnswerWriter;
+    private final GameFinalizationService gameFinalizationService;
     private final RoomRepository roomRepository;
     private final RoomParticipantRepository roomParticipantRepository;
-    private final QuizRepository quizRepository;
-    private final QuestionRepository questionRepository;
-    private final QuestionOptionRepository questionOptionRepository;
+    private final GameClock gameClock;
+    private final GameJournal gameJournal;
+    private final RoomActorExecutor roomActors;
+    private final MeterRegistry meterRegistry;
+    private final GameProperties gameProperties;
+    private final ApplicationEventPublisher eventPublisher;
 
     // Lưu trữ trạng thái các phiên chơi in-memory
     private final ConcurrentMap<Long, GameSession> sessions = new ConcurrentHashMap<>();
 
-    // Thread pool để quản lý các timer
-    private final ScheduledExecutorService timerExecutor = Executors.newScheduledThreadPool(10);
+    // Thời gian (giây) của các giai đoạn giữa hai câu hỏi
+    private static final int RESULT_DISPLAY_SECONDS = 5;
+    private static final int LEADERBOARD_DISPLAY_SECONDS = 5;
+    private static final int NEXT_QUESTION_COUNTDOWN_SECONDS = 5;
 
     /**
      * Khởi tạo phiên chơi mới.
      */
     public GameSession initGameSession(Long roomId) {
+        return initGameSession(roomId, null);
+    }
+
+    /**
+     * Khởi tạo phiên chơi mới.
+     *
+     * @param legacyTimerTicks Gửi sự kiện TIMER mỗi giây cho client cũ; null để dùng cấu hình mặc định
+     */
+    public GameSession initGameSession(Long roomId, Boolean legacyTimerTicks) {
         Long quizId = roomRepository.findQuizIdById(roomId);
 
         // Khởi tạo phiên chơi
         GameSession gameSession = new GameSession();
         gameSession.setRoomId(roomId);
         gameSession.setQuizId(quizId);
-        gameSession.setStatus(GameStatus.WAITING);
+        gameSession.setLegacyTimerTicks(legacyTimerTicks != null
+                ? legacyTimerTicks
+                : gameProperties.isLegacyTimerTicks());
 
         // Lấy danh sách người chơi trong phòng
-        List<RoomParticipant> participantSession = roomParticipantRepository.findByRoomId(roomId);
+        List<RoomParticipant> participantSession = roomParticipantRepository.findWithUserByRoomId(roomId);
         // Lưu danh sách người chơi vào phiên chơi
+        int slot = 0;
         for (RoomParticipant participant : participantSession) {
             ParticipantSession session = new ParticipantSession();
+            session.setSlot(slot++);
+            session.setParticipantId(participant.getId());
             session.setUserId(participant.getUser().getId());
             session.setUsername(participant.getUser().getUsername());
+            session.setAvatarUrl(localStorageService.getProfileImageUrl(participant.getUser().getProfileImage()));
             session.setScore(0);
             session.setRank(0);
             session.setConnectionStatus(ConnectionStatus.ACTIVE);
             gameSession.getParticipants().put(participant.getUser().getId(), session);
         }
 
-        // Lấy danh sách câu hỏi từ quiz
-        List<QuestionGameDTO> questionGameDTO = gameProgressService.loadQuizAndPrepareQuestions(quizId);
-        // Lưu danh sách câu hỏi vào phiên chơi
-        gameSession.setQuestions(questionGameDTO);
+        prepareSession(gameSession);
+        // Tạo trước GameResult để câu trả lời của từng câu hỏi được ghi ngay khi câu hỏi kết thúc
+        gameSession.setGameResultId(gameProgressService.createGameResult(gameSession).getId());
+
+        // Ghi trạng thái ban đầu vào journal để có thể khôi phục phiên chơi khi khởi động lại
+        gameJournal.open(gameSession);
 
         // Lưu phiên chơi vào bộ nhớ
         sessions.put(roomId, gameSession);
@@ -86,6 +144,42 @@ public class GameSessionService {
         return gameSession;
     }
 
+    /**
+     * Chuẩn bị phiên chơi đã có danh sách người chơi: tải câu hỏi, cấp phát bảng câu trả lời
+     * và bảng xếp hạng, chọn chế độ gửi bảng xếp hạng. Dùng chung khi khởi tạo và khi khôi phục.
+     */
+    private void prepareSession(GameSession gameSession) {
+        // Tải câu hỏi và biên dịch đáp án một lần cho cả phiên chơi
+        gameProgressService.loadQuizIntoSession(gameSession);
+        // Chuẩn bị sẵn payload câu hỏi để không phải serialize khi chuyển giai đoạn
+        prepareQuestionPayloads(gameSession);
+        // Cấp phát trước bảng câu trả lời và bảng xếp hạng theo slot người chơi
+        gameSession.allocateSlots();
+        gameSession.setLargeRoom(gameSession.getParticipants().size() >= gameProperties.getLargeRoomThreshold());
+        if (gameSession.getParticipants().size() >= gameProperties.getTopLeaderboardThreshold()) {
+            gameSession.setLeaderboardTopN(gameProperties.getLeaderboardTopN());
+        } else if (gameProperties.isDeltaLeaderboard()) {
+            // Công bố trạng thái ban đầu (sequence 1) để gửi snapshot khi bắt đầu game
+            LeaderboardDeltaTracker tracker = new LeaderboardDeltaTracker(gameSession.getParticipants().size());
+            tracker.advance(gameSession.getLeaderboard());
+            gameSession.setLeaderboardDeltas(tracker);
+        }
+    }
+
+    /**
+     * Chuyển đường dẫn media của câu hỏi thành URL đầy đủ và serialize sẵn từng câu hỏi.
+     * Thực hiện một lần khi khởi tạo phiên chơi; các DTO không bị thay đổi sau đó.
+     */
+    private void prepareQuestionPayloads(GameSession gameSession) {
+        List<RawValue> payloads = new ArrayList<>(gameSession.getQuestions().size());
+        for (QuestionGameDTO question : gameSession.getQuestions()) {
+            question.setImageUrl(localStorageService.getQuestionImageUrl(question.getImageUrl()));
+            question.setAudioUrl(localStorageService.getQuestionAudioUrl(question.getAudioUrl()));
+            payloads.add(webSocketService.preparePayload(question));
+        }
+        gameSession.setQuestionPayloads(List.copyOf(payloads));
+    }
+
     /**
      * Bắt đầu trò chơi trong phòng.
      */
@@ -96,54 +190,58 @@ public class GameSessionService {
             return false; // Phiên chơi không tồn tại
         }
 
-        // Đặt trạng thái trò chơi là ĐANG CHƠI
-        gameSession.setStatus(GameStatus.IN_PROGRESS);
-        // Đặt thời gian bắt đầu trò chơi
-        gameSession.setStartTime(LocalDateTime.now());
-
-        // Gửi thông báo đến tất cả người chơi
-        webSocketService.sendGameStartEvent(roomId, "Trò chơi đã bắt đầu!");
-
-        // Bắt đầu câu hỏi đầu tiên
-        startQuestion(roomId, 0);
+        // Bắt đầu câu hỏi đầu tiên (thông báo bắt đầu game được gửi kèm khi chuyển từ WAITING)
+        roomActors.execute(roomId, () -> startQuestion(roomId, gameSession.getPhase(), 0));
 
         return true;
     }
 
     /**
      * Bắt đầu câu hỏi mới.
+     *
+     * @param from Giai đoạn mà việc chuyển sang câu hỏi mới bắt đầu từ đó
      */
-    public void startQuestion(Long roomId, int questionIndex) {
+    private void startQuestion(Long roomId, PhaseState from, int questionIndex) {
         GameSession gameSession = sessions.get(roomId);
+        if (gameSession == null) {
+            return;
+        }
 
         // Kiểm tra còn câu hỏi không
         if (questionIndex >= gameSession.getQuestions().size()) {
             // Không còn câu hỏi nào
-            endGame(roomId);
+            endGame(roomId, from);
             return;
         }
 
         // Cập nhật trạng thái câu hỏi
-        gameSession.setCurrentQuestionIndex(questionIndex);
-        gameSession.setStatus(GameStatus.IN_PROGRESS);
+        if (!transition(gameSession, from, GameStatus.IN_PROGRESS, questionIndex)) {
+            return;
+        }
         gameSession.setStartTime(LocalDateTime.now());
+        PhaseState questionPhase = gameSession.getPhase();
+
+        // Gửi thông báo bắt đầu game trước câu hỏi đầu tiên
+        if (from.getStatus() == GameStatus.WAITING) {
+            webSocketService.sendGameStartEvent(roomId, "Trò chơi đã bắt đầu!");
+
+            // Chế độ delta: gửi snapshot bảng xếp hạng làm mốc ban đầu
+            if (gameSession.getLeaderboardDeltas() != null) {
+                webSocketService.sendLeaderboardDeltaEvent(roomId, gameProgressService.generateLeaderboardSnapshot(gameSession));
+            }
+        }
 
         // Lấy câu hỏi hiện tại
         QuestionGameDTO currentQuestion = gameSession.getQuestions().get(questionIndex);
 
-        // Cập nhật URL hình ảnh nếu có
-        currentQuestion.setImageUrl(localStorageService.getQuestionImageUrl(currentQuestion.getImageUrl()));
-        // Gửi câu hỏi đến tất cả người chơi
-        webSocketService.sendQuestionEvent(roomId, currentQuestion);
-
-        // Huỷ timer hiện tại nếu có
-        cancelCurrentTimer(gameSession);
+        // Gửi câu hỏi (đã serialize sẵn) đến tất cả người chơi
+        webSocketService.sendQuestionEvent(roomId, gameSession.getQuestionPayloads().get(questionIndex));
 
         log.info("Bắt đầu câu hỏi {} cho phòng {}. Thời gian: {} giây",
                 questionIndex + 1, roomId, currentQuestion.getTimeLimit());
 
-        // Bắt đầu timer đếm ngược từng giây
-        startQuestionTimer(roomId, currentQuestion.getTimeLimit());
+        // Bắt đầu timer đếm ngược (thay thế timer của giai đoạn trước)
+        startQuestionTimer(gameSession, questionPhase, currentQuestion.getTimeLimit());
     }
 
     /**
@@ -151,7 +249,13 @@ public class GameSessionService {
      */
     public boolean processAnswerSubmission(Long roomId, Long userId, AnswerRequest answerRequest) {
         GameSession gameSession = sessions.get(roomId);
-        if (gameSession == null || gameSession.getStatus() != GameStatus.IN_PROGRESS) {
+        if (gameSession == null) {
+            return false;
+        }
+
+        // Đọc giai đoạn một lần để trạng thái và chỉ số câu hỏi nhất quán với nhau
+        PhaseState phase = gameSession.getPhase();
+        if (phase.getStatus() != GameStatus.IN_PROGRESS) {
             return false;
         }
 
@@ -161,77 +265,94 @@ public class GameSessionService {
             return false;
         }
 
-        // Kiểm tra xem người chơi đã trả lời câu hỏi này chưa
-        if (participantSession.getAnswers().containsKey(answerRequest.getQuestionId())) {
-            return false; // Đã trả lời rồi
+        // Chỉ chấp nhận câu trả lời cho câu hỏi đang diễn ra
+        int questionIndex = phase.getQuestionIndex();
+        AnswerKey answerKey = gameSession.getAnswerKeys().get(questionIndex);
+        if (!answerKey.getQuestionId().equals(answerRequest.getQuestionId())) {
+            return false;
         }
 
-        // Tạo GamePlayerAnswerOption
-        List<GamePlayerAnswerOption> selectedOptions = answerRequest.getSelectedOptions().stream()
-                .map(optionId -> {
-                    QuestionOption option = questionOptionRepository.findById(optionId).orElse(null);
-                    return GamePlayerAnswerOption.builder()
-                            .option(option)
-                            .build();
-                }).toList();
+        // Chuyển các lựa chọn thành bitmask theo đáp án đã biên dịch (không truy vấn DB)
+        int selectedMask = answerKey.toMask(answerRequest.getSelectedOptions());
+        if (selectedMask == 0 || answerRequest.getAnswerTime() == null) {
+            return false; // Không có lựa chọn hợp lệ
+        }
 
-        // Tạo GamePlayerAnswer từ request
-        GamePlayerAnswer playerAnswer = GamePlayerAnswer.builder()
-                .question(questionRepository.findById(answerRequest.getQuestionId()).orElse(null))
-                .answerTime(answerRequest.getAnswerTime())
-                .selectedOptions(selectedOptions)
-                .build();
+        // Thời gian trả lời (ms) lưu dạng số nguyên trong bảng câu trả lời
+        int answerTimeMs = (int) Math.min(Integer.MAX_VALUE, Math.max(0, Math.round(answerRequest.getAnswerTime())));
 
-        // Lưu các lựa chọn đã chọn (cần tạo GamePlayerAnswerOption entities)
-        // Note: Trong thực tế cần tạo và lưu GamePlayerAnswerOption entities
-        // Hiện tại chỉ lưu IDs tạm thời
+        // Chấm đúng/sai ngay để cập nhật thống kê của câu hỏi
+        boolean isCorrect = gameProgressService.validateAnswer(answerKey, selectedMask);
 
-        // Lưu câu trả lời vào session
-        participantSession.getAnswers().put(answerRequest.getQuestionId(), playerAnswer);
+        // Lưu câu trả lời vào ô của người chơi (chỉ câu trả lời đầu tiên được giữ lại)
+        AnswerSheet answerSheet = gameSession.getAnswerSheets()[questionIndex];
+        if (!answerSheet.submit(participantSession.getSlot(), selectedMask, answerTimeMs, isCorrect)) {
+            return false;
+        }
 
+        gameJournal.appendAnswer(roomId, questionIndex, participantSession.getSlot(), selectedMask, answerTimeMs, isCorrect);
         return true;
     }
 
     /**
      * Kết thúc câu hỏi hiện tại và gửi kết quả.
+     *
+     * @param from Giai đoạn câu hỏi đang kết thúc
      */
-    public void endCurrentQuestion(Long roomId) {
+    private void endCurrentQuestion(Long roomId, PhaseState from) {
         GameSession gameSession = sessions.get(roomId);
-        if (gameSession == null || gameSession.getCurrentQuestionIndex() == null) {
+        if (gameSession == null) {
             return;
         }
 
-        log.info("Kết thúc câu hỏi {} trong phòng {}",
-                gameSession.getCurrentQuestionIndex() + 1, roomId);
-
-        // Hủy các timer hiện tại
-        cancelCurrentTimer(gameSession);
-
         // Đặt trạng thái là kết thúc câu hỏi
-        gameSession.setStatus(GameStatus.QUESTION_END);
-
-        // Lấy câu hỏi hiện tại
-        QuestionGameDTO currentQuestionDTO = gameSession.getQuestions().get(gameSession.getCurrentQuestionIndex());
-        // Sử dụng findByIdWithOptions để eager load options và tránh lỗi lazy loading trong timer thread
-        Question currentQuestionEntity = questionRepository.findByIdWithOptions(currentQuestionDTO.getQuestionId()).orElse(null);
-
-        if (currentQuestionEntity == null) {
-            log.error("Không tìm thấy câu hỏi với ID {} trong phòng {}",
-                    currentQuestionDTO.getQuestionId(), roomId);
+        if (!transition(gameSession, from, GameStatus.QUESTION_END, from.getQuestionIndex())) {
             return;
         }
 
+        log.info("Kết thúc câu hỏi {} trong phòng {}", from.getQuestionIndex() + 1, roomId);
+
+        // Lấy đáp án đã biên dịch và bảng câu trả lời của câu hỏi hiện tại
+        AnswerKey answerKey = gameSession.getAnswerKeys().get(from.getQuestionIndex());
+        AnswerSheet answerSheet = gameSession.getAnswerSheets()[from.getQuestionIndex()];
+
+        // Niêm phong bảng câu trả lời để câu trả lời đến muộn không lọt vào sau khi chấm điểm
+        answerSheet.seal();
+
         // Tính kết quả cho câu hỏi này
-        QuestionResultDTO questionResult = gameProgressService.calculateResults(gameSession, currentQuestionEntity);
+        QuestionResultDTO questionResult = gameProgressService.calculateResults(gameSession, answerKey, answerSheet);
+        gameJournal.appendScores(roomId, from.getQuestionIndex(), answerSheet);
+
+        // Ghi câu trả lời vào database trên thread ghi riêng
+        gameAnswerWriter.enqueue(gameSession, answerKey, answerSheet);
 
         // Bắt đầu giai đoạn hiển thị kết quả (5 giây)
-        startShowingResults(roomId, questionResult);
+        startShowingResults(roomId, gameSession.getPhase(), questionResult);
+
+        // Phòng lớn: gửi phần kết quả riêng cho từng người chơi đang kết nối
+        if (gameSession.isLargeRoom()) {
+            sendPlayerResults(gameSession, answerKey, answerSheet);
+        }
+    }
+
+    /**
+     * Gửi kết quả câu hỏi riêng (câu trả lời, điểm nhận được, thứ hạng mới) cho từng người chơi.
+     */
+    private void sendPlayerResults(GameSession gameSession, AnswerKey answerKey, AnswerSheet answerSheet) {
+        for (ParticipantSession participant : gameSession.getParticipants().values()) {
+            if (participant.getConnectionStatus() != ConnectionStatus.ACTIVE) {
+                continue;
+            }
+            PlayerQuestionResultDTO playerResult =
+                    gameProgressService.generatePlayerResult(gameSession, answerKey, answerSheet, participant);
+            webSocketService.sendPlayerQuestionResult(participant.getUsername(), playerResult);
+        }
     }
 
     /**
      * Bắt đầu giai đoạn hiển thị kết quả câu hỏi (5 giây).
      */
-    private void startShowingResults(Long roomId, QuestionResultDTO questionResult) {
+    private void startShowingResults(Long roomId, PhaseState from, QuestionResultDTO questionResult) {
         GameSession gameSession = sessions.get(roomId);
         if (gameSession == null) {
             log.warn("Không tìm thấy phiên chơi {} để hiển thị kết quả", roomId);
@@ -239,72 +360,29 @@ public class GameSessionService {
         }
 
         // Đặt trạng thái hiển thị kết quả
-        gameSession.setStatus(GameStatus.SHOWING_RESULTS);
+        if (!transition(gameSession, from, GameStatus.SHOWING_RESULTS, from.getQuestionIndex())) {
+            return;
+        }
         gameSession.setStartTime(LocalDateTime.now());
+        PhaseState resultsPhase = gameSession.getPhase();
 
         // Gửi kết quả câu hỏi đến tất cả người chơi
         webSocketService.sendQuestionResultEvent(roomId, questionResult);
 
-        log.info("Bắt đầu hiển thị kết quả câu hỏi trong 5 giây cho phòng {}", roomId);
-
-        // Hủy timer hiện tại nếu có
-        cancelCurrentTimer(gameSession);
-
-        // Bắt đầu timer hiển thị kết quả 5 giây
-        AtomicBoolean showingResultsActive = new AtomicBoolean(true);
-
-        ScheduledFuture<?> showResultsTask = timerExecutor.scheduleAtFixedRate(() -> {
-            if (!showingResultsActive.get()) {
-                return;
-            }
-
-            try {
-                GameSession session = sessions.get(roomId);
-                if (session == null || session.getStatus() != GameStatus.SHOWING_RESULTS) {
-                    showingResultsActive.set(false);
-                    return;
-                }
+        log.info("Bắt đầu hiển thị kết quả câu hỏi trong {} giây cho phòng {}", RESULT_DISPLAY_SECONDS, roomId);
 
-                // Tính thời gian đã trôi qua kể từ khi bắt đầu hiển thị kết quả
-                long elapsedTime = Duration.between(session.getStartTime(), LocalDateTime.now()).getSeconds();
-                int remainingTime = Math.max(0, 5 - (int) elapsedTime);
-
-                log.debug("Hiển thị kết quả - Phòng {}: {} giây còn lại", roomId, remainingTime);
-
-                // Gửi timer event với countdown cho việc hiển thị kết quả
-                webSocketService.sendTimerEvent(roomId, remainingTime, 5);
-
-                if (remainingTime <= 0) {
-                    showingResultsActive.set(false);
+        // Bắt đầu giai đoạn hiển thị kết quả, hết giờ thì chuyển sang bảng xếp hạng
+        startPhaseTimer(gameSession, resultsPhase, RESULT_DISPLAY_SECONDS,
+                () -> {
                     log.info("Kết thúc hiển thị kết quả, bắt đầu hiển thị bảng xếp hạng trong phòng {}", roomId);
-                    startShowingLeaderboard(roomId);
-                }
-
-            } catch (Exception e) {
-                log.error("Lỗi khi hiển thị kết quả cho phòng {}: {}", roomId, e.getMessage(), e);
-                showingResultsActive.set(false);
-            }
-        }, 0, 1, TimeUnit.SECONDS);
-
-        // Backup timer để đảm bảo chuyển sang hiển thị bảng xếp hạng
-        ScheduledFuture<?> backupTask = timerExecutor.schedule(() -> {
-            showingResultsActive.set(false);
-            if (!showResultsTask.isDone()) {
-                showResultsTask.cancel(true);
-            }
-            log.info("Backup timer kích hoạt cho hiển thị kết quả phòng {}", roomId);
-            startShowingLeaderboard(roomId);
-        }, 6, TimeUnit.SECONDS); // +1 giây buffer
-
-        // Lưu timer vào session
-        gameSession.setCurrentTimer(showResultsTask);
-        gameSession.setEndTimer(backupTask);
+                    startShowingLeaderboard(roomId, resultsPhase);
+                });
     }
 
     /**
      * Bắt đầu giai đoạn hiển thị bảng xếp hạng (5 giây).
      */
-    private void startShowingLeaderboard(Long roomId) {
+    private void startShowingLeaderboard(Long roomId, PhaseState from) {
         GameSession gameSession = sessions.get(roomId);
         if (gameSession == null) {
             log.warn("Không tìm thấy phiên chơi {} để hiển thị bảng xếp hạng", roomId);
@@ -312,95 +390,78 @@ public class GameSessionService {
         }
 
         // Đặt trạng thái hiển thị bảng xếp hạng
-        gameSession.setStatus(GameStatus.SHOWING_LEADERBOARD);
+        if (!transition(gameSession, from, GameStatus.SHOWING_LEADERBOARD, from.getQuestionIndex())) {
+            return;
+        }
         gameSession.setStartTime(LocalDateTime.now());
-
-        // Tạo và gửi bảng xếp hạng cập nhật
-        LeaderboardDTO leaderboard = gameProgressService.generateLeaderboardDTO(gameSession);
-        webSocketService.sendLeaderboardEvent(roomId, leaderboard);
-
-        log.info("Bắt đầu hiển thị bảng xếp hạng trong 5 giây cho phòng {}", roomId);
-
-        // Hủy timer hiện tại nếu có
-        cancelCurrentTimer(gameSession);
-
-        // Bắt đầu timer hiển thị bảng xếp hạng 5 giây
-        AtomicBoolean showingLeaderboardActive = new AtomicBoolean(true);
-
-        ScheduledFuture<?> showLeaderboardTask = timerExecutor.scheduleAtFixedRate(() -> {
-            if (!showingLeaderboardActive.get()) {
-                return;
+        PhaseState leaderboardPhase = gameSession.getPhase();
+
+        if (gameSession.getLeaderboardDeltas() != null) {
+            // Chế độ delta: chỉ gửi các người chơi có điểm hoặc thứ hạng thay đổi
+            webSocketService.sendLeaderboardDeltaEvent(roomId, gameProgressService.generateLeaderboardDelta(gameSession));
+        } else {
+            // Tạo và gửi bảng xếp hạng cập nhật (chế độ top-N chỉ gồm N người đứng đầu)
+            LeaderboardDTO leaderboard = gameProgressService.generateLeaderboardDTO(gameSession);
+            webSocketService.sendLeaderboardEvent(roomId, leaderboard);
+
+            // Chế độ top-N: mỗi người chơi nhận thứ hạng và người chơi xung quanh qua kênh riêng
+            if (gameSession.getLeaderboardTopN() > 0) {
+                sendPlayerLeaderboards(gameSession);
             }
+        }
 
-            try {
-                GameSession session = sessions.get(roomId);
-                if (session == null || session.getStatus() != GameStatus.SHOWING_LEADERBOARD) {
-                    showingLeaderboardActive.set(false);
-                    return;
-                }
-
-                // Tính thời gian đã trôi qua kể từ khi bắt đầu hiển thị bảng xếp hạng
-                long elapsedTime = Duration.between(session.getStartTime(), LocalDateTime.now()).getSeconds();
-                int remainingTime = Math.max(0, 5 - (int) elapsedTime);
-
-                log.debug("Hiển thị bảng xếp hạng - Phòng {}: {} giây còn lại", roomId, remainingTime);
-
-                // Gửi timer event với countdown cho việc hiển thị bảng xếp hạng
-                webSocketService.sendTimerEvent(roomId, remainingTime, 5);
+        log.info("Bắt đầu hiển thị bảng xếp hạng trong {} giây cho phòng {}", LEADERBOARD_DISPLAY_SECONDS, roomId);
 
-                if (remainingTime <= 0) {
-                    showingLeaderboardActive.set(false);
+        // Bắt đầu giai đoạn hiển thị bảng xếp hạng, hết giờ thì sang câu tiếp theo hoặc kết thúc game
+        startPhaseTimer(gameSession, leaderboardPhase, LEADERBOARD_DISPLAY_SECONDS,
+                () -> {
                     log.info("Kết thúc hiển thị bảng xếp hạng trong phòng {}", roomId);
+                    advanceAfterLeaderboard(roomId, leaderboardPhase);
+                });
+    }
 
-                    // Kiểm tra xem còn câu hỏi nào không
-                    int nextQuestionIndex = session.getCurrentQuestionIndex() + 1;
-                    if (nextQuestionIndex >= session.getQuestions().size()) {
-                        // Hết câu hỏi, kết thúc game
-                        log.info("Hết câu hỏi, kết thúc game trong phòng {}", roomId);
-                        endGame(roomId);
-                    } else {
-                        // Bắt đầu đếm ngược cho câu hỏi tiếp theo
-                        log.info("Bắt đầu đếm ngược 5 giây cho câu hỏi tiếp theo trong phòng {}", roomId);
-                        startNextQuestionCountdown(roomId, 5); // 5 giây countdown
-                    }
-                }
-
-            } catch (Exception e) {
-                log.error("Lỗi khi hiển thị bảng xếp hạng cho phòng {}: {}", roomId, e.getMessage(), e);
-                showingLeaderboardActive.set(false);
+    /**
+     * Gửi bảng xếp hạng riêng cho từng người chơi đang kết nối.
+     */
+    private void sendPlayerLeaderboards(GameSession gameSession) {
+        int neighbours = gameProperties.getLeaderboardNeighbours();
+        for (ParticipantSession participant : gameSession.getParticipants().values()) {
+            if (participant.getConnectionStatus() != ConnectionStatus.ACTIVE) {
+                continue;
             }
-        }, 0, 1, TimeUnit.SECONDS);
+            PlayerLeaderboardDTO playerLeaderboard =
+                    gameProgressService.generatePlayerLeaderboardDTO(gameSession, participant, neighbours);
+            webSocketService.sendPlayerLeaderboard(participant.getUsername(), playerLeaderboard);
+        }
+    }
 
-        // Backup timer để đảm bảo chuyển sang câu hỏi tiếp theo
-        ScheduledFuture<?> backupTask = timerExecutor.schedule(() -> {
-            showingLeaderboardActive.set(false);
-            if (showLeaderboardTask != null && !showLeaderboardTask.isDone()) {
-                showLeaderboardTask.cancel(true);
-            }
-            log.info("Backup timer kích hoạt cho hiển thị bảng xếp hạng phòng {}", roomId);
-
-            // Kiểm tra xem còn câu hỏi nào không
-            int nextQuestionIndex = gameSession.getCurrentQuestionIndex() + 1;
-            if (nextQuestionIndex >= gameSession.getQuestions().size()) {
-                // Hết câu hỏi, kết thúc game
-                log.info("Hết câu hỏi, kết thúc game trong phòng {}", roomId);
-                endGame(roomId);
-            } else {
-                // Bắt đầu đếm ngược cho câu hỏi tiếp theo
-                log.info("Bắt đầu đếm ngược 5 giây cho câu hỏi tiếp theo trong phòng {}", roomId);
-                startNextQuestionCountdown(roomId, 5); // 5 giây countdown
-            }
-        }, 6, TimeUnit.SECONDS); // +1 giây buffer
+    /**
+     * Chuyển sang câu hỏi tiếp theo hoặc kết thúc game sau khi hiển thị bảng xếp hạng.
+     */
+    private void advanceAfterLeaderboard(Long roomId, PhaseState from) {
+        GameSession gameSession = sessions.get(roomId);
+        if (gameSession == null) {
+            return;
+        }
 
-        // Lưu timer vào session
-        gameSession.setCurrentTimer(showLeaderboardTask);
-        gameSession.setEndTimer(backupTask);
+        // Kiểm tra xem còn câu hỏi nào không
+        int nextQuestionIndex = from.getQuestionIndex() + 1;
+        if (nextQuestionIndex >= gameSession.getQuestions().size()) {
+            // Hết câu hỏi, kết thúc game
+            log.info("Hết câu hỏi, kết thúc game trong phòng {}", roomId);
+            endGame(roomId, from);
+        } else {
+            // Bắt đầu đếm ngược cho câu hỏi tiếp theo
+            log.info("Bắt đầu đếm ngược {} giây cho câu hỏi tiếp theo trong phòng {}",
+                    NEXT_QUESTION_COUNTDOWN_SECONDS, roomId);
+            startNextQuestionCountdown(roomId, from, NEXT_QUESTION_COUNTDOWN_SECONDS);
+        }
     }
 
     /**
      * Đếm ngược thời gian trước câu hỏi tiếp theo.
      */
-    public void startNextQuestionCountdown(Long roomId, int seconds) {
+    private void startNextQuestionCountdown(Long roomId, PhaseState from, int seconds) {
         GameSession gameSession = sessions.get(roomId);
         if (gameSession == null) {
             log.warn("Không tìm thấy phiên chơi {} để bắt đầu đếm ngược", roomId);
@@ -408,70 +469,25 @@ public class GameSessionService {
         }
 
         // Đặt trạng thái đếm ngược
-        gameSession.setStatus(GameStatus.NEXT_QUESTION);
+        if (!transition(gameSession, from, GameStatus.NEXT_QUESTION, from.getQuestionIndex())) {
+            return;
+        }
+        gameSession.setStartTime(LocalDateTime.now());
+        PhaseState countdownPhase = gameSession.getPhase();
 
         // Gửi thông báo câu hỏi tiếp theo
-        int nextQuestionNumber = gameSession.getCurrentQuestionIndex() + 2; // +1 cho index, +1 cho số thứ tự
+        int nextQuestionNumber = from.getQuestionIndex() + 2; // +1 cho index, +1 cho số thứ tự
         webSocketService.sendNextQuestionEvent(roomId, nextQuestionNumber);
 
         log.info("Bắt đầu đếm ngược {} giây cho câu hỏi {} trong phòng {}",
                 seconds, nextQuestionNumber, roomId);
 
-        // Hủy timer hiện tại nếu có
-        cancelCurrentTimer(gameSession);
-
-        // Bắt đầu timer đếm ngược từng giây
-        AtomicBoolean countdownActive = new AtomicBoolean(true);
-
-        ScheduledFuture<?> countdownTask = timerExecutor.scheduleAtFixedRate(() -> {
-            if (!countdownActive.get()) {
-                return;
-            }
-
-            try {
-                GameSession session = sessions.get(roomId);
-                if (session == null || session.getStatus() != GameStatus.NEXT_QUESTION) {
-                    countdownActive.set(false);
-                    return;
-                }
-
-                // Tính thời gian đã trôi qua kể từ khi bắt đầu đếm ngược
-                long elapsedTime = Duration.between(session.getStartTime(), LocalDateTime.now()).getSeconds();
-                int remainingTime = Math.max(0, seconds - (int) elapsedTime);
-
-                log.debug("Đếm ngược câu hỏi tiếp theo - Phòng {}: {} giây còn lại", roomId, remainingTime);
-
-                // Gửi timer event với countdown
-                webSocketService.sendTimerEvent(roomId, remainingTime, seconds);
-
-                if (remainingTime <= 0) {
-                    countdownActive.set(false);
+        // Bắt đầu đếm ngược, hết giờ thì bắt đầu câu hỏi tiếp theo
+        startPhaseTimer(gameSession, countdownPhase, seconds,
+                () -> {
                     log.info("Kết thúc đếm ngược, bắt đầu câu hỏi tiếp theo trong phòng {}", roomId);
-                    int nextQuestionIndex = session.getCurrentQuestionIndex() + 1;
-                    startQuestion(roomId, nextQuestionIndex);
-                }
-
-            } catch (Exception e) {
-                log.error("Lỗi khi xử lý countdown cho phòng {}: {}", roomId, e.getMessage(), e);
-                countdownActive.set(false);
-            }
-        }, 0, 1, TimeUnit.SECONDS);
-
-        // Backup timer để đảm bảo chuyển câu hỏi
-        ScheduledFuture<?> backupTask = timerExecutor.schedule(() -> {
-            countdownActive.set(false);
-            if (countdownTask != null && !countdownTask.isDone()) {
-                countdownTask.cancel(true);
-            }
-            log.info("Backup countdown timer kích hoạt cho phòng {}", roomId);
-            int nextQuestionIndex = gameSession.getCurrentQuestionIndex() + 1;
-            startQuestion(roomId, nextQuestionIndex);
-        }, seconds + 1, TimeUnit.SECONDS);
-
-        // Cập nhật thời gian bắt đầu đếm ngược
-        gameSession.setStartTime(LocalDateTime.now());
-        gameSession.setCurrentTimer(countdownTask);
-        gameSession.setEndTimer(backupTask);
+                    startQuestion(roomId, countdownPhase, from.getQuestionIndex() + 1);
+                });
     }
 
     /**
@@ -483,25 +499,37 @@ public class GameSessionService {
             log.warn("Không tìm thấy phiên chơi {} để kết thúc", roomId);
             return null;
         }
+        return endGame(roomId, gameSession.getPhase());
+    }
 
-        log.info("Kết thúc trò chơi trong phòng {}", roomId);
+    /**
+     * Kết thúc trò chơi từ một giai đoạn cụ thể; không làm gì nếu giai đoạn đã thay đổi.
+     */
+    private GameResultDTO endGame(Long roomId, PhaseState from) {
+        GameSession gameSession = sessions.get(roomId);
+        if (gameSession == null) {
+            log.warn("Không tìm thấy phiên chơi {} để kết thúc", roomId);
+            return null;
+        }
 
         // Đặt trạng thái kết thúc
-        gameSession.setStatus(GameStatus.COMPLETED);
+        if (!transition(gameSession, from, GameStatus.COMPLETED, from.getQuestionIndex())) {
+            return null;
+        }
+
+        log.info("Kết thúc trò chơi trong phòng {}", roomId);
         gameSession.setEndTime(LocalDateTime.now());
 
         // Huỷ tất cả timer hiện tại
         cancelCurrentTimer(gameSession);
 
-        // Tính toán kết quả cuối cùng
-        GameResult savedGameResult = gameProgressService.finalizeResults(gameSession);
-
+        // Bảng xếp hạng cuối cùng lấy từ trạng thái trong bộ nhớ, không truy vấn DB
         List<FinalPlayerRankingDTO> finalRankings = gameProgressService.generateFinalPlayerRankingDTO(gameSession);
 
         // Tạo GameResultDTO để gửi về client
         GameResultDTO resultDTO = GameResultDTO.builder()
                 .roomId(roomId)
-                .quizTitle(quizRepository.findById(gameSession.getQuizId()).orElse(null).getTitle())
+                .quizTitle(gameSession.getQuizTitle())
                 .totalQuestions(gameSession.getQuestions().size())
                 .duration((int) java.time.Duration.between(gameSession.getStartTime(), gameSession.getEndTime()).getSeconds())
                 .finalRankings(finalRankings)
@@ -512,10 +540,51 @@ public class GameSessionService {
 
         // Xóa phiên chơi khỏi bộ nhớ
         sessions.remove(roomId);
+        Path journal = gameJournal.markCompleted(gameSession, true);
+
+        // Lưu kết quả vào database sau khi đã gửi GAME_END
+        CompletableFuture<GameResult> finalization = gameFinalizationService.finalizeAsync(gameSession);
+        completeJournal(roomId, journal, finalization);
 
         return resultDTO;
     }
 
+    /**
+     * Xoá journal của trò chơi đã kết thúc khi kết quả cuối cùng và mọi câu trả lời của phòng
+     * đã được lưu vào database; nếu không, journal (đã đánh dấu hoàn tất) được giữ lại để lưu lại khi khởi động.
+     *
+     * @param journal File journal đã đánh dấu hoàn tất, null nếu không có
+     */
+    private void completeJournal(Long roomId, Path journal, CompletableFuture<?> finalization) {
+        CompletableFuture<Boolean> finalized = finalization.handle((result, error) -> error == null);
+        gameAnswerWriter.roomFlushed(roomId).thenCombine(finalized, Boolean::logicalAnd).thenAccept(persisted -> {
+            if (journal == null) {
+                return;
+            }
+            if (persisted) {
+                gameJournal.discard(journal);
+            } else {
+                log.error("Kết quả trò chơi của phòng {} chưa được lưu đầy đủ, giữ lại journal {}", roomId, journal);
+            }
+        });
+    }
+
+    /**
+     * Gửi lại snapshot bảng xếp hạng cho người chơi khi client báo thiếu sequence trong luồng delta.
+     */
+    public void requestLeaderboardSnapshot(Long roomId, String username, Long lastSequence) {
+        roomActors.execute(roomId, () -> {
+            GameSession gameSession = sessions.get(roomId);
+            if (gameSession == null || gameSession.getLeaderboardDeltas() == null) {
+                return;
+            }
+
+            log.debug("Gửi snapshot bảng xếp hạng cho {} trong phòng {} (sequence client: {}, hiện tại: {})",
+                    username, roomId, lastSequence, gameSession.getLeaderboardDeltas().sequence());
+            webSocketService.sendPlayerLeaderboardSnapshot(username, gameProgressService.generateLeaderboardSnapshot(gameSession));
+        });
+    }
+
     /**
      * Xử lý khi người chơi kết nối lại.
      */
@@ -534,14 +603,23 @@ public class GameSessionService {
             return GameStateDTO.inactive();
         }
 
-        // Cập nhật trạng thái kết nối
-        participant.setConnectionStatus(ConnectionStatus.ACTIVE);
-        participant.setDisconnectedAt(null);
+        roomActors.execute(roomId, () -> {
+            // Cập nhật trạng thái kết nối
+            participant.setConnectionStatus(ConnectionStatus.ACTIVE);
+            participant.setDisconnectedAt(null);
 
-        // Thêm sessionId mới vào danh sách sessions của participant
-        if (sessionId != null) {
-            participant.getSessionIds().add(sessionId);
-        }
+            // Thêm sessionId mới vào danh sách sessions của participant
+            if (sessionId != null) {
+                participant.getSessionIds().add(sessionId);
+            }
+
+            // Gửi lại câu hỏi đang diễn ra từ payload đã serialize sẵn
+            PhaseState phase = gameSession.getPhase();
+            if (phase.getStatus() == GameStatus.IN_PROGRESS) {
+                webSocketService.sendPlayerQuestion(participant.getUsername(),
+                        gameSession.getQuestionPayloads().get(phase.getQuestionIndex()));
+            }
+        });
 
         log.info("Player {} successfully reconnected to room {}", userId, roomId);
 
@@ -549,10 +627,27 @@ public class GameSessionService {
         return getGameState(roomId);
     }
 
+    /**
+     * Người chơi có đang bị coi là mất kết nối trong phiên chơi của phòng hay không
+     * (ví dụ mọi người chơi của phiên chơi vừa được khôi phục từ journal).
+     */
+    public boolean isPlayerDisconnected(Long roomId, Long userId) {
+        GameSession gameSession = sessions.get(roomId);
+        if (gameSession == null) {
+            return false;
+        }
+        ParticipantSession participant = gameSession.getParticipants().get(userId);
+        return participant != null && participant.getConnectionStatus() == ConnectionStatus.DISCONNECTED;
+    }
+
     /**
      * Xử lý khi người chơi mất kết nối.
      */
     public void disconnectPlayer(Long roomId, Long userId) {
+        roomActors.execute(roomId, () -> applyPlayerDisconnect(roomId, userId));
+    }
+
+    private void applyPlayerDisconnect(Long roomId, Long userId) {
         log.info("Player {} disconnecting from room {}", userId, roomId);
 
         GameSession gameSession = sessions.get(roomId);
@@ -585,6 +680,10 @@ public class GameSessionService {
      * Xử lý khi host mất kết nối - kết thúc game session
      */
     public void handleHostDisconnect(Long roomId, Long hostUserId) {
+        roomActors.execute(roomId, () -> applyHostDisconnect(roomId, hostUserId));
+    }
+
+    private void applyHostDisconnect(Long roomId, Long hostUserId) {
         log.info("Host {} disconnecting from room {}, ending game session", hostUserId, roomId);
 
         GameSession gameSession = sessions.get(roomId);
@@ -608,13 +707,16 @@ public class GameSessionService {
         // Gửi thông báo cho các player khác về việc host disconnect
         log.info("Ending game session for room {} due to host disconnect", roomId);
 
-        // Hủy tất cả timer hiện tại
-        cancelCurrentTimer(gameSession);
-
         // Cập nhật trạng thái game session
-        gameSession.setStatus(GameStatus.COMPLETED);
+        if (!transition(gameSession, gameSession.getPhase(), GameStatus.COMPLETED, gameSession.getPhase().getQuestionIndex())) {
+            return;
+        }
         gameSession.setEndTime(LocalDateTime.now());
 
+        // Hủy tất cả timer hiện tại
+        cancelCurrentTimer(gameSession);
+        completeJournal(roomId, gameJournal.markCompleted(gameSession, false), CompletableFuture.completedFuture(null));
+
         // Tạo dữ liệu kết thúc game
         Map<String, Object> endGameData = new HashMap<>();
         endGameData.put("reason", "HOST_DISCONNECTED");
@@ -626,10 +728,14 @@ public class GameSessionService {
     }
 
     /**
-     * Xử lý khi người chơi timeout (không kết nối lại trong thời gian quy định)
+     * Xử lý một lô người chơi bị timeout trong cùng một phòng, gửi một thông báo cho cả lô.
      */
-    public void handlePlayerTimeout(Long roomId, Long userId) {
-        log.info("Player {} timed out from room {}", userId, roomId);
+    public void handlePlayerTimeouts(Long roomId, Collection<Long> userIds) {
+        roomActors.execute(roomId, () -> applyPlayerTimeouts(roomId, userIds));
+    }
+
+    private void applyPlayerTimeouts(Long roomId, Collection<Long> userIds) {
+        log.info("Players {} timed out from room {}", userIds, roomId);
 
         GameSession gameSession = sessions.get(roomId);
         if (gameSession == null) {
@@ -637,21 +743,37 @@ public class GameSessionService {
             return;
         }
 
-        ParticipantSession participant = gameSession.getParticipants().get(userId);
-        if (participant == null) {
-            log.debug("Player {} not found in game session for room {}", userId, roomId);
+        List<PlayerEventResponse> timedOut = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (Long userId : userIds) {
+            ParticipantSession participant = gameSession.getParticipants().get(userId);
+            if (participant == null) {
+                log.debug("Player {} not found in game session for room {}", userId, roomId);
+                continue;
+            }
+
+            // Cập nhật trạng thái timeout
+            participant.setConnectionStatus(ConnectionStatus.TIMED_OUT);
+            participant.setDisconnectedAt(now);
+            participant.getSessionIds().clear();
+            timedOut.add(PlayerEventResponse.builder()
+                    .userId(userId)
+                    .username(participant.getUsername())
+                    .message("Player " + participant.getUsername() + " has timed out")
+                    .eventType("timeout")
+                    .build());
+        }
+        if (timedOut.isEmpty()) {
             return;
         }
+        log.info("{} players marked as timed out in room {} at {}", timedOut.size(), roomId, now);
 
-        // Cập nhật trạng thái timeout
-        participant.setConnectionStatus(ConnectionStatus.TIMED_OUT);
-        participant.setDisconnectedAt(LocalDateTime.now());
-        participant.getSessionIds().clear();
-        log.info("Player {} marked as timed out in room {} at {}",
-                userId, roomId, participant.getDisconnectedAt());
-
-        // Gửi thông báo cho các player khác về việc timeout
-        webSocketService.sendPlayerTimeoutEvent(roomId, userId, participant.getUsername());
+        // Gửi thông báo cho các player khác về việc timeout (một thông báo cho cả lô)
+        webSocketService.sendPlayersTimeoutEvent(roomId, PlayerBatchEventResponse.builder()
+                .players(timedOut)
+                .message(timedOut.size() + " players have timed out")
+                .eventType("timeout")
+                .build());
 
         // Kiểm tra nếu không còn người chơi nào active thì kết thúc game
         boolean hasActivePlayers = gameSession.getParticipants().values().stream()
@@ -694,6 +816,8 @@ public class GameSessionService {
                 .gameActive(true)
                 .currentQuestion(currentQuestion)
                 .remainingTime(remainingTime)
+                .phase(gameSession.getStatus().name())
+                .phaseDeadline(gameClock.deadlineMillis(roomId))
                 .leaderboard(leaderboard)
                 .questionNumber(gameSession.getCurrentQuestionIndex() != null ?
                         gameSession.getCurrentQuestionIndex() + 1 : null)
@@ -706,23 +830,13 @@ public class GameSessionService {
      */
     public int getRemainingTime(Long roomId) {
         GameSession gameSession = sessions.get(roomId);
-        if (gameSession == null ||
-                gameSession.getStatus() != GameStatus.IN_PROGRESS ||
-                gameSession.getCurrentQuestionIndex() == null ||
-                gameSession.getStartTime() == null) {
+        if (gameSession == null || gameSession.getStatus() != GameStatus.IN_PROGRESS) {
             return 0;
         }
 
-        // Lấy câu hỏi hiện tại
-        QuestionGameDTO currentQuestion = gameSession.getQuestions().get(gameSession.getCurrentQuestionIndex());
-
-        // Tính thời gian đã trôi qua
-        long elapsedSeconds = Duration.between(gameSession.getStartTime(), LocalDateTime.now()).getSeconds();
-
-        // Tính thời gian còn lại
-        int remainingTime = currentQuestion.getTimeLimit() - (int) elapsedSeconds;
-
-        return Math.max(0, remainingTime);
+        // Cùng nguồn thời gian với bánh xe thời gian để REST và WebSocket luôn khớp với thời điểm hết giờ thực tế
+        long remainingMillis = gameClock.remainingMillis(roomId);
+        return (int) TimeUnit.MILLISECONDS.toSeconds(remainingMillis + 999);
     }
 
     /**
@@ -743,119 +857,276 @@ public class GameSessionService {
     }
 
     /**
-     * Cleanup method to properly shutdown the timer executor when service is destroyed.
+     * Cập nhật ảnh đại diện đã lưu trong các phiên chơi khi người dùng đổi ảnh giữa trận.
      */
-    @PreDestroy
-    public void cleanup() {
-        log.info("Shutting down GameSessionService timer executor");
-
-        // Cancel all active timers
-        sessions.values().forEach(this::cancelCurrentTimer);
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserAvatarChanged(UserAvatarChangedEvent event) {
+        String avatarUrl = localStorageService.getProfileImageUrl(event.getProfileImage());
+        for (GameSession gameSession : sessions.values()) {
+            ParticipantSession participant = gameSession.getParticipants().get(event.getUserId());
+            if (participant != null) {
+                roomActors.execute(gameSession.getRoomId(), () -> participant.setAvatarUrl(avatarUrl));
+            }
+        }
+    }
 
-        // Shutdown the executor
-        timerExecutor.shutdown();
-        try {
-            if (!timerExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
-                log.warn("Timer executor did not terminate gracefully, forcing shutdown");
-                timerExecutor.shutdownNow();
+    /**
+     * Khôi phục các phiên chơi chưa kết thúc từ journal khi ứng dụng khởi động.
+     * Người chơi được coi là mất kết nối cho đến khi kết nối lại, hết thời gian chờ thì bị timeout;
+     * timer của giai đoạn đang dở được chạy tiếp với thời gian còn lại (tối thiểu 1 giây).
+     * Trò chơi đã kết thúc nhưng chưa lưu xong kết quả thì được lưu lại thay vì tiếp tục.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverSessions() {
+        for (Path file : gameJournal.pendingJournals()) {
+            try {
+                SessionRecovery recovery = new SessionRecovery();
+                if (!gameJournal.replay(file, recovery)) {
+                    gameJournal.discard(file);
+                    continue;
+                }
+                if (recovery.completed) {
+                    persistCompletedSession(recovery, file);
+                    continue;
+                }
+                if (sessions.containsKey(recovery.gameSession.getRoomId())) {
+                    gameJournal.discard(file);
+                    continue;
+                }
+                resumeSession(recovery, file);
+            } catch (RuntimeException e) {
+                log.error("Không thể khôi phục phiên chơi từ journal {}: {}", file, e.getMessage(), e);
+                gameJournal.discard(file);
             }
-        } catch (InterruptedException e) {
-            log.error("Interrupted while waiting for timer executor to terminate", e);
-            timerExecutor.shutdownNow();
-            Thread.currentThread().interrupt();
         }
+    }
 
-        log.info("GameSessionService cleanup completed");
+    /**
+     * Lưu lại kết quả của trò chơi đã kết thúc (câu trả lời và kết quả cuối cùng) rồi xoá journal.
+     * Cả hai lần ghi đều idempotent nên không sao nếu đã lưu một phần trước khi dừng.
+     */
+    private void persistCompletedSession(SessionRecovery recovery, Path file) {
+        GameSession gameSession = recovery.gameSession;
+        Long roomId = gameSession.getRoomId();
+        log.info("Lưu lại kết quả trò chơi đã kết thúc của phòng {} từ journal", roomId);
+
+        enqueueScoredQuestions(recovery);
+        CompletableFuture<?> finalization = recovery.finalizeResults
+                ? gameFinalizationService.finalizeAsync(gameSession)
+                : CompletableFuture.completedFuture(null);
+        completeJournal(roomId, file, finalization);
     }
 
     /**
-     * Get statistics about active game sessions for monitoring.
+     * Niêm phong bảng câu trả lời của các câu hỏi đã chấm điểm và ghi lại câu trả lời
+     * (ghi lại là idempotent nếu đã ghi trước khi dừng).
      */
-    public String getSessionStatistics() {
-        int totalSessions = sessions.size();
-        long activeSessions = sessions.values().stream()
-                .mapToLong(session -> isGameActive(session.getRoomId()) ? 1L : 0L)
-                .sum();
+    private void enqueueScoredQuestions(SessionRecovery recovery) {
+        GameSession gameSession = recovery.gameSession;
+        for (int questionIndex = recovery.scoredQuestions.nextSetBit(0); questionIndex >= 0;
+             questionIndex = recovery.scoredQuestions.nextSetBit(questionIndex + 1)) {
+            AnswerSheet answerSheet = gameSession.getAnswerSheets()[questionIndex];
+            answerSheet.seal();
+            gameAnswerWriter.enqueue(gameSession, gameSession.getAnswerKeys().get(questionIndex), answerSheet);
+        }
+    }
 
-        return String.format("Total sessions: %d, Active sessions: %d", totalSessions, activeSessions);
+    private void resumeSession(SessionRecovery recovery, Path file) {
+        GameSession gameSession = recovery.gameSession;
+        Long roomId = gameSession.getRoomId();
+
+        // Các câu hỏi đã chấm điểm: ghi lại câu trả lời và khôi phục bảng xếp hạng
+        enqueueScoredQuestions(recovery);
+        for (ParticipantSession participant : gameSession.getParticipants().values()) {
+            if (participant.getScore() != 0) {
+                gameSession.getLeaderboard().update(participant.getSlot(), participant.getScore());
+            }
+        }
+
+        gameJournal.resume(roomId, file);
+        sessions.put(roomId, gameSession);
+        log.info("Khôi phục phiên chơi của phòng {} từ journal (giai đoạn {} câu {})",
+                roomId, recovery.status, recovery.questionIndex + 1);
+
+        if (recovery.status != null) {
+            roomActors.execute(roomId, () -> resumePhase(gameSession, recovery));
+        }
+
+        // Chưa có session nào của người chơi: cho họ thời gian kết nối lại như sau một lần mất kết nối
+        List<Long> disconnected = gameSession.getParticipants().values().stream()
+                .filter(participant -> participant.getConnectionStatus() == ConnectionStatus.DISCONNECTED)
+                .map(ParticipantSession::getUserId)
+                .toList();
+        eventPublisher.publishEvent(new GameSessionRecoveredEvent(roomId, disconnected));
     }
 
     /**
-     * Bắt đầu timer đếm ngược từng giây cho câu hỏi.
+     * Chạy tiếp giai đoạn cuối cùng trong journal với timer của thời gian còn lại.
      */
-    private void startQuestionTimer(Long roomId, int totalSeconds) {
-        GameSession gameSession = sessions.get(roomId);
-        if (gameSession == null) {
-            log.warn("Không tìm thấy phiên chơi {} để bắt đầu timer", roomId);
+    private void resumePhase(GameSession gameSession, SessionRecovery recovery) {
+        Long roomId = gameSession.getRoomId();
+        int questionIndex = recovery.questionIndex;
+        long remainingMillis = recovery.deadlineMillis - System.currentTimeMillis();
+        int seconds = (int) Math.max(1, (remainingMillis + 999) / 1000);
+
+        // Câu hỏi đã chấm điểm nhưng chưa kịp hiển thị kết quả: tiếp tục từ giai đoạn hiển thị kết quả
+        GameStatus status = recovery.status == GameStatus.IN_PROGRESS && recovery.scoredQuestions.get(questionIndex)
+                ? GameStatus.SHOWING_RESULTS
+                : recovery.status;
+
+        PhaseState phase = PhaseState.initial().next(status, questionIndex);
+        if (!gameSession.compareAndSetPhase(PhaseState.initial(), phase)) {
             return;
         }
+        gameSession.setStartTime(LocalDateTime.now());
 
-        AtomicBoolean timerActive = new AtomicBoolean(true);
+        switch (status) {
+            case IN_PROGRESS -> startQuestionTimer(gameSession, phase, seconds);
+            case SHOWING_RESULTS -> startPhaseTimer(gameSession, phase, seconds,
+                    () -> startShowingLeaderboard(roomId, phase));
+            case SHOWING_LEADERBOARD -> startPhaseTimer(gameSession, phase, seconds,
+                    () -> advanceAfterLeaderboard(roomId, phase));
+            case NEXT_QUESTION -> startPhaseTimer(gameSession, phase, seconds,
+                    () -> startQuestion(roomId, phase, questionIndex + 1));
+            default -> log.warn("Không thể tiếp tục giai đoạn {} của phòng {}", status, roomId);
+        }
+    }
 
-        // Lập lịch gửi timer event mỗi giây
-        ScheduledFuture<?> timerTask = timerExecutor.scheduleAtFixedRate(() -> {
-            if (!timerActive.get()) {
-                return;
+    /**
+     * Dựng lại phiên chơi từ các bản ghi của journal.
+     */
+    private class SessionRecovery implements GameJournal.Replay {
+        private GameSession gameSession;
+        private final BitSet scoredQuestions = new BitSet();
+        private GameStatus status;
+        private int questionIndex = -1;
+        private long deadlineMillis;
+        private boolean completed;
+        private boolean finalizeResults;
+
+        @Override
+        public void init(Long roomId, Long quizId, Long gameResultId, boolean legacyTimerTicks,
+                         List<ParticipantSession> participants) {
+            gameSession = new GameSession();
+            gameSession.setRoomId(roomId);
+            gameSession.setQuizId(quizId);
+            gameSession.setGameResultId(gameResultId);
+            gameSession.setLegacyTimerTicks(legacyTimerTicks);
+            for (ParticipantSession participant : participants) {
+                gameSession.getParticipants().put(participant.getUserId(), participant);
             }
+            prepareSession(gameSession);
+        }
 
-            try {
-                GameSession session = sessions.get(roomId);
-                if (session == null || session.getStatus() != GameStatus.IN_PROGRESS) {
-                    timerActive.set(false);
-                    return;
-                }
+        @Override
+        public void answer(int questionIndex, int slot, int optionMask, int answerTimeMs, boolean correct) {
+            gameSession.getAnswerSheets()[questionIndex].submit(slot, optionMask, answerTimeMs, correct);
+        }
 
-                int remainingTime = getRemainingTime(roomId);
+        @Override
+        public void phase(GameStatus status, int questionIndex, long deadlineMillis) {
+            this.status = status;
+            this.questionIndex = questionIndex;
+            this.deadlineMillis = deadlineMillis;
+        }
 
-                // Log mỗi 5 giây để không spam log
-                if (remainingTime % 5 == 0 || remainingTime <= 5) {
-                    log.debug("Phòng {}: Thời gian còn lại {} giây", roomId, remainingTime);
+        @Override
+        public void scores(int questionIndex, int[] scores) {
+            AnswerSheet answerSheet = gameSession.getAnswerSheets()[questionIndex];
+            for (int slot = 0; slot < scores.length; slot++) {
+                answerSheet.setScore(slot, scores[slot]);
+                ParticipantSession participant = gameSession.getParticipantBySlot(slot);
+                if (participant != null) {
+                    participant.setScore(participant.getScore() + scores[slot]);
                 }
+            }
+            scoredQuestions.set(questionIndex);
+        }
+
+        @Override
+        public void completed(LocalDateTime startTime, LocalDateTime endTime, boolean finalizeResults) {
+            gameSession.setStartTime(startTime);
+            gameSession.setEndTime(endTime);
+            this.completed = true;
+            this.finalizeResults = finalizeResults;
+        }
+    }
 
-                // Gửi timer event đến client
-                webSocketService.sendTimerEvent(roomId, remainingTime, totalSeconds);
+    /**
+     * Cleanup method to cancel the running phases when service is destroyed.
+     */
+    @PreDestroy
+    public void cleanup() {
+        log.info("Cancelling game session timers");
+
+        // Cancel all active timers
+        sessions.values().forEach(this::cancelCurrentTimer);
+
+        log.info("GameSessionService cleanup completed");
+    }
+
+    /**
+     * Get statistics about active game sessions for monitoring.
+     */
+    public String getSessionStatistics() {
+        int totalSessions = sessions.size();
+        long activeSessions = sessions.values().stream()
+                .mapToLong(session -> isGameActive(session.getRoomId()) ? 1L : 0L)
+                .sum();
 
-                // Kết thúc câu hỏi khi hết thời gian
-                if (remainingTime <= 0) {
-                    timerActive.set(false);
+        return String.format("Total sessions: %d, Active sessions: %d", totalSessions, activeSessions);
+    }
+
+    /**
+     * Bắt đầu timer đếm ngược cho câu hỏi.
+     */
+    private void startQuestionTimer(GameSession gameSession, PhaseState questionPhase, int totalSeconds) {
+        Long roomId = gameSession.getRoomId();
+        startPhaseTimer(gameSession, questionPhase, totalSeconds,
+                () -> {
                     log.info("Hết thời gian cho câu hỏi trong phòng {}", roomId);
-                    endCurrentQuestion(roomId);
-                }
+                    endCurrentQuestion(roomId, questionPhase);
+                });
+    }
 
-            } catch (Exception e) {
-                log.error("Lỗi khi xử lý timer cho phòng {}: {}", roomId, e.getMessage(), e);
-                timerActive.set(false);
-            }
-        }, 0, 1, TimeUnit.SECONDS);
+    /**
+     * Bắt đầu timer của giai đoạn và gửi một sự kiện PHASE kèm deadline đến người chơi.
+     * Sự kiện TIMER mỗi giây chỉ được gửi khi phòng bật chế độ tương thích cho client cũ.
+     */
+    private void startPhaseTimer(GameSession gameSession, PhaseState phase, int seconds, Runnable onDeadline) {
+        Long roomId = gameSession.getRoomId();
+        IntConsumer onTick = gameSession.isLegacyTimerTicks()
+                ? remainingTime -> webSocketService.sendTimerEvent(roomId, remainingTime, seconds)
+                : null;
+
+        long deadline = gameClock.startPhase(roomId, seconds, onTick, onDeadline);
+        gameJournal.appendPhase(roomId, phase, deadline);
+        webSocketService.sendPhaseEvent(roomId, PhaseEventDTO.fromPhase(phase, seconds, deadline));
+    }
 
-        // Lập lịch kết thúc câu hỏi sau thời gian quy định (backup timer)
-        ScheduledFuture<?> endTask = timerExecutor.schedule(() -> {
-            timerActive.set(false);
-            if (!timerTask.isDone()) {
-                timerTask.cancel(true);
-            }
-            log.info("Backup timer kết thúc câu hỏi cho phòng {}", roomId);
-            endCurrentQuestion(roomId);
-        }, totalSeconds + 1, TimeUnit.SECONDS); // +1 giây để đảm bảo timer chính chạy trước
+    /**
+     * Chuyển giai đoạn bằng compare-and-set, ghi nhận metric cho cả chuyển thành công và bị từ chối.
+     *
+     * @return false nếu chuyển không hợp lệ hoặc giai đoạn đã thay đổi (timer cũ, trigger trùng lặp)
+     */
+    private boolean transition(GameSession gameSession, PhaseState from, GameStatus next, int questionIndex) {
+        if (from.getStatus().canTransitionTo(next)
+                && gameSession.compareAndSetPhase(from, from.next(next, questionIndex))) {
+            meterRegistry.counter("game.phase.transitions", "to", next.name()).increment();
+            return true;
+        }
 
-        // Lưu timer vào session
-        gameSession.setCurrentTimer(timerTask);
-        gameSession.setEndTimer(endTask);
+        meterRegistry.counter("game.phase.rejected", "to", next.name()).increment();
+        log.debug("Bỏ qua chuyển giai đoạn {} -> {} trong phòng {} (hiện tại: {})",
+                from, next, gameSession.getRoomId(), gameSession.getPhase());
+        return false;
     }
 
     /**
      * Hủy timer hiện tại của phiên chơi.
      */
     private void cancelCurrentTimer(GameSession gameSession) {
-        if (gameSession.getCurrentTimer() != null && !gameSession.getCurrentTimer().isDone()) {
-            gameSession.getCurrentTimer().cancel(true);
-            log.debug("Đã hủy timer chính cho phòng {}", gameSession.getRoomId());
-        }
-
-        if (gameSession.getEndTimer() != null && !gameSession.getEndTimer().isDone()) {
-            gameSession.getEndTimer().cancel(true);
-            log.debug("Đã hủy backup timer cho phòng {}", gameSession.getRoomId());
-        }
+        gameClock.cancel(gameSession.getRoomId());
     }
 
     /**
@@ -2,6 +2,7 @@ package com.huy.quizme_backend.service;
 
 import com.huy.quizme_backend.dto.request.JoinRoomRequest;
 import com.huy.quizme_backend.dto.request.RoomRequest;
+import com.huy.quizme_backend.dto.event.PlayerBatchEventResponse;
 import com.huy.quizme_backend.dto.event.PlayerEventResponse;
 import com.huy.quizme_backend.dto.response.RoomResponse;
 import com.huy.quizme_backend.dto.response.UserResponse;
@@ -20,6 +21,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Random;
 import java.util.stream.Collectors;
@@ -580,89 +582,67 @@ public class RoomService {
     }
 
     /**
-     * Xử lý timeout khi người dùng đã đăng nhập mất kết nối
+     * Xử lý một lô timeout mất kết nối của cùng một phòng trong một transaction:
+     * xoá các participant bằng một lệnh và gửi một sự kiện PLAYERS_LEAVE cho cả lô.
+     * Nếu host nằm trong lô thì phòng bị đóng.
      *
-     * @param roomId Room ID
-     * @param userId User ID
+     * @param roomId     Room ID
+     * @param userIds    Các người dùng đăng nhập bị timeout
+     * @param guestNames Các khách bị timeout
      */
     @Transactional
-    public void handleUserDisconnectTimeout(Long roomId, Long userId) {
+    public void handleDisconnectTimeouts(Long roomId, Collection<Long> userIds, Collection<String> guestNames) {
         // Tìm phòng
         Room room = roomRepository.findById(roomId)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND, "Room not found with id: " + roomId));
 
-        // Tìm người dùng
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResponseStatusException(
-                        HttpStatus.NOT_FOUND, "User not found with id: " + userId));
-
-        // Tìm thông tin tham gia phòng
-        RoomParticipant participant = participantRepository.findByRoomAndUser(room, user)
-                .orElseThrow(() -> new ResponseStatusException(
-                        HttpStatus.NOT_FOUND, "User is not in this room"));
+        // Tìm các participant bị timeout trong một truy vấn
+        List<RoomParticipant> timedOut = participantRepository.findWithUserByRoomId(roomId).stream()
+                .filter(p -> p.getUser() != null
+                        ? userIds.contains(p.getUser().getId())
+                        : guestNames.contains(p.getGuestName()))
+                .toList();
+        if (timedOut.isEmpty()) {
+            return;
+        }
 
-        // Kiểm tra nếu người dùng là host
-        if (participant.isHost()) {
-            // Nếu là host, đóng phòng
+        // Nếu host bị timeout, đóng phòng
+        if (timedOut.stream().anyMatch(RoomParticipant::isHost)) {
             closeRoomDueToHostDisconnect(room);
-        } else {
-            // Nếu không phải host, chỉ xóa participant
-            handleParticipantTimeout(participant, user.getUsername(), false);
         }
-    }
 
-    /**
-     * Xử lý timeout khi khách mất kết nối
-     *
-     * @param roomId    Room ID
-     * @param guestName Guest name
-     */
-    @Transactional
-    public void handleGuestDisconnectTimeout(Long roomId, String guestName) {
-        // Tìm phòng
-        Room room = roomRepository.findById(roomId)
-                .orElseThrow(() -> new ResponseStatusException(
-                        HttpStatus.NOT_FOUND, "Room not found with id: " + roomId));
-
-        // Tìm thông tin tham gia phòng
-        RoomParticipant participant = participantRepository.findByRoomAndGuestName(room, guestName)
-                .orElseThrow(() -> new ResponseStatusException(
-                        HttpStatus.NOT_FOUND, "Guest is not in this room"));
+        List<RoomParticipant> removed = timedOut.stream()
+                .filter(p -> !p.isHost())
+                .toList();
+        if (removed.isEmpty()) {
+            return;
+        }
 
-        // Xóa participant (khách không bao giờ là host)
-        handleParticipantTimeout(participant, guestName, true);
+        // Xóa các participant bằng một lệnh
+        participantRepository.deleteAllInBatch(removed);
+
+        // Gửi một thông báo cho cả lô
+        List<PlayerEventResponse> events = removed.stream()
+                .map(this::toLeaveEvent)
+                .toList();
+        webSocketService.sendPlayersLeaveEvent(roomId, PlayerBatchEventResponse.builder()
+                .players(events)
+                .message(events.size() + " players left the room")
+                .eventType("leave")
+                .build());
     }
 
-    /**
-     * Xử lý chung khi một người tham gia bị timeout
-     *
-     * @param participant Thông tin tham gia
-     * @param playerName  Tên hiển thị
-     * @param isGuest     Là khách hay đã đăng nhập
-     */
-    private void handleParticipantTimeout(RoomParticipant participant, String playerName, boolean isGuest) {
-        // Xóa participant
-        Long roomId = participant.getRoom().getId();
-        participantRepository.delete(participant);
-
-        // Thông báo cho người khác trong phòng
-        String message = "Player " + playerName + " left the room";
-
-        // Tạo thông tin người chơi
-        UserResponse userResponse = UserResponse.fromUser(
-                participant.getUser(),
-                localStorageService
-        );
-
-        eventResponse = PlayerEventResponse.fromUser(
-                userResponse,
-                message,
+    private PlayerEventResponse toLeaveEvent(RoomParticipant participant) {
+        if (participant.getUser() == null) {
+            return PlayerEventResponse.fromGuest(participant.getGuestName(),
+                    "Player " + participant.getGuestName() + " left the room", "leave");
+        }
+        return PlayerEventResponse.fromUser(
+                UserResponse.fromUser(participant.getUser(), localStorageService),
+                "Player " + participant.getUser().getUsername() + " left the room",
                 "leave"
         );
-
-        // Gửi thông báo cho những người còn lại trong phòng
-        webSocketService.sendPlayerLeaveEvent(roomId, eventResponse);
     }
 
     /**
@@ -6,8 +6,11 @@ import com.huy.quizme_backend.dto.response.UserProfileResponse;
 import com.huy.quizme_backend.dto.response.UserResponse;
 import com.huy.quizme_backend.enity.User;
 import com.huy.quizme_backend.enity.enums.Role;
+import com.huy.quizme_backend.event.UserAvatarChangedEvent;
+import com.huy.quizme_backend.event.UserChangedEvent;
 import com.huy.quizme_backend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -29,6 +32,7 @@ public class UserService {
     private final UserRepository userRepository;
     private final LocalStorageService localStorageService;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Lấy thông tin người dùng theo ID
@@ -141,13 +145,11 @@ public class UserService {
     /**
      * Lấy thông tin profile của người dùng hiện tại
      *
-     * @param user Thông tin người dùng hiện tại đã đăng nhập
+     * @param userId ID của người dùng hiện tại đã đăng nhập
      * @return Thông tin profile của người dùng
      */
-    public UserProfileResponse getCurrentUserProfile(User user) {
-        if (user == null) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User is not authenticated");
-        }
+    public UserProfileResponse getCurrentUserProfile(Long userId) {
+        User user = findCurrentUser(userId);
 
         if (user.getUserProfile() == null) {
             throw new ResponseStatusException(
@@ -160,15 +162,13 @@ public class UserService {
     /**
      * Upload avatar cho người dùng hiện tại
      *
-     * @param user       Thông tin người dùng hiện tại đã đăng nhập
+     * @param userId     ID của người dùng hiện tại đã đăng nhập
      * @param avatarFile File ảnh avatar cần upload
      * @return Thông tin người dùng đã cập nhật
      */
     @Transactional
-    public UserResponse uploadAvatar(User user, MultipartFile avatarFile) {
-        if (user == null) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User is not authenticated");
-        }
+    public UserResponse uploadAvatar(Long userId, MultipartFile avatarFile) {
+        User user = findCurrentUser(userId);
         if (avatarFile == null || avatarFile.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Avatar file is required");
         }
@@ -199,6 +199,9 @@ public class UserService {
                 localStorageService.deleteProfileImage(oldAvatarUrl);
             }
 
+            // Thông báo để cập nhật avatar trong các phiên chơi đang diễn ra
+            eventPublisher.publishEvent(new UserAvatarChangedEvent(savedUser.getId(), newAvatarFilename));
+
             return UserResponse.fromUser(savedUser, localStorageService);
         } catch (Exception e) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
@@ -209,14 +212,12 @@ public class UserService {
     /**
      * Xóa avatar của người dùng hiện tại
      *
-     * @param user Thông tin người dùng hiện tại đã đăng nhập
+     * @param userId ID của người dùng hiện tại đã đăng nhập
      * @return Thông tin người dùng đã cập nhật
      */
     @Transactional
-    public UserResponse removeAvatar(User user) {
-        if (user == null) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User is not authenticated");
-        }
+    public UserResponse removeAvatar(Long userId) {
+        User user = findCurrentUser(userId);
 
         if (user.getProfileImage() == null || user.getProfileImage().isEmpty()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "User has no avatar to remove");
@@ -233,6 +234,9 @@ public class UserService {
             // Xóa file avatar cũ
             localStorageService.deleteProfileImage(oldAvatarUrl);
 
+            // Thông báo để cập nhật avatar trong các phiên chơi đang diễn ra
+            eventPublisher.publishEvent(new UserAvatarChangedEvent(savedUser.getId(), null));
+
             return UserResponse.fromUser(savedUser, localStorageService);
         } catch (Exception e) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
@@ -255,12 +259,14 @@ public class UserService {
         }
 
         // Kiểm tra xem người dùng đã tồn tại chưa
-        if (userRepository.existsByUsername(userRequest.getUsername())) {
+        UserRepository.UsernameEmailUsage usage =
+                userRepository.countByUsernameOrEmail(userRequest.getUsername(), userRequest.getEmail());
+        if (usage.getUsernameCount() > 0) {
             throw new ResponseStatusException(HttpStatus.CONFLICT, "Username already exists");
         }
 
         // Kiểm tra xem email đã tồn tại chưa
-        if (userRepository.existsByEmail(userRequest.getEmail())) {
+        if (usage.getEmailCount() > 0) {
             throw new ResponseStatusException(HttpStatus.CONFLICT, "Email already exists");
         }
 
@@ -329,6 +335,7 @@ public class UserService {
 
         // Lưu người dùng đã cập nhật
         User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(savedUser.getId()));
 
         // Thêm ảnh đại diện nếu có
         MultipartFile avatarFile = userRequest.getProfileImage();
@@ -345,6 +352,9 @@ public class UserService {
                 throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to upload avatar");
             }
             savedUser.setProfileImage(avatarFilename);
+
+            // Thông báo để cập nhật avatar trong các phiên chơi đang diễn ra
+            eventPublisher.publishEvent(new UserAvatarChangedEvent(savedUser.getId(), avatarFilename));
         }
 
         // Trả về thông tin người dùng đã cập nhật
@@ -368,6 +378,7 @@ public class UserService {
 
         // Xóa người dùng
         userRepository.delete(user);
+        eventPublisher.publishEvent(new UserChangedEvent(userId));
     }
 
     /**
@@ -386,7 +397,19 @@ public class UserService {
 
         // Lưu người dùng đã cập nhật
         User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(savedUser.getId()));
 
         return UserResponse.fromUser(savedUser, localStorageService);
     }
+
+    /**
+     * Tải người dùng hiện tại theo ID của principal đã xác thực
+     */
+    private User findCurrentUser(Long userId) {
+        if (userId == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User is not authenticated");
+        }
+        return userRepository.findById(userId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found with id: " + userId));
+    }
 }
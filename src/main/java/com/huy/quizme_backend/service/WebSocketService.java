@@ -1,17 +1,35 @@
 package com.huy.quizme_backend.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.huy.quizme_backend.config.CborPayload;
+import com.huy.quizme_backend.config.FrameCodecChannelInterceptor;
+import com.huy.quizme_backend.dto.event.PlayerBatchEventResponse;
 import com.huy.quizme_backend.dto.game.GameResultDTO;
 import com.huy.quizme_backend.dto.game.LeaderboardDTO;
+import com.huy.quizme_backend.dto.game.LeaderboardDeltaDTO;
+import com.huy.quizme_backend.dto.game.PhaseEventDTO;
+import com.huy.quizme_backend.dto.game.PlayerLeaderboardDTO;
+import com.huy.quizme_backend.dto.game.PlayerQuestionResultDTO;
 import com.huy.quizme_backend.dto.game.QuestionGameDTO;
 import com.huy.quizme_backend.dto.game.QuestionResultDTO;
 import com.huy.quizme_backend.dto.response.ChatMessageResponse;
 import lombok.AllArgsConstructor;
 import lombok.Data;
-import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
@@ -22,9 +40,11 @@ import java.util.Map;
  * vào các chi tiết triển khai của WebSocket
  */
 @Service
-@RequiredArgsConstructor
 public class WebSocketService {
     private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+    // Cùng cấu hình với objectMapper nhưng mã hoá CBOR, cho các kết nối chọn codec CBOR
+    private final ObjectMapper cborMapper;
 
     // Constants cho các topic WebSocket
     public static final String ROOM_TOPIC_PREFIX = "/topic/room/";
@@ -42,6 +62,21 @@ public class WebSocketService {
     public static final String QUESTION_RESULT_EVENT = "/question-result";
     public static final String LEADERBOARD_EVENT = "/leaderboard";
     public static final String NEXT_QUESTION_EVENT = "/next-question";
+    public static final String PHASE_EVENT = "/phase";
+    public static final String LEADERBOARD_DELTA_EVENT = "/leaderboard-delta";
+
+    // Các kênh riêng của từng người dùng (client subscribe với prefix /user)
+    public static final String USER_QUESTION_QUEUE = "/queue/question";
+    public static final String USER_QUESTION_RESULT_QUEUE = "/queue/question-result";
+    public static final String USER_LEADERBOARD_QUEUE = "/queue/leaderboard";
+    public static final String USER_LEADERBOARD_SNAPSHOT_QUEUE = "/queue/leaderboard-snapshot";
+
+    public WebSocketService(SimpMessagingTemplate messagingTemplate, ObjectMapper objectMapper) {
+        this.messagingTemplate = messagingTemplate;
+        this.objectMapper = objectMapper;
+        this.cborMapper = objectMapper.copyWith(new CBORFactory())
+                .registerModule(new SimpleModule().addSerializer(PreparedPayload.class, new PreparedPayloadSerializer()));
+    }
 
     /**
      * WebSocket message container chuẩn hóa
@@ -70,12 +105,57 @@ public class WebSocketService {
     }
 
     /**
-     * Gửi message có cấu trúc chuẩn đến destination
+     * Gửi message có cấu trúc chuẩn đến destination của phòng.
+     * Tin nhắn mang theo bản CBOR của chính message (mã hoá một lần cho cả phòng khi có
+     * kết nối CBOR nhận nó), nên các kết nối CBOR không phải giải mã lại JSON.
      */
     private <T> void sendMessage(String destination, String eventType, T payload) {
         Assert.notNull(payload, "Payload không được để trống");
         WebSocketMessage<T> message = new WebSocketMessage<>(eventType, payload);
-        messagingTemplate.convertAndSend(destination, message);
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setHeader(FrameCodecChannelInterceptor.CBOR_PAYLOAD_HEADER, new CborPayload(cborMapper, message));
+        accessor.setLeaveMutable(true);
+        messagingTemplate.convertAndSend(destination, message, accessor.getMessageHeaders());
+    }
+
+    /**
+     * Serialize sẵn một payload thành JSON để gửi lại nhiều lần mà không phải serialize lại.
+     * Chỉ lớp bao {@link WebSocketMessage} (type, timestamp) được serialize ở mỗi lần gửi.
+     * Payload gốc được giữ lại để serialize thẳng sang CBOR.
+     */
+    public RawValue preparePayload(Object payload) {
+        Assert.notNull(payload, "Payload không được để trống");
+        try {
+            return new PreparedPayload(objectMapper.writeValueAsString(payload), payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không thể serialize payload: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Payload JSON đã serialize sẵn kèm đối tượng gốc (đối tượng không bị thay đổi sau khi chuẩn bị).
+     */
+    private static final class PreparedPayload extends RawValue {
+        private final Object source;
+
+        private PreparedPayload(String json, Object source) {
+            super(new SerializedString(json));
+            this.source = source;
+        }
+    }
+
+    /**
+     * CBOR không ghi được JSON thô: serialize đối tượng gốc của payload đã chuẩn bị.
+     */
+    private static final class PreparedPayloadSerializer extends StdSerializer<PreparedPayload> {
+        private PreparedPayloadSerializer() {
+            super(PreparedPayload.class);
+        }
+
+        @Override
+        public void serialize(PreparedPayload value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            provider.defaultSerializeValue(value.source, gen);
+        }
     }
 
     /**
@@ -135,19 +215,21 @@ public class WebSocketService {
     }
 
     /**
-     * Gửi sự kiện người chơi timeout
+     * Gửi sự kiện một lô người chơi rời phòng (bị timeout mất kết nối)
      */
-    public void sendPlayerTimeoutEvent(Long roomId, Long userId, String username) {
-        Assert.notNull(roomId, "RoomId không được null");
-        Assert.notNull(userId, "UserId không được null");
-
-        Map<String, Object> timeoutData = new HashMap<>();
-        timeoutData.put("userId", userId);
-        timeoutData.put("username", username);
-        timeoutData.put("message", "Player " + username + " has timed out");
+    public void sendPlayersLeaveEvent(Long roomId, PlayerBatchEventResponse batch) {
+        Assert.notEmpty(batch.getPlayers(), "Danh sách người chơi không được rỗng");
+        String destination = buildDestination(roomId, PLAYER_LEAVE_EVENT);
+        sendMessage(destination, "PLAYERS_LEAVE", batch);
+    }
 
+    /**
+     * Gửi sự kiện một lô người chơi bị timeout trong phiên chơi
+     */
+    public void sendPlayersTimeoutEvent(Long roomId, PlayerBatchEventResponse batch) {
+        Assert.notEmpty(batch.getPlayers(), "Danh sách người chơi không được rỗng");
         String destination = buildDestination(roomId, "/player-timeout");
-        sendMessage(destination, "PLAYER_TIMEOUT", timeoutData);
+        sendMessage(destination, "PLAYERS_TIMEOUT", batch);
     }
 
     /**
@@ -191,6 +273,35 @@ public class WebSocketService {
         sendMessage(destination, "QUESTION", questionDTO);
     }
 
+    /**
+     * Gửi câu hỏi đã serialize sẵn đến tất cả người chơi trong phòng
+     *
+     * @param roomId          ID phòng
+     * @param questionPayload Payload câu hỏi từ {@link #preparePayload(Object)}
+     */
+    public void sendQuestionEvent(Long roomId, RawValue questionPayload) {
+        Assert.notNull(roomId, "RoomId không được null");
+
+        // Gửi tin nhắn đến topic phòng với sự kiện câu hỏi
+        String destination = buildDestination(roomId, QUESTION_EVENT);
+        sendMessage(destination, "QUESTION", questionPayload);
+    }
+
+    /**
+     * Gửi lại câu hỏi đang diễn ra cho một người chơi (khi kết nối lại)
+     *
+     * @param username        Tên đăng nhập của người chơi (tên principal của phiên WebSocket)
+     * @param questionPayload Payload câu hỏi từ {@link #preparePayload(Object)}
+     */
+    public void sendPlayerQuestion(String username, RawValue questionPayload) {
+        Assert.notNull(username, "Username không được null");
+        Assert.notNull(questionPayload, "Payload câu hỏi không được null");
+
+        // Gửi tin nhắn đến kênh riêng của người dùng
+        WebSocketMessage<RawValue> message = new WebSocketMessage<>("QUESTION", questionPayload);
+        messagingTemplate.convertAndSendToUser(username, USER_QUESTION_QUEUE, message);
+    }
+
     /**
      * Gửi cập nhật thời gian đếm ngược
      *
@@ -210,6 +321,21 @@ public class WebSocketService {
         sendMessage(destination, "TIMER", timerData);
     }
 
+    /**
+     * Gửi sự kiện chuyển giai đoạn kèm deadline (thay cho TIMER mỗi giây)
+     *
+     * @param roomId   ID phòng
+     * @param phaseDTO Dữ liệu giai đoạn
+     */
+    public void sendPhaseEvent(Long roomId, PhaseEventDTO phaseDTO) {
+        Assert.notNull(roomId, "RoomId không được null");
+        Assert.notNull(phaseDTO, "PhaseEventDTO không được null");
+
+        // Gửi tin nhắn đến topic phòng với sự kiện giai đoạn
+        String destination = buildDestination(roomId, PHASE_EVENT);
+        sendMessage(destination, "PHASE", phaseDTO);
+    }
+
     /**
      * Gửi kết quả câu hỏi
      *
@@ -225,6 +351,21 @@ public class WebSocketService {
         sendMessage(destination, "QUESTION_RESULT", resultDTO);
     }
 
+    /**
+     * Gửi kết quả câu hỏi riêng cho một người chơi
+     *
+     * @param username  Tên đăng nhập của người chơi (tên principal của phiên WebSocket)
+     * @param resultDTO Dữ liệu kết quả của người chơi
+     */
+    public void sendPlayerQuestionResult(String username, PlayerQuestionResultDTO resultDTO) {
+        Assert.notNull(username, "Username không được null");
+        Assert.notNull(resultDTO, "PlayerQuestionResultDTO không được null");
+
+        // Gửi tin nhắn đến kênh riêng của người dùng
+        WebSocketMessage<PlayerQuestionResultDTO> message = new WebSocketMessage<>("PLAYER_QUESTION_RESULT", resultDTO);
+        messagingTemplate.convertAndSendToUser(username, USER_QUESTION_RESULT_QUEUE, message);
+    }
+
     /**
      * Gửi bảng xếp hạng
      *
@@ -240,6 +381,55 @@ public class WebSocketService {
         sendMessage(destination, "LEADERBOARD", leaderboardDTO);
     }
 
+    /**
+     * Gửi snapshot hoặc delta của bảng xếp hạng đến cả phòng
+     *
+     * @param roomId   ID phòng
+     * @param deltaDTO Dữ liệu snapshot/delta
+     */
+    public void sendLeaderboardDeltaEvent(Long roomId, LeaderboardDeltaDTO deltaDTO) {
+        Assert.notNull(roomId, "RoomId không được null");
+        Assert.notNull(deltaDTO, "LeaderboardDeltaDTO không được null");
+
+        // Gửi tin nhắn đến topic phòng với sự kiện bảng xếp hạng delta
+        String destination = buildDestination(roomId, LEADERBOARD_DELTA_EVENT);
+        sendMessage(destination, leaderboardDeltaType(deltaDTO), deltaDTO);
+    }
+
+    /**
+     * Gửi snapshot bảng xếp hạng cho một người chơi (khi client báo thiếu sequence)
+     *
+     * @param username Tên đăng nhập của người chơi (tên principal của phiên WebSocket)
+     * @param deltaDTO Dữ liệu snapshot
+     */
+    public void sendPlayerLeaderboardSnapshot(String username, LeaderboardDeltaDTO deltaDTO) {
+        Assert.notNull(username, "Username không được null");
+        Assert.notNull(deltaDTO, "LeaderboardDeltaDTO không được null");
+
+        // Gửi tin nhắn đến kênh riêng của người dùng
+        WebSocketMessage<LeaderboardDeltaDTO> message = new WebSocketMessage<>(leaderboardDeltaType(deltaDTO), deltaDTO);
+        messagingTemplate.convertAndSendToUser(username, USER_LEADERBOARD_SNAPSHOT_QUEUE, message);
+    }
+
+    private String leaderboardDeltaType(LeaderboardDeltaDTO deltaDTO) {
+        return Boolean.TRUE.equals(deltaDTO.getSnapshot()) ? "LEADERBOARD_SNAPSHOT" : "LEADERBOARD_DELTA";
+    }
+
+    /**
+     * Gửi bảng xếp hạng riêng (thứ hạng và người chơi xung quanh) cho một người chơi
+     *
+     * @param username       Tên đăng nhập của người chơi (tên principal của phiên WebSocket)
+     * @param leaderboardDTO Dữ liệu bảng xếp hạng riêng
+     */
+    public void sendPlayerLeaderboard(String username, PlayerLeaderboardDTO leaderboardDTO) {
+        Assert.notNull(username, "Username không được null");
+        Assert.notNull(leaderboardDTO, "PlayerLeaderboardDTO không được null");
+
+        // Gửi tin nhắn đến kênh riêng của người dùng
+        WebSocketMessage<PlayerLeaderboardDTO> message = new WebSocketMessage<>("PLAYER_LEADERBOARD", leaderboardDTO);
+        messagingTemplate.convertAndSendToUser(username, USER_LEADERBOARD_QUEUE, message);
+    }
+
     /**
      * Gửi thông báo câu hỏi tiếp theo
      *
@@ -1,19 +1,29 @@
 package com.huy.quizme_backend.service;
 
+import com.huy.quizme_backend.engine.HashedWheelTimer;
+import com.huy.quizme_backend.event.GameSessionRecoveredEvent;
+import jakarta.annotation.PreDestroy;
 import org.springframework.stereotype.Service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 
 /**
  * Service quản lý các WebSocket session và xử lý các trường hợp disconnect
@@ -29,14 +39,27 @@ public class WebSocketSessionRegistry {
     @Value("${app.websocket.disconnect-timeout-seconds}")
     private int disconnectTimeoutSeconds;
 
-    // Executor để lập lịch các task timeout
-    private final ScheduledExecutorService executorService = Executors.newScheduledThreadPool(1);
+    // Bánh xe thời gian cho các timeout mất kết nối; worker chỉ gom session hết hạn thành lô
+    private final HashedWheelTimer timeoutWheel =
+            new HashedWheelTimer("disconnect-timeout-wheel", 100, TimeUnit.MILLISECONDS, 512, Runnable::run);
+
+    // Executor xử lý các lô timeout (mỗi phòng một tác vụ)
+    private final ExecutorService batchExecutor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("disconnect-timeout-", 0).factory());
+
+    // Các session đã hết hạn, chờ xử lý ở tick tiếp theo
+    private final Queue<SessionInfo> expiredSessions = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
 
     // Map lưu trữ các session ID và thông tin người dùng
     private final Map<String, SessionInfo> sessions = new ConcurrentHashMap<>();
 
+    // Chỉ mục phụ: userId / tên khách -> các session ID (cập nhật trong compute của từng khoá)
+    private final Map<Long, Set<String>> sessionsByUser = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> sessionsByGuest = new ConcurrentHashMap<>();
+
     // Map lưu trữ các task timeout đã lên lịch
-    private final Map<String, ScheduledFuture<?>> scheduledTasks = new ConcurrentHashMap<>();
+    private final Map<String, HashedWheelTimer.Timeout> scheduledTasks = new ConcurrentHashMap<>();
 
     /**
      * Thông tin về một session
@@ -65,49 +88,132 @@ public class WebSocketSessionRegistry {
         // Nếu đã có task timeout cho session này, hủy nó
         cancelDisconnectTimeout(sessionId);
 
-        // Check if this is a reconnection for an existing user
-        boolean isReconnection = false;
-        if (userId != null) {
-            // Check if user was already connected in any room
-            for (SessionInfo existingInfo : sessions.values()) {
-                if (existingInfo.userId != null && existingInfo.userId.equals(userId)) {
-                    isReconnection = true;
-                    break;
-                }
-            }
+        // Đăng ký session
+        SessionInfo info = new SessionInfo(sessionId, userId, guestName);
+        if (sessions.putIfAbsent(sessionId, info) != null) {
+            return;
         }
 
-        // Đăng ký session
-        SessionInfo sessionInfo = sessions.putIfAbsent(sessionId, new SessionInfo(sessionId, userId, guestName));
+        // Thêm vào chỉ mục; nếu người dùng có session cũ đang chờ timeout thì nhận lại các phòng của nó
+        boolean isReconnection;
+        if (userId != null) {
+            isReconnection = index(sessionsByUser, userId, info);
+        } else if (guestName != null) {
+            isReconnection = index(sessionsByGuest, guestName, info);
+        } else {
+            isReconnection = false;
+        }
 
-        // If this is a reconnection, handle it in game sessions
+        // Nếu là kết nối lại, cập nhật trạng thái trong các phiên chơi
         if (isReconnection && userId != null) {
-            SessionInfo info = sessions.get(sessionId);
-            if (info != null) {
-                for (Long roomId : info.roomIds) {
-                    try {
-                        gameSessionService.reconnectPlayer(roomId, userId, sessionId);
-                        log.info("Player {} reconnected to room {}", userId, roomId);
-                    } catch (Exception e) {
-                        log.error("Error handling game session reconnection for user {} in room {}",
-                                userId, roomId, e);
-                    }
+            for (Long roomId : info.roomIds) {
+                try {
+                    gameSessionService.reconnectPlayer(roomId, userId, sessionId);
+                    log.info("Player {} reconnected to room {}", userId, roomId);
+                } catch (Exception e) {
+                    log.error("Error handling game session reconnection for user {} in room {}",
+                            userId, roomId, e);
                 }
             }
         }
     }
 
     /**
-     * Đăng ký người dùng tham gia phòng
+     * Thêm session vào chỉ mục của khoá (userId hoặc tên khách) và nhận lại các phòng
+     * của các session cũ đã ngắt kết nối của cùng khoá (huỷ timeout của chúng).
+     * Thực hiện trong compute nên không xen kẽ với việc timeout hay đăng ký khác của cùng khoá.
+     *
+     * @return true nếu khoá đã có session khác (kết nối lại)
+     */
+    private <K> boolean index(Map<K, Set<String>> index, K key, SessionInfo info) {
+        boolean[] reconnection = new boolean[1];
+        index.compute(key, (k, sessionIds) -> {
+            Set<String> target = sessionIds != null ? sessionIds : ConcurrentHashMap.newKeySet();
+            for (String previousId : target) {
+                reconnection[0] = true;
+                SessionInfo previous = sessions.get(previousId);
+                if (previous != null && previous.lastDisconnectTime != null && sessions.remove(previousId, previous)) {
+                    cancelDisconnectTimeout(previousId);
+                    info.roomIds.addAll(previous.roomIds);
+                    target.remove(previousId);
+                }
+            }
+            target.add(info.sessionId);
+            return target;
+        });
+        return reconnection[0];
+    }
+
+    /**
+     * Xoá session khỏi chỉ mục của khoá.
+     */
+    private <K> void unindex(Map<K, Set<String>> index, K key, String sessionId) {
+        index.computeIfPresent(key, (k, sessionIds) -> {
+            sessionIds.remove(sessionId);
+            return sessionIds.isEmpty() ? null : sessionIds;
+        });
+    }
+
+    /**
+     * Đăng ký người dùng tham gia phòng.
+     * Nếu người chơi đang bị coi là mất kết nối trong phiên chơi của phòng (ví dụ phiên chơi vừa được
+     * khôi phục sau khi khởi động lại) thì xử lý như kết nối lại.
      */
     public void registerRoomParticipation(String sessionId, Long roomId) {
         log.info("Registering room participation: session {}, roomId: {}", sessionId, roomId);
         SessionInfo info = sessions.get(sessionId);
-        if (info != null) {
-            info.roomIds.add(roomId);
+        if (info == null || !info.roomIds.add(roomId) || info.userId == null) {
+            return;
+        }
+        if (gameSessionService.isPlayerDisconnected(roomId, info.userId)) {
+            dropRecoveredSession(roomId, info.userId);
+            try {
+                gameSessionService.reconnectPlayer(roomId, info.userId, sessionId);
+                log.info("Player {} rejoined room {} as reconnection", info.userId, roomId);
+            } catch (Exception e) {
+                log.error("Error handling game session reconnection for user {} in room {}",
+                        info.userId, roomId, e);
+            }
         }
     }
 
+    /**
+     * Phiên chơi vừa được khôi phục từ journal: chưa có session nào của người chơi, nên mỗi người chơi
+     * được giữ chỗ bằng một session đã ngắt kết nối và có timeout như sau một lần mất kết nối.
+     * Kết nối lại trong thời gian chờ sẽ nhận lại session giữ chỗ (xem {@link #index}).
+     */
+    @EventListener
+    public void onGameSessionRecovered(GameSessionRecoveredEvent event) {
+        Instant now = Instant.now();
+        for (Long userId : event.getUserIds()) {
+            SessionInfo info = new SessionInfo(recoveredSessionId(event.getRoomId(), userId), userId, null);
+            info.roomIds.add(event.getRoomId());
+            info.lastDisconnectTime = now;
+            if (sessions.putIfAbsent(info.sessionId, info) != null) {
+                continue;
+            }
+            index(sessionsByUser, userId, info);
+            scheduleDisconnectTimeout(info.sessionId);
+        }
+        log.info("Waiting for {} players to reconnect to recovered room {}", event.getUserIds().size(), event.getRoomId());
+    }
+
+    /**
+     * Huỷ session giữ chỗ của người chơi khi họ vào lại phòng bằng một session đã có sẵn.
+     */
+    private void dropRecoveredSession(Long roomId, Long userId) {
+        String sessionId = recoveredSessionId(roomId, userId);
+        SessionInfo info = sessions.get(sessionId);
+        if (info != null && sessions.remove(sessionId, info)) {
+            cancelDisconnectTimeout(sessionId);
+            unindex(sessionsByUser, userId, sessionId);
+        }
+    }
+
+    private static String recoveredSessionId(Long roomId, Long userId) {
+        return "recovered-" + roomId + "-" + userId;
+    }
+
     /**
      * Xử lý khi người dùng ngắt kết nối
      */
@@ -140,9 +246,8 @@ public class WebSocketSessionRegistry {
      */
     private void scheduleDisconnectTimeout(String sessionId) {
         log.info("Scheduling disconnect timeout for session: {}", sessionId);
-        ScheduledFuture<?> task = executorService.schedule(() -> {
-            processDisconnectTimeout(sessionId);
-        }, disconnectTimeoutSeconds, TimeUnit.SECONDS);
+        HashedWheelTimer.Timeout task = timeoutWheel.newTimeout(() -> processDisconnectTimeout(sessionId),
+                disconnectTimeoutSeconds, TimeUnit.SECONDS);
 
         scheduledTasks.put(sessionId, task);
     }
@@ -151,54 +256,93 @@ public class WebSocketSessionRegistry {
      * Hủy task xử lý timeout (khi người dùng kết nối lại)
      */
     private void cancelDisconnectTimeout(String sessionId) {
-        ScheduledFuture<?> task = scheduledTasks.remove(sessionId);
-        if (task != null && !task.isDone()) {
+        HashedWheelTimer.Timeout task = scheduledTasks.remove(sessionId);
+        if (task != null && task.cancel()) {
             log.info("Canceling disconnect timeout for session: {}", sessionId);
-            task.cancel(true);
         }
     }
 
     /**
-     * Xử lý khi timeout xảy ra (người dùng không kết nối lại trong khoảng thời gian cho phép)
+     * Xử lý khi timeout xảy ra (người dùng không kết nối lại trong khoảng thời gian cho phép).
+     * Chạy trên worker của bánh xe thời gian: chỉ nhận session và đưa vào lô chờ xử lý,
+     * lô được xử lý ở tick tiếp theo để gom mọi timeout hết hạn trong cùng tick.
      */
     private void processDisconnectTimeout(String sessionId) {
-        log.info("Processing disconnect timeout for session: {}", sessionId);
-        SessionInfo info = sessions.get(sessionId);
-        if (info != null) {
-            // Xử lý từng phòng mà người dùng đang tham gia
+        scheduledTasks.remove(sessionId);
+
+        // Xóa session trước khi xử lý: nếu người dùng vừa kết nối lại và đã nhận lại session thì bỏ qua
+        SessionInfo info = sessions.remove(sessionId);
+        if (info == null) {
+            return;
+        }
+        if (info.userId != null) {
+            unindex(sessionsByUser, info.userId, sessionId);
+        } else if (info.guestName != null) {
+            unindex(sessionsByGuest, info.guestName, sessionId);
+        }
+
+        expiredSessions.add(info);
+        if (flushScheduled.compareAndSet(false, true)) {
+            timeoutWheel.newTimeout(this::flushExpiredSessions, 0, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Gom các session hết hạn theo phòng và xử lý mỗi phòng một lô.
+     */
+    private void flushExpiredSessions() {
+        flushScheduled.set(false);
+
+        Map<Long, List<SessionInfo>> byRoom = new HashMap<>();
+        SessionInfo info;
+        while ((info = expiredSessions.poll()) != null) {
+            log.info("Processing disconnect timeout for session: {}", info.sessionId);
             for (Long roomId : info.roomIds) {
-                try {
-                    // Nếu là người dùng đăng nhập
-                    if (info.userId != null) {
-                        log.info("User {} timed out from room {}", info.userId, roomId);
-
-                        // Xử lý timeout trong game session
-                        try {
-                            gameSessionService.handlePlayerTimeout(roomId, info.userId);
-                        } catch (Exception e) {
-                            log.error("Error handling game session timeout for user {} in room {}",
-                                    info.userId, roomId, e);
-                        }
-
-                        // Xử lý ngắt kết nối người dùng khỏi phòng
-                        roomService.handleUserDisconnectTimeout(roomId, info.userId);
-                    }
-                    // Nếu là khách
-                    else if (info.guestName != null) {
-                        log.info("Guest {} timed out from room {}", info.guestName, roomId);
-                        roomService.handleGuestDisconnectTimeout(roomId, info.guestName);
-                    }
-                } catch (Exception e) {
-                    log.error("Error processing disconnect timeout for session {} in room {}", sessionId, roomId, e);
-                }
+                byRoom.computeIfAbsent(roomId, id -> new ArrayList<>()).add(info);
             }
+        }
+
+        byRoom.forEach((roomId, expired) -> batchExecutor.execute(() -> processRoomTimeouts(roomId, expired)));
+    }
 
-            // Xóa session sau khi đã xử lý
-            sessions.remove(sessionId);
-            scheduledTasks.remove(sessionId);
+    /**
+     * Xử lý một lô timeout của một phòng: một tác vụ cho phiên chơi, một transaction cho phòng.
+     */
+    private void processRoomTimeouts(Long roomId, List<SessionInfo> expired) {
+        Set<Long> userIds = new LinkedHashSet<>();
+        Set<String> guestNames = new LinkedHashSet<>();
+        for (SessionInfo info : expired) {
+            if (info.userId != null) {
+                userIds.add(info.userId);
+            } else if (info.guestName != null) {
+                guestNames.add(info.guestName);
+            }
+        }
+        log.info("Users {} and guests {} timed out from room {}", userIds, guestNames, roomId);
+
+        // Xử lý timeout trong game session
+        if (!userIds.isEmpty()) {
+            try {
+                gameSessionService.handlePlayerTimeouts(roomId, userIds);
+            } catch (Exception e) {
+                log.error("Error handling game session timeout for users {} in room {}", userIds, roomId, e);
+            }
+        }
+
+        // Xử lý ngắt kết nối khỏi phòng
+        try {
+            roomService.handleDisconnectTimeouts(roomId, userIds, guestNames);
+        } catch (Exception e) {
+            log.error("Error processing disconnect timeouts for room {}", roomId, e);
         }
     }
 
+    @PreDestroy
+    public void shutdown() {
+        timeoutWheel.stop();
+        batchExecutor.shutdownNow();
+    }
+
     /**
      * Xóa người dùng khỏi phòng khi rời phòng chủ động
      */
@@ -221,10 +365,12 @@ public class WebSocketSessionRegistry {
      * Lấy sessionId từ userId
      */
     public String getSessionIdByUserId(Long userId) {
-        for (Map.Entry<String, SessionInfo> entry : sessions.entrySet()) {
-            if (entry.getValue().userId != null && entry.getValue().userId.equals(userId)) {
-                return entry.getKey();
-            }
+        Set<String> sessionIds = sessionsByUser.get(userId);
+        if (sessionIds == null) {
+            return null;
+        }
+        for (String sessionId : sessionIds) {
+            return sessionId;
         }
         return null;
     }
@@ -0,0 +1,127 @@
+package com.huy.quizme_backend.session;
+
+import com.huy.quizme_backend.enity.Question;
+import com.huy.quizme_backend.enity.QuestionOption;
+import com.huy.quizme_backend.enity.enums.QuestionType;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Đáp án đã biên dịch của một câu hỏi, dùng để chấm điểm trong phiên chơi mà không cần truy vấn DB.
+ * <p>
+ * Các lựa chọn được đánh số theo thứ tự của câu hỏi; một tập lựa chọn được biểu diễn
+ * bằng bitmask {@code int} (bit i ứng với lựa chọn thứ i). Đối tượng bất biến và an toàn
+ * khi dùng chung giữa các thread.
+ */
+@Getter
+public final class AnswerKey {
+    // Số lựa chọn tối đa biểu diễn được bằng bitmask int
+    public static final int MAX_OPTIONS = Integer.SIZE;
+
+    private final Long questionId;
+    private final QuestionType type;
+    private final int points;
+    private final int timeLimit;
+    private final int correctMask;
+    private final String explanation;
+    private final String funFact;
+    private final List<Long> correctOptionIds;
+    private final long[] optionIds;
+
+    private AnswerKey(Question question, long[] optionIds, int correctMask, List<Long> correctOptionIds) {
+        this.questionId = question.getId();
+        this.type = question.getType();
+        this.points = question.getPoints();
+        this.timeLimit = question.getTimeLimit();
+        this.explanation = question.getExplanation();
+        this.funFact = question.getFunFact();
+        this.optionIds = optionIds;
+        this.correctMask = correctMask;
+        this.correctOptionIds = correctOptionIds;
+    }
+
+    /**
+     * Biên dịch đáp án từ entity câu hỏi (đã tải kèm các lựa chọn).
+     */
+    public static AnswerKey compile(Question question) {
+        List<QuestionOption> options = question.getOptions() != null ? question.getOptions() : List.of();
+        if (options.size() > MAX_OPTIONS) {
+            throw new IllegalStateException("Câu hỏi " + question.getId() + " có quá nhiều lựa chọn: " + options.size());
+        }
+
+        long[] optionIds = new long[options.size()];
+        int correctMask = 0;
+        List<Long> correctOptionIds = new ArrayList<>();
+        for (int i = 0; i < options.size(); i++) {
+            QuestionOption option = options.get(i);
+            optionIds[i] = option.getId();
+            if (Boolean.TRUE.equals(option.getIsCorrect())) {
+                correctMask |= 1 << i;
+                correctOptionIds.add(option.getId());
+            }
+        }
+
+        return new AnswerKey(question, optionIds, correctMask, Collections.unmodifiableList(correctOptionIds));
+    }
+
+    /**
+     * Số lựa chọn của câu hỏi.
+     */
+    public int getOptionCount() {
+        return optionIds.length;
+    }
+
+    /**
+     * ID của lựa chọn thứ {@code index}.
+     */
+    public long getOptionId(int index) {
+        return optionIds[index];
+    }
+
+    /**
+     * Chuyển danh sách ID lựa chọn thành bitmask.
+     * Với câu hỏi một đáp án chỉ lựa chọn đầu tiên được tính.
+     *
+     * @return bitmask, hoặc 0 nếu danh sách rỗng hoặc có ID không thuộc câu hỏi
+     */
+    public int toMask(List<Long> selectedOptionIds) {
+        if (selectedOptionIds == null || selectedOptionIds.isEmpty()) {
+            return 0;
+        }
+
+        int mask = 0;
+        for (Long optionId : selectedOptionIds) {
+            int index = indexOf(optionId);
+            if (index < 0) {
+                return 0;
+            }
+            mask |= 1 << index;
+            if (!isMultipleChoice()) {
+                break;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Câu hỏi cho phép chọn nhiều đáp án hay không.
+     */
+    public boolean isMultipleChoice() {
+        return type == QuestionType.CHECKBOX;
+    }
+
+    private int indexOf(Long optionId) {
+        if (optionId == null) {
+            return -1;
+        }
+        for (int i = 0; i < optionIds.length; i++) {
+            if (optionIds[i] == optionId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,172 @@
+package com.huy.quizme_backend.session;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bảng câu trả lời của một câu hỏi trong phiên chơi, cấp phát trước cho mọi người chơi.
+ * <p>
+ * Mỗi người chơi có một ô (slot) cố định. Một câu trả lời được nén vào một {@code long}:
+ * 32 bit cao là thời gian trả lời (ms), 32 bit thấp là bitmask lựa chọn theo {@link AnswerKey}.
+ * Giá trị 0 nghĩa là chưa trả lời (một câu trả lời hợp lệ luôn có ít nhất một lựa chọn).
+ * Ghi câu trả lời bằng CAS nên chỉ câu trả lời đầu tiên được giữ và không tạo object nào.
+ * <p>
+ * Thống kê của câu hỏi (số người chọn từng lựa chọn, số câu trả lời, số câu đúng, tổng thời gian)
+ * được cộng dồn ngay khi nhận câu trả lời bằng các bộ đếm phân mảnh {@link LongAdder},
+ * nên khi kết thúc câu hỏi chỉ cần đọc lại mà không phải quét toàn bộ người chơi.
+ * <p>
+ * Khi kết thúc câu hỏi, bảng được niêm phong ({@link #seal()}): câu trả lời đến sau bị từ chối
+ * và việc niêm phong chờ các lần ghi đang dở hoàn tất, nên kết quả chấm điểm luôn đầy đủ.
+ */
+public final class AnswerSheet {
+    private static final long MASK_BITS = 0xFFFF_FFFFL;
+    private static final int SEALED = Integer.MIN_VALUE;
+
+    private final AtomicLongArray answers;
+
+    // Điểm đã chấm cho từng ô, chỉ được ghi bởi thread chấm điểm khi kết thúc câu hỏi
+    private final int[] scores;
+
+    // Bộ đếm thống kê, cập nhật không khoá khi nhận câu trả lời
+    private final LongAdder[] optionCounts;
+    private final LongAdder answerCount = new LongAdder();
+    private final LongAdder correctCount = new LongAdder();
+    private final LongAdder answerTimeSumMs = new LongAdder();
+
+    // Bit cao: đã niêm phong; các bit còn lại: số lần ghi đang diễn ra
+    private final AtomicInteger writers = new AtomicInteger();
+
+    public AnswerSheet(int capacity, int optionCount) {
+        this.answers = new AtomicLongArray(capacity);
+        this.scores = new int[capacity];
+        this.optionCounts = new LongAdder[optionCount];
+        for (int i = 0; i < optionCount; i++) {
+            optionCounts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Số ô (người chơi) của bảng.
+     */
+    public int capacity() {
+        return scores.length;
+    }
+
+    /**
+     * Ghi câu trả lời cho một ô và cập nhật thống kê của câu hỏi.
+     *
+     * @param correct Câu trả lời có đúng hay không (đã chấm theo {@link AnswerKey})
+     * @return false nếu bảng đã niêm phong, ô đã có câu trả lời hoặc bitmask rỗng
+     */
+    public boolean submit(int slot, int optionMask, int answerTimeMs, boolean correct) {
+        if (optionMask == 0 || !enterWriter()) {
+            return false;
+        }
+        try {
+            return record(slot, optionMask, answerTimeMs, correct);
+        } finally {
+            writers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Niêm phong bảng: từ chối câu trả lời mới và chờ các lần ghi đang dở hoàn tất.
+     */
+    public void seal() {
+        writers.getAndUpdate(state -> state | SEALED);
+        while (writers.get() != SEALED) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private boolean enterWriter() {
+        for (; ; ) {
+            int state = writers.get();
+            if (state < 0) {
+                return false;
+            }
+            if (writers.compareAndSet(state, state + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean record(int slot, int optionMask, int answerTimeMs, boolean correct) {
+        if (!answers.compareAndSet(slot, 0L, pack(optionMask, answerTimeMs))) {
+            return false;
+        }
+
+        // Chỉ câu trả lời được ghi nhận mới được tính vào thống kê
+        for (int mask = optionMask; mask != 0; mask &= mask - 1) {
+            int index = Integer.numberOfTrailingZeros(mask);
+            if (index < optionCounts.length) {
+                optionCounts[index].increment();
+            }
+        }
+        answerCount.increment();
+        if (correct) {
+            correctCount.increment();
+        }
+        answerTimeSumMs.add(Math.max(0, answerTimeMs));
+        return true;
+    }
+
+    public boolean isAnswered(int slot) {
+        return answers.get(slot) != 0L;
+    }
+
+    /**
+     * Bitmask lựa chọn của ô, 0 nếu chưa trả lời.
+     */
+    public int getOptionMask(int slot) {
+        return (int) (answers.get(slot) & MASK_BITS);
+    }
+
+    /**
+     * Thời gian trả lời (ms) của ô.
+     */
+    public int getAnswerTimeMs(int slot) {
+        return (int) (answers.get(slot) >>> 32);
+    }
+
+    public int getScore(int slot) {
+        return scores[slot];
+    }
+
+    public void setScore(int slot, int score) {
+        scores[slot] = score;
+    }
+
+    /**
+     * Số ô đã có câu trả lời.
+     */
+    public int answeredCount() {
+        return answerCount.intValue();
+    }
+
+    /**
+     * Số câu trả lời đúng.
+     */
+    public int correctCount() {
+        return correctCount.intValue();
+    }
+
+    /**
+     * Tổng thời gian trả lời (ms) của các câu trả lời đã ghi nhận.
+     */
+    public long answerTimeSumMs() {
+        return answerTimeSumMs.sum();
+    }
+
+    /**
+     * Số người đã chọn lựa chọn thứ {@code optionIndex}.
+     */
+    public int optionCount(int optionIndex) {
+        return optionCounts[optionIndex].intValue();
+    }
+
+    private static long pack(int optionMask, int answerTimeMs) {
+        return ((long) Math.max(0, answerTimeMs) << 32) | (optionMask & MASK_BITS);
+    }
+}
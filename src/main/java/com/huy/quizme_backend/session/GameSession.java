@@ -1,5 +1,6 @@
 package com.huy.quizme_backend.session;
 
+import com.fasterxml.jackson.databind.util.RawValue;
 import com.huy.quizme_backend.dto.game.QuestionGameDTO;
 import com.huy.quizme_backend.enity.Question;
 
@@ -7,7 +8,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicReference;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -20,12 +21,80 @@ import lombok.NoArgsConstructor;
 public class GameSession {
     private Long roomId;
     private Long quizId;
-    private GameStatus status;
-    private Integer currentQuestionIndex;
+    private String quizTitle;
+    // ID của GameResult, tạo khi khởi tạo phiên chơi để ghi câu trả lời của từng câu hỏi
+    private Long gameResultId;
+    // Giai đoạn hiện tại, chỉ thay đổi qua compareAndSetPhase
+    private final AtomicReference<PhaseState> phase = new AtomicReference<>(PhaseState.initial());
     private ConcurrentMap<Long, ParticipantSession> participants = new ConcurrentHashMap<>();
     private LocalDateTime startTime;
     private LocalDateTime endTime;
+    // Gửi sự kiện TIMER mỗi giây cho client cũ (mặc định chỉ gửi deadline khi chuyển giai đoạn)
+    private boolean legacyTimerTicks;
+    // Chế độ phòng lớn: chỉ broadcast phần chung, phần riêng gửi qua kênh của từng người chơi
+    private boolean largeRoom;
+    // Chế độ top-N: chỉ broadcast top N bảng xếp hạng, mỗi người chơi nhận thứ hạng riêng (0 = tắt)
+    private int leaderboardTopN;
+    // Chế độ bảng xếp hạng delta: trạng thái đã công bố (null = tắt)
+    private LeaderboardDeltaTracker leaderboardDeltas;
     private List<QuestionGameDTO> questions;
-    private ScheduledFuture<?> currentTimer;
-    private ScheduledFuture<?> endTimer;
+    // Payload JSON của từng câu hỏi, serialize sẵn một lần khi khởi tạo phiên chơi
+    private List<RawValue> questionPayloads;
+    // Đáp án đã biên dịch, cùng thứ tự với questions
+    private List<AnswerKey> answerKeys;
+    // Bảng câu trả lời của từng câu hỏi, chỉ số theo thứ tự câu hỏi
+    private AnswerSheet[] answerSheets;
+    // Người chơi theo slot
+    private ParticipantSession[] participantsBySlot;
+    // Bảng xếp hạng trực tiếp, cập nhật mỗi khi điểm thay đổi
+    private LiveLeaderboard leaderboard;
+
+    public PhaseState getPhase() {
+        return phase.get();
+    }
+
+    /**
+     * Chuyển giai đoạn nếu giai đoạn hiện tại vẫn là {@code expected}.
+     */
+    public boolean compareAndSetPhase(PhaseState expected, PhaseState next) {
+        return phase.compareAndSet(expected, next);
+    }
+
+    public GameStatus getStatus() {
+        return phase.get().getStatus();
+    }
+
+    /**
+     * Chỉ số câu hỏi hiện tại, null nếu chưa bắt đầu câu hỏi nào.
+     */
+    public Integer getCurrentQuestionIndex() {
+        int questionIndex = phase.get().getQuestionIndex();
+        return questionIndex >= 0 ? questionIndex : null;
+    }
+
+    /**
+     * Cấp phát trước các cấu trúc theo slot: bảng câu trả lời cho mọi câu hỏi
+     * và bảng xếp hạng trực tiếp. Gọi sau khi đã gán slot cho người chơi và tải câu hỏi.
+     */
+    public void allocateSlots() {
+        int capacity = participants.size();
+        participantsBySlot = new ParticipantSession[capacity];
+        for (ParticipantSession participant : participants.values()) {
+            participantsBySlot[participant.getSlot()] = participant;
+        }
+
+        answerSheets = new AnswerSheet[answerKeys.size()];
+        for (int i = 0; i < answerSheets.length; i++) {
+            answerSheets[i] = new AnswerSheet(capacity, answerKeys.get(i).getOptionCount());
+        }
+
+        leaderboard = new LiveLeaderboard(capacity);
+    }
+
+    /**
+     * Người chơi ở một slot.
+     */
+    public ParticipantSession getParticipantBySlot(int slot) {
+        return participantsBySlot[slot];
+    }
 }
@@ -2,6 +2,10 @@ package com.huy.quizme_backend.session;
 
 /**
  * Trạng thái của phiên chơi game.
+ * <p>
+ * Vòng lặp mỗi câu hỏi: IN_PROGRESS → QUESTION_END → SHOWING_RESULTS → SHOWING_LEADERBOARD
+ * → NEXT_QUESTION → IN_PROGRESS (câu tiếp theo). Mọi trạng thái chưa kết thúc đều có thể chuyển
+ * sang COMPLETED.
  */
 public enum GameStatus {
     WAITING,
@@ -10,5 +14,25 @@ public enum GameStatus {
     SHOWING_RESULTS,    // Hiển thị kết quả câu hỏi
     SHOWING_LEADERBOARD, // Hiển thị bảng xếp hạng
     NEXT_QUESTION,
-    COMPLETED
+    COMPLETED;
+
+    /**
+     * Kiểm tra có được phép chuyển từ trạng thái này sang trạng thái {@code next} hay không.
+     */
+    public boolean canTransitionTo(GameStatus next) {
+        if (this == COMPLETED) {
+            return false;
+        }
+        if (next == COMPLETED) {
+            return true;
+        }
+        return switch (this) {
+            case WAITING, NEXT_QUESTION -> next == IN_PROGRESS;
+            case IN_PROGRESS -> next == QUESTION_END;
+            case QUESTION_END -> next == SHOWING_RESULTS;
+            case SHOWING_RESULTS -> next == SHOWING_LEADERBOARD;
+            case SHOWING_LEADERBOARD -> next == NEXT_QUESTION;
+            default -> false;
+        };
+    }
 }
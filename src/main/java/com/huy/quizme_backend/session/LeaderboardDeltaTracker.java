@@ -0,0 +1,74 @@
+package com.huy.quizme_backend.session;
+
+import java.util.Arrays;
+
+/**
+ * Theo dõi bảng xếp hạng đã gửi cho client để chỉ gửi phần thay đổi (delta) sau mỗi câu hỏi.
+ * <p>
+ * Lưu điểm và thứ hạng đã công bố theo slot cùng số thứ tự (sequence) của lần công bố gần nhất.
+ * Client phát hiện thiếu sequence sẽ yêu cầu lại toàn bộ (snapshot) tại sequence hiện tại.
+ */
+public final class LeaderboardDeltaTracker {
+    private final int[] publishedScores;
+    // Thứ hạng đã công bố (bắt đầu từ 1), 0 nếu chưa công bố
+    private final int[] publishedRanks;
+    private long sequence;
+
+    public LeaderboardDeltaTracker(int capacity) {
+        this.publishedScores = new int[capacity];
+        this.publishedRanks = new int[capacity];
+    }
+
+    public synchronized long sequence() {
+        return sequence;
+    }
+
+    /**
+     * Công bố trạng thái hiện tại của bảng xếp hạng, tăng sequence.
+     *
+     * @return Các slot có điểm hoặc thứ hạng thay đổi so với lần công bố trước, theo thứ tự xếp hạng
+     */
+    public synchronized int[] advance(LiveLeaderboard leaderboard) {
+        int[] ranked = leaderboard.topK(leaderboard.size());
+        int[] changed = new int[ranked.length];
+        int changedCount = 0;
+
+        for (int i = 0; i < ranked.length; i++) {
+            int slot = ranked[i];
+            int rank = i + 1;
+            int score = leaderboard.scoreOf(slot);
+            if (publishedRanks[slot] != rank || publishedScores[slot] != score) {
+                publishedRanks[slot] = rank;
+                publishedScores[slot] = score;
+                changed[changedCount++] = slot;
+            }
+        }
+
+        sequence++;
+        return Arrays.copyOf(changed, changedCount);
+    }
+
+    /**
+     * Các slot đã công bố theo thứ tự thứ hạng đã công bố.
+     */
+    public synchronized int[] publishedOrder() {
+        int[] order = new int[publishedRanks.length];
+        int count = 0;
+        for (int slot = 0; slot < publishedRanks.length; slot++) {
+            int rank = publishedRanks[slot];
+            if (rank > 0) {
+                order[rank - 1] = slot;
+                count++;
+            }
+        }
+        return Arrays.copyOf(order, count);
+    }
+
+    public synchronized int publishedScore(int slot) {
+        return publishedScores[slot];
+    }
+
+    public synchronized int publishedRank(int slot) {
+        return publishedRanks[slot];
+    }
+}
@@ -0,0 +1,220 @@
+package com.huy.quizme_backend.session;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Bảng xếp hạng trực tiếp của một phiên chơi.
+ * <p>
+ * Cài đặt bằng skip list có đánh chỉ số (mỗi liên kết lưu độ dài bước nhảy), sắp xếp theo
+ * điểm giảm dần, cùng điểm thì theo slot tăng dần. Cập nhật điểm, tra thứ hạng của một người chơi
+ * và lấy phần tử theo thứ hạng đều là O(log n); lấy top-K hoặc các người chơi xung quanh
+ * là O(log n + k). Người chơi được xác định bằng slot trong {@link GameSession}.
+ * <p>
+ * Các phương thức được đồng bộ hoá trên chính đối tượng.
+ */
+public final class LiveLeaderboard {
+    private static final int MAX_LEVEL = 32;
+    private static final float LEVEL_PROBABILITY = 0.25f;
+
+    private final Node head = new Node(-1, Integer.MAX_VALUE, MAX_LEVEL);
+    private final Node[] nodesBySlot;
+    private int level = 1;
+    private int size;
+
+    /**
+     * Tạo bảng xếp hạng cho {@code capacity} slot, tất cả bắt đầu với 0 điểm.
+     */
+    public LiveLeaderboard(int capacity) {
+        this.nodesBySlot = new Node[capacity];
+        for (int slot = 0; slot < capacity; slot++) {
+            nodesBySlot[slot] = insert(slot, 0);
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Cập nhật điểm của một slot.
+     */
+    public synchronized void update(int slot, int score) {
+        Node node = nodesBySlot[slot];
+        if (node.score == score) {
+            return;
+        }
+        delete(node);
+        nodesBySlot[slot] = insert(slot, score);
+    }
+
+    /**
+     * Điểm hiện tại của một slot.
+     */
+    public synchronized int scoreOf(int slot) {
+        return nodesBySlot[slot].score;
+    }
+
+    /**
+     * Thứ hạng (bắt đầu từ 1) của một slot.
+     */
+    public synchronized int rankOf(int slot) {
+        Node target = nodesBySlot[slot];
+        int rank = 0;
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && !precedes(target, x.next[i])) {
+                rank += x.span[i];
+                x = x.next[i];
+            }
+            if (x == target) {
+                return rank;
+            }
+        }
+        throw new IllegalStateException("Slot " + slot + " không có trong bảng xếp hạng");
+    }
+
+    /**
+     * Các slot có thứ hạng cao nhất, theo thứ tự xếp hạng.
+     */
+    public synchronized int[] topK(int k) {
+        return range(1, k);
+    }
+
+    /**
+     * Các slot xung quanh một slot (tối đa {@code radius} người phía trên và phía dưới),
+     * theo thứ tự xếp hạng, bao gồm chính slot đó.
+     */
+    public synchronized int[] neighbourhood(int slot, int radius) {
+        int rank = rankOf(slot);
+        int from = Math.max(1, rank - radius);
+        return range(from, rank + radius - from + 1);
+    }
+
+    /**
+     * Tối đa {@code count} slot bắt đầu từ thứ hạng {@code fromRank} (bắt đầu từ 1).
+     */
+    public synchronized int[] range(int fromRank, int count) {
+        if (fromRank < 1 || fromRank > size || count <= 0) {
+            return new int[0];
+        }
+
+        int[] slots = new int[Math.min(count, size - fromRank + 1)];
+        Node x = nodeAt(fromRank);
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = x.slot;
+            x = x.next[0];
+        }
+        return slots;
+    }
+
+    private Node nodeAt(int rank) {
+        int traversed = 0;
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.span[i] <= rank) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+            if (traversed == rank) {
+                return x;
+            }
+        }
+        throw new IllegalStateException("Thứ hạng " + rank + " vượt quá kích thước bảng xếp hạng");
+    }
+
+    private Node insert(int slot, int score) {
+        Node[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && precedes(x.next[i], score, slot)) {
+                rank[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        int nodeLevel = randomLevel();
+        if (nodeLevel > level) {
+            for (int i = level; i < nodeLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.span[i] = size;
+            }
+            level = nodeLevel;
+        }
+
+        Node node = new Node(slot, score, nodeLevel);
+        for (int i = 0; i < nodeLevel; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = rank[0] - rank[i] + 1;
+        }
+        for (int i = nodeLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+
+        size++;
+        return node;
+    }
+
+    private void delete(Node node) {
+        Node[] update = new Node[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && precedes(x.next[i], node.score, node.slot)) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == node) {
+                update[i].span[i] += node.span[i] - 1;
+                update[i].next[i] = node.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        size--;
+    }
+
+    // a đứng trước b trong bảng xếp hạng
+    private static boolean precedes(Node a, Node b) {
+        return precedes(a, b.score, b.slot);
+    }
+
+    private static boolean precedes(Node a, int score, int slot) {
+        return a.score > score || (a.score == score && a.slot < slot);
+    }
+
+    private static int randomLevel() {
+        int nodeLevel = 1;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (nodeLevel < MAX_LEVEL && random.nextFloat() < LEVEL_PROBABILITY) {
+            nodeLevel++;
+        }
+        return nodeLevel;
+    }
+
+    private static final class Node {
+        private final int slot;
+        private final int score;
+        private final Node[] next;
+        // span[i]: số vị trí nhảy qua khi đi theo next[i]
+        private final int[] span;
+
+        private Node(int slot, int score, int level) {
+            this.slot = slot;
+            this.score = score;
+            this.next = new Node[level];
+            this.span = new int[level];
+        }
+    }
+}
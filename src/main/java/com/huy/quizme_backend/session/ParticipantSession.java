@@ -1,11 +1,8 @@
 package com.huy.quizme_backend.session;
 
-import com.huy.quizme_backend.enity.GamePlayerAnswer;
-
 import java.time.LocalDateTime;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -20,11 +17,16 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @Builder
 public class ParticipantSession {
+    // Vị trí cố định của người chơi trong các AnswerSheet của phiên chơi
+    private int slot;
+    // ID của RoomParticipant, dùng khi ghi câu trả lời vào database
+    private Long participantId;
     private Long userId;
     private String username;
+    // URL ảnh đại diện đã phân giải, cập nhật khi người dùng đổi ảnh trong lúc chơi
+    private String avatarUrl;
     private Integer score;
     private Integer rank;
-    private ConcurrentMap<Long, GamePlayerAnswer> answers = new ConcurrentHashMap<>();
     private ConnectionStatus connectionStatus;
     private LocalDateTime joinedAt;
     private LocalDateTime disconnectedAt;
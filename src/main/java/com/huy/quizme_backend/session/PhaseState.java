@@ -0,0 +1,42 @@
+package com.huy.quizme_backend.session;
+
+import lombok.Getter;
+
+/**
+ * Giai đoạn hiện tại của phiên chơi: câu hỏi, trạng thái và số thứ tự (epoch) của lần chuyển.
+ * <p>
+ * Bất biến; mỗi lần chuyển giai đoạn tạo một đối tượng mới với epoch tăng thêm 1.
+ * Timer hoặc trigger giữ tham chiếu tới giai đoạn mà nó được tạo ra, nên khi giai đoạn
+ * đã thay đổi, compare-and-set của nó sẽ thất bại.
+ */
+@Getter
+public final class PhaseState {
+    private static final PhaseState INITIAL = new PhaseState(-1, GameStatus.WAITING, 0);
+
+    // Chỉ số câu hỏi, -1 khi chưa bắt đầu câu hỏi nào
+    private final int questionIndex;
+    private final GameStatus status;
+    private final long epoch;
+
+    private PhaseState(int questionIndex, GameStatus status, long epoch) {
+        this.questionIndex = questionIndex;
+        this.status = status;
+        this.epoch = epoch;
+    }
+
+    public static PhaseState initial() {
+        return INITIAL;
+    }
+
+    /**
+     * Giai đoạn kế tiếp với trạng thái và câu hỏi cho trước.
+     */
+    public PhaseState next(GameStatus nextStatus, int nextQuestionIndex) {
+        return new PhaseState(nextQuestionIndex, nextStatus, epoch + 1);
+    }
+
+    @Override
+    public String toString() {
+        return status + "#" + questionIndex + "@" + epoch;
+    }
+}
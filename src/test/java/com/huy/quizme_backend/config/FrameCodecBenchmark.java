@@ -0,0 +1,171 @@
+package com.huy.quizme_backend.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.huy.quizme_backend.dto.game.LeaderboardDTO;
+import com.huy.quizme_backend.dto.game.QuestionGameDTO;
+import com.huy.quizme_backend.dto.game.QuestionResultDTO;
+import com.huy.quizme_backend.enity.enums.QuestionType;
+import com.huy.quizme_backend.service.WebSocketService.WebSocketMessage;
+import com.huy.quizme_backend.support.MicroBenchmark;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * So sánh thời gian mã hoá và kích thước payload của frame phòng chơi giữa JSON (mặc định)
+ * và CBOR qua {@link FrameCodecChannelInterceptor}.
+ * <p>
+ * JSON: serialize {@link WebSocketMessage} như {@code convertAndSend}.
+ * CBOR: serialize thẳng {@link WebSocketMessage} sang CBOR khi subscriber CBOR đầu tiên nhận tin nhắn
+ * (một lần cho cả phòng); mỗi subscriber tiếp theo chỉ dùng lại payload đã mã hoá.
+ * <p>
+ * Chạy: {@code mvn test -Dtest=FrameCodecBenchmark}
+ */
+class FrameCodecBenchmark {
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 50_000;
+    private static final String SESSION_ID = "bench-session";
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    // Như WebSocketService: cùng cấu hình với objectMapper, mã hoá CBOR
+    private final ObjectMapper cborMapper = objectMapper.copyWith(new CBORFactory());
+    private final FrameCodecChannelInterceptor interceptor = new FrameCodecChannelInterceptor(new SimpleMeterRegistry());
+
+    @Test
+    void compareJsonAndCbor() {
+        negotiateCbor();
+
+        Map<String, Object> frames = new LinkedHashMap<>();
+        frames.put("QUESTION", question());
+        frames.put("QUESTION_RESULT", questionResult(50));
+        frames.put("LEADERBOARD", leaderboard(50));
+        frames.put("TIMER", timer());
+
+        List<String> sizes = new ArrayList<>();
+        for (Map.Entry<String, Object> frame : frames.entrySet()) {
+            String type = frame.getKey();
+            WebSocketMessage<Object> message = new WebSocketMessage<>(type, frame.getValue());
+            String destination = "/topic/room/1/" + type.toLowerCase();
+
+            byte[] json = toJson(message);
+            MicroBenchmark.measure(type + " json", WARMUP, ITERATIONS, i -> toJson(message));
+            MicroBenchmark.measure(type + " cbor", WARMUP, ITERATIONS,
+                    i -> interceptor.preSend(roomMessage(destination, json, new CborPayload(cborMapper, message)), null));
+
+            // Các subscriber còn lại của cùng tin nhắn dùng lại payload đã mã hoá
+            CborPayload shared = new CborPayload(cborMapper, message);
+            byte[] cbor = (byte[]) interceptor.preSend(roomMessage(destination, json, shared), null).getPayload();
+            MicroBenchmark.measure(type + " cbor per extra subscriber", WARMUP, ITERATIONS,
+                    i -> interceptor.preSend(roomMessage(destination, json, shared), null));
+
+            assertThat(cbor).isNotSameAs(json);
+            sizes.add(String.format("%-16s json %6d B  cbor %6d B  (%.0f%%)",
+                    type, json.length, cbor.length, 100.0 * cbor.length / json.length));
+        }
+
+        MicroBenchmark.print("Payload size:");
+        sizes.forEach(line -> MicroBenchmark.print("%s", line));
+    }
+
+    private void negotiateCbor() {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId(SESSION_ID);
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("rawWebSocketTransport", Boolean.TRUE);
+        accessor.setSessionAttributes(attributes);
+        accessor.setNativeHeader(FrameCodecChannelInterceptor.CODEC_HEADER, "cbor");
+        accessor.setLeaveMutable(true);
+        interceptor.preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), null);
+    }
+
+    private static Message<byte[]> roomMessage(String destination, byte[] payload, CborPayload cbor) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(SESSION_ID);
+        accessor.setDestination(destination);
+        accessor.setHeader(FrameCodecChannelInterceptor.CBOR_PAYLOAD_HEADER, cbor);
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+
+    private byte[] toJson(Object message) {
+        try {
+            return objectMapper.writeValueAsBytes(message);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static QuestionGameDTO question() {
+        List<QuestionGameDTO.QuestionOptionDTO> options = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            options.add(new QuestionGameDTO.QuestionOptionDTO(1000L + i, "Lựa chọn số " + (i + 1)));
+        }
+        return QuestionGameDTO.builder()
+                .questionId(42L)
+                .content("Thủ đô của Việt Nam là thành phố nào?")
+                .imageUrl("http://localhost:8080/api/uploads/questions/question-42.png")
+                .type(QuestionType.QUIZ)
+                .timeLimit(30)
+                .points(1000)
+                .questionNumber(3)
+                .totalQuestions(10)
+                .options(options)
+                .build();
+    }
+
+    private static QuestionResultDTO questionResult(int players) {
+        List<QuestionResultDTO.OptionStatDTO> stats = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            stats.add(new QuestionResultDTO.OptionStatDTO(1000L + i, 25.0));
+        }
+        List<QuestionResultDTO.UserAnswerDTO> answers = new ArrayList<>();
+        for (int i = 0; i < players; i++) {
+            answers.add(new QuestionResultDTO.UserAnswerDTO(10_000L + i, i % 3 != 0, 500 + i * 7, 3.25 + i * 0.1));
+        }
+        return QuestionResultDTO.builder()
+                .questionId(42L)
+                .correctOptions(List.of(1001L))
+                .explanation("Hà Nội là thủ đô của Việt Nam từ năm 1976.")
+                .optionStats(stats)
+                .userAnswer(answers)
+                .build();
+    }
+
+    private static LeaderboardDTO leaderboard(int players) {
+        List<LeaderboardDTO.PlayerRankingDTO> rankings = new ArrayList<>();
+        for (int i = 0; i < players; i++) {
+            rankings.add(LeaderboardDTO.PlayerRankingDTO.builder()
+                    .userId(10_000L + i)
+                    .username("player_" + i)
+                    .score(20_000 - i * 250)
+                    .rank(i + 1)
+                    .avatar("http://localhost:8080/api/uploads/profile-images/avatar-" + i + ".png")
+                    .isGuest(false)
+                    .correctCount(5)
+                    .build());
+        }
+        return LeaderboardDTO.builder().rankings(rankings).totalPlayers(players).build();
+    }
+
+    private static Map<String, Integer> timer() {
+        Map<String, Integer> timer = new HashMap<>();
+        timer.put("remainingTime", 17);
+        timer.put("totalTime", 30);
+        return timer;
+    }
+}
@@ -0,0 +1,91 @@
+package com.huy.quizme_backend.engine;
+
+import com.huy.quizme_backend.session.GameSession;
+import com.huy.quizme_backend.session.ParticipantSession;
+import com.huy.quizme_backend.support.MicroBenchmark;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Chi phí ghi một câu trả lời vào journal khi group commit đang chạy: 1.000 phòng × 50 người chơi,
+ * mỗi lần đo là một {@code appendAnswer} vào phòng tiếp theo, trong khi thread sync đẩy các journal
+ * bị thay đổi xuống đĩa sau mỗi {@code group-commit-ms} (10 ms).
+ * <p>
+ * Ngoài độ trễ của người ghi, in thời gian sync và chi phí trung bình cho mỗi câu trả lời khi tính
+ * cả thời gian sync (thread sync chạy cùng CPU với người ghi).
+ * <p>
+ * Chạy: {@code mvn test -Dtest=GameJournalBenchmark}
+ */
+class GameJournalBenchmark {
+    private static final int ROOMS = 1_000;
+    private static final int PLAYERS = 50;
+    private static final int WARMUP = 50_000;
+    private static final int ITERATIONS = 200_000;
+    private static final long GROUP_COMMIT_MS = 10;
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private GameJournal journal;
+
+    @AfterEach
+    void tearDown() {
+        journal.shutdown();
+    }
+
+    @Test
+    void appendAnswerWithGroupCommit() throws IOException {
+        journal = new GameJournal(meterRegistry, true, directory.toString(), 256 * 1024, GROUP_COMMIT_MS);
+        journal.start();
+        for (long roomId = 0; roomId < ROOMS; roomId++) {
+            journal.open(session(roomId));
+        }
+
+        Timer sync = meterRegistry.get("game.journal.sync").timer();
+        long syncCount = sync.count();
+        double syncNanos = sync.totalTime(TimeUnit.NANOSECONDS);
+
+        MicroBenchmark.Result result = MicroBenchmark.measure(
+                "appendAnswer, " + ROOMS + " rooms, group commit " + GROUP_COMMIT_MS + " ms", WARMUP, ITERATIONS, i -> {
+                    long roomId = i % ROOMS;
+                    int slot = (i / ROOMS) % PLAYERS;
+                    journal.appendAnswer(roomId, i / (ROOMS * PLAYERS), slot, 1 << (i & 3), 1000 + (i & 1023), (i & 1) == 0);
+                });
+
+        long syncs = sync.count() - syncCount;
+        double syncTotal = sync.totalTime(TimeUnit.NANOSECONDS) - syncNanos;
+        MicroBenchmark.print("sync: %,d journal flushes, mean %.2f us, max %.2f us",
+                syncs, syncs > 0 ? syncTotal / syncs / 1000.0 : 0.0, sync.max(TimeUnit.MICROSECONDS));
+        MicroBenchmark.print("per answer incl. sync: %.2f us (append %.2f us + sync %.2f us)",
+                result.meanNanos() / 1000.0 + syncTotal / ITERATIONS / 1000.0,
+                result.meanNanos() / 1000.0, syncTotal / ITERATIONS / 1000.0);
+
+        assertThat(result.percentileNanos(0.50)).isLessThan(TimeUnit.MICROSECONDS.toNanos(50));
+    }
+
+    private static GameSession session(long roomId) {
+        GameSession gameSession = new GameSession();
+        gameSession.setRoomId(roomId);
+        gameSession.setQuizId(1L);
+        gameSession.setGameResultId(roomId);
+        for (int slot = 0; slot < PLAYERS; slot++) {
+            ParticipantSession participant = new ParticipantSession();
+            participant.setSlot(slot);
+            participant.setUserId(roomId * PLAYERS + slot);
+            participant.setParticipantId(roomId * PLAYERS + slot);
+            participant.setUsername("player_" + slot);
+            gameSession.getParticipants().put(participant.getUserId(), participant);
+        }
+        return gameSession;
+    }
+}
@@ -0,0 +1,251 @@
+package com.huy.quizme_backend.engine;
+
+import com.huy.quizme_backend.session.AnswerSheet;
+import com.huy.quizme_backend.session.GameSession;
+import com.huy.quizme_backend.session.GameStatus;
+import com.huy.quizme_backend.session.ParticipantSession;
+import com.huy.quizme_backend.session.PhaseState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GameJournalTest {
+    private static final Long ROOM_ID = 7L;
+
+    @TempDir
+    Path directory;
+
+    private GameJournal journal;
+
+    @AfterEach
+    void tearDown() {
+        if (journal != null) {
+            journal.shutdown();
+        }
+    }
+
+    @Test
+    void replaysRecordsInWriteOrder() {
+        journal = journal();
+        GameSession gameSession = session();
+        journal.open(gameSession);
+        journal.appendPhase(ROOM_ID, PhaseState.initial().next(GameStatus.IN_PROGRESS, 0), 1_000L);
+        journal.appendAnswer(ROOM_ID, 0, 1, 0b10, 1500, true);
+        journal.appendAnswer(ROOM_ID, 0, 0, 0b01, 2300, false);
+        journal.appendScores(ROOM_ID, 0, scoredSheet());
+        journal.shutdown();
+
+        Path file = single(journal.pendingJournals());
+        RecordingReplay replay = new RecordingReplay();
+        assertThat(journal.replay(file, replay)).isTrue();
+        assertThat(replay.events).containsExactly(
+                "init 7 3 11 [0:100:bob, 1:101:alice]",
+                "phase IN_PROGRESS 0 1000",
+                "answer 0 1 2 1500 true",
+                "answer 0 0 1 2300 false",
+                "scores 0 [0, 950]");
+    }
+
+    @Test
+    void marksCompletedGameAndKeepsFileUntilDiscarded() {
+        journal = journal();
+        GameSession gameSession = session();
+        LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        gameSession.setStartTime(start);
+        gameSession.setEndTime(start.plusMinutes(3));
+        journal.open(gameSession);
+        journal.appendAnswer(ROOM_ID, 0, 1, 0b10, 1500, true);
+
+        Path file = journal.markCompleted(gameSession, true);
+
+        assertThat(file).exists();
+        // Journal đã đóng: bản ghi sau khi hoàn tất bị bỏ qua
+        journal.appendAnswer(ROOM_ID, 0, 0, 0b01, 2300, false);
+        RecordingReplay replay = new RecordingReplay();
+        assertThat(journal.replay(file, replay)).isTrue();
+        assertThat(replay.events).containsExactly(
+                "init 7 3 11 [0:100:bob, 1:101:alice]",
+                "answer 0 1 2 1500 true",
+                "completed " + start + " " + start.plusMinutes(3) + " true");
+
+        journal.discard(file);
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    void dropsTornTail() throws IOException {
+        Path file = writeAnswers(3);
+        List<Integer> offsets = recordOffsets(file);
+        // Bản ghi cuối cùng chỉ được ghi một nửa trước khi crash
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(offsets.get(offsets.size() - 1) + 10);
+        }
+
+        RecordingReplay replay = new RecordingReplay();
+        assertThat(journal.replay(file, replay)).isTrue();
+        assertThat(replay.events).containsExactly(
+                "init 7 3 11 [0:100:bob, 1:101:alice]",
+                "answer 0 0 1 1000 true",
+                "answer 0 1 1 1001 true");
+    }
+
+    @Test
+    void stopsAtRecordWithBadChecksum() throws IOException {
+        Path file = writeAnswers(3);
+        List<Integer> offsets = recordOffsets(file);
+        // Hỏng một byte trong bản ghi câu trả lời thứ hai: nó và mọi bản ghi sau bị bỏ
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), offsets.get(2) + 12);
+        }
+
+        RecordingReplay replay = new RecordingReplay();
+        assertThat(journal.replay(file, replay)).isTrue();
+        assertThat(replay.events).containsExactly(
+                "init 7 3 11 [0:100:bob, 1:101:alice]",
+                "answer 0 0 1 1000 true");
+    }
+
+    @Test
+    void resumesAfterLastValidRecord() throws IOException {
+        Path file = writeAnswers(2);
+        List<Integer> offsets = recordOffsets(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(offsets.get(offsets.size() - 1) + 5);
+        }
+
+        journal = journal();
+        journal.resume(ROOM_ID, file);
+        journal.appendAnswer(ROOM_ID, 1, 1, 0b100, 4200, false);
+        journal.shutdown();
+
+        RecordingReplay replay = new RecordingReplay();
+        assertThat(journal.replay(file, replay)).isTrue();
+        assertThat(replay.events).containsExactly(
+                "init 7 3 11 [0:100:bob, 1:101:alice]",
+                "answer 0 0 1 1000 true",
+                "answer 1 1 4 4200 false");
+    }
+
+    @Test
+    void mapsNewSegmentWhenRecordDoesNotFit() {
+        journal = new GameJournal(new SimpleMeterRegistry(), true, directory.toString(), 128, 10);
+        journal.open(session());
+        for (int i = 0; i < 20; i++) {
+            journal.appendAnswer(ROOM_ID, 0, i % 2, 1, 1000 + i, true);
+        }
+        journal.shutdown();
+
+        RecordingReplay replay = new RecordingReplay();
+        assertThat(journal.replay(single(journal.pendingJournals()), replay)).isTrue();
+        assertThat(replay.events).hasSize(21);
+        assertThat(replay.events.get(20)).isEqualTo("answer 0 1 1 1019 true");
+    }
+
+    private GameJournal journal() {
+        return new GameJournal(new SimpleMeterRegistry(), true, directory.toString(), 4096, 10);
+    }
+
+    /**
+     * Journal có trạng thái ban đầu và {@code count} câu trả lời, đã đóng như khi ứng dụng dừng.
+     */
+    private Path writeAnswers(int count) {
+        journal = journal();
+        journal.open(session());
+        for (int i = 0; i < count; i++) {
+            journal.appendAnswer(ROOM_ID, 0, i % 2, 1, 1000 + i, true);
+        }
+        journal.shutdown();
+        return single(journal.pendingJournals());
+    }
+
+    /**
+     * Vị trí bắt đầu của từng bản ghi (đọc trường độ dài ở đầu mỗi bản ghi).
+     */
+    private static List<Integer> recordOffsets(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        List<Integer> offsets = new ArrayList<>();
+        int position = 0;
+        while (position + 8 < buffer.limit() && buffer.getInt(position) > 0) {
+            offsets.add(position);
+            position += 8 + buffer.getInt(position);
+        }
+        return offsets;
+    }
+
+    private static Path single(List<Path> files) {
+        assertThat(files).hasSize(1);
+        return files.get(0);
+    }
+
+    private static GameSession session() {
+        GameSession gameSession = new GameSession();
+        gameSession.setRoomId(ROOM_ID);
+        gameSession.setQuizId(3L);
+        gameSession.setGameResultId(11L);
+        gameSession.getParticipants().put(101L, participant(1, 101L, "alice"));
+        gameSession.getParticipants().put(100L, participant(0, 100L, "bob"));
+        return gameSession;
+    }
+
+    private static ParticipantSession participant(int slot, Long userId, String username) {
+        ParticipantSession participant = new ParticipantSession();
+        participant.setSlot(slot);
+        participant.setUserId(userId);
+        participant.setParticipantId(userId + 1000);
+        participant.setUsername(username);
+        return participant;
+    }
+
+    private static AnswerSheet scoredSheet() {
+        AnswerSheet answerSheet = new AnswerSheet(2, 2);
+        answerSheet.setScore(1, 950);
+        return answerSheet;
+    }
+
+    private static final class RecordingReplay implements GameJournal.Replay {
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void init(Long roomId, Long quizId, Long gameResultId, boolean legacyTimerTicks,
+                         List<ParticipantSession> participants) {
+            events.add("init " + roomId + " " + quizId + " " + gameResultId + " " + participants.stream()
+                    .map(participant -> participant.getSlot() + ":" + participant.getUserId() + ":" + participant.getUsername())
+                    .toList());
+        }
+
+        @Override
+        public void answer(int questionIndex, int slot, int optionMask, int answerTimeMs, boolean correct) {
+            events.add("answer " + questionIndex + " " + slot + " " + optionMask + " " + answerTimeMs + " " + correct);
+        }
+
+        @Override
+        public void phase(GameStatus status, int questionIndex, long deadlineMillis) {
+            events.add("phase " + status + " " + questionIndex + " " + deadlineMillis);
+        }
+
+        @Override
+        public void scores(int questionIndex, int[] scores) {
+            events.add("scores " + questionIndex + " " + Arrays.toString(scores));
+        }
+
+        @Override
+        public void completed(LocalDateTime startTime, LocalDateTime endTime, boolean finalizeResults) {
+            events.add("completed " + startTime + " " + endTime + " " + finalizeResults);
+        }
+    }
+}
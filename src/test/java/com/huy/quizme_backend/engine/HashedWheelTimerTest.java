@@ -0,0 +1,112 @@
+package com.huy.quizme_backend.engine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HashedWheelTimerTest {
+    private HashedWheelTimer timer;
+
+    @BeforeEach
+    void setUp() {
+        // Bánh xe nhỏ để các timeout dài phải quay nhiều vòng
+        timer = new HashedWheelTimer("test-wheel", 5, TimeUnit.MILLISECONDS, 8, Runnable::run);
+    }
+
+    @AfterEach
+    void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    void firesTimeoutAfterDelay() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        timer.newTimeout(fired::countDown, 50, TimeUnit.MILLISECONDS);
+
+        assertThat(fired.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+        assertThat(timer.pendingTimeouts()).isZero();
+    }
+
+    @Test
+    void firesTimeoutsInDeadlineOrderAcrossRounds() throws InterruptedException {
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        CountDownLatch fired = new CountDownLatch(3);
+
+        // 8 bucket x 5ms = 40ms mỗi vòng: 120ms cần ba vòng
+        timer.newTimeout(() -> { order.add(3); fired.countDown(); }, 120, TimeUnit.MILLISECONDS);
+        timer.newTimeout(() -> { order.add(1); fired.countDown(); }, 10, TimeUnit.MILLISECONDS);
+        timer.newTimeout(() -> { order.add(2); fired.countDown(); }, 60, TimeUnit.MILLISECONDS);
+
+        assertThat(fired.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(order).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void overdueTimeoutFiresOnNextTick() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+
+        timer.newTimeout(fired::countDown, -10, TimeUnit.MILLISECONDS);
+
+        assertThat(fired.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void cancelledTimeoutNeverFires() throws InterruptedException {
+        AtomicInteger cancelledRuns = new AtomicInteger();
+        CountDownLatch later = new CountDownLatch(1);
+
+        HashedWheelTimer.Timeout timeout =
+                timer.newTimeout(cancelledRuns::incrementAndGet, 30, TimeUnit.MILLISECONDS);
+        assertThat(timeout.cancel()).isTrue();
+        // Huỷ lần thứ hai không có tác dụng
+        assertThat(timeout.cancel()).isFalse();
+
+        timer.newTimeout(later::countDown, 100, TimeUnit.MILLISECONDS);
+        assertThat(later.await(2, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(cancelledRuns).hasValue(0);
+        assertThat(timer.pendingTimeouts()).isZero();
+    }
+
+    @Test
+    void cancelAfterFireReturnsFalse() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(fired::countDown, 10, TimeUnit.MILLISECONDS);
+
+        assertThat(fired.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(timeout.cancel()).isFalse();
+    }
+
+    @Test
+    void failingTaskDoesNotStopWorker() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+
+        timer.newTimeout(() -> {
+            throw new IllegalStateException("boom");
+        }, 5, TimeUnit.MILLISECONDS);
+        timer.newTimeout(fired::countDown, 30, TimeUnit.MILLISECONDS);
+
+        assertThat(fired.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void rejectsTimeoutsAfterStop() {
+        timer.stop();
+
+        assertThatThrownBy(() -> timer.newTimeout(() -> { }, 10, TimeUnit.MILLISECONDS))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,83 @@
+package com.huy.quizme_backend.engine;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InboundLaneDispatcherTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InboundLaneDispatcher dispatcher = new InboundLaneDispatcher(meterRegistry, 4, 3);
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void processesTasksOfOneRoomInDispatchOrder() throws InterruptedException {
+        InboundLaneDispatcher large = new InboundLaneDispatcher(new SimpleMeterRegistry(), 4, 10_000);
+        try {
+            List<Integer> order = new ArrayList<>();
+            CountDownLatch done = new CountDownLatch(1000);
+            for (int i = 0; i < 1000; i++) {
+                int value = i;
+                assertThat(large.dispatch(7L, () -> {
+                    order.add(value);
+                    done.countDown();
+                })).isTrue();
+            }
+
+            assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+            for (int i = 0; i < 1000; i++) {
+                assertThat(order.get(i)).isEqualTo(i);
+            }
+        } finally {
+            large.shutdown();
+        }
+    }
+
+    @Test
+    void rejectsTasksWhenLaneIsFull() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+
+        // Tác vụ đầu tiên giữ làn, ba tác vụ tiếp theo lấp đầy hàng đợi (sức chứa 3)
+        assertThat(dispatcher.dispatch(1L, () -> {
+            started.countDown();
+            await(release);
+        })).isTrue();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 3; i++) {
+            assertThat(dispatcher.dispatch(1L, done::countDown)).isTrue();
+        }
+
+        assertThat(dispatcher.dispatch(1L, done::countDown)).isFalse();
+        assertThat(meterRegistry.get("game.inbound.lane.rejected").counter().count()).isEqualTo(1);
+
+        // Làn khác vẫn nhận tác vụ
+        CountDownLatch otherLane = new CountDownLatch(1);
+        assertThat(dispatcher.dispatch(2L, otherLane::countDown)).isTrue();
+        assertThat(otherLane.await(5, TimeUnit.SECONDS)).isTrue();
+
+        release.countDown();
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        // Sau khi làn được xử lý hết lại nhận tác vụ mới
+        assertThat(dispatcher.dispatch(1L, () -> { })).isTrue();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
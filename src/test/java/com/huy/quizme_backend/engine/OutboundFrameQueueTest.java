@@ -0,0 +1,200 @@
+package com.huy.quizme_backend.engine;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboundFrameQueueTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch firstSendStarted = new CountDownLatch(1);
+    private final WebSocketSession delegate = mock(WebSocketSession.class);
+    private OutboundFlowControl control;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (control != null) {
+            control.shutdown();
+        }
+    }
+
+    @Test
+    void keepsOnlyLatestTimerAndLeaderboardFrame() throws Exception {
+        OutboundFrameQueue queue = queue(1 << 20, 10_000);
+
+        // Lần gửi đầu tiên bị giữ lại để các frame sau phải xếp hàng
+        queue.sendMessage(frame("/topic/room/1/question", "q1"));
+        assertThat(firstSendStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int remaining = 5; remaining >= 1; remaining--) {
+            queue.sendMessage(frame("/topic/room/1/timer", "t" + remaining));
+        }
+        queue.sendMessage(frame("/topic/room/1/leaderboard", "l1"));
+        queue.sendMessage(frame("/topic/room/1/question-result", "r1"));
+        queue.sendMessage(frame("/topic/room/1/leaderboard", "l2"));
+        release.countDown();
+
+        awaitSent(4);
+        assertThat(sent).containsExactly("q1", "t1", "r1", "l2");
+        assertThat(meterRegistry.get("game.ws.outbound.dropped").tag("reason", "superseded").counter().count())
+                .isEqualTo(5);
+        assertQueueEmpty();
+    }
+
+    @Test
+    void neverCoalescesOtherDestinations() throws Exception {
+        OutboundFrameQueue queue = queue(1 << 20, 10_000);
+
+        queue.sendMessage(frame("/topic/room/1/chat", "c0"));
+        assertThat(firstSendStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        queue.sendMessage(frame("/topic/room/1/chat", "c1"));
+        queue.sendMessage(frame("/topic/room/2/timer", "a"));
+        queue.sendMessage(frame("/topic/room/3/timer", "b"));
+        queue.sendMessage(frame("/topic/room/1/chat", "c2"));
+        // Frame không phải MESSAGE (ví dụ RECEIPT) không bao giờ bị thay thế
+        queue.sendMessage(new TextMessage("RECEIPT\nreceipt-id:1\n\n\u0000"));
+        queue.sendMessage(new TextMessage("RECEIPT\nreceipt-id:2\n\n\u0000"));
+        release.countDown();
+
+        awaitSent(7);
+        assertThat(sent).containsExactly("c0", "c1", "a", "b", "c2", "RECEIPT", "RECEIPT");
+    }
+
+    @Test
+    void dropsReplaceableFramesBeforeClosingOnOverflow() throws Exception {
+        OutboundFrameQueue queue = queue(400, 10_000);
+
+        queue.sendMessage(frame("/topic/room/1/question", "q1"));
+        assertThat(firstSendStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        queue.sendMessage(frame("/topic/room/1/timer", "t1"));
+        queue.sendMessage(frame("/topic/room/1/leaderboard", "l1"));
+        // Vượt giới hạn: frame TIMER/LEADERBOARD đang chờ bị bỏ, phiên vẫn mở
+        queue.sendMessage(frame("/topic/room/1/question", "x".repeat(250)));
+
+        verify(delegate, never()).close(any());
+        assertThat(meterRegistry.get("game.ws.outbound.dropped").tag("reason", "overflow").counter().count())
+                .isEqualTo(2);
+
+        release.countDown();
+        awaitSent(2);
+        assertThat(sent).containsExactly("q1", "x".repeat(250));
+    }
+
+    @Test
+    void closesSlowSessionWhenStillOverLimit() throws Exception {
+        OutboundFrameQueue queue = queue(400, 10_000);
+
+        queue.sendMessage(frame("/topic/room/1/question", "q1"));
+        assertThat(firstSendStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        queue.sendMessage(frame("/topic/room/1/question", "x".repeat(250)));
+        queue.sendMessage(frame("/topic/room/1/question", "y".repeat(250)));
+
+        verify(delegate).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertThat(meterRegistry.get("game.ws.outbound.terminated").counter().count()).isEqualTo(1);
+
+        // Sau khi đóng, frame mới bị bỏ qua
+        queue.sendMessage(frame("/topic/room/1/question", "late"));
+        release.countDown();
+        Thread.sleep(100);
+        assertThat(sent).doesNotContain("late");
+    }
+
+    @Test
+    void closesSessionWhenSendTakesTooLong() throws Exception {
+        OutboundFrameQueue queue = queue(1 << 20, 50);
+
+        queue.sendMessage(frame("/topic/room/1/question", "q1"));
+        assertThat(firstSendStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(100);
+        queue.sendMessage(frame("/topic/room/1/question", "q2"));
+
+        verify(delegate, timeout(1000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    @Test
+    void closesStuckSessionWithoutFurtherFrames() throws Exception {
+        OutboundFrameQueue queue = queue(1 << 20, 50);
+
+        // Lần gửi bị treo và không còn frame nào được đưa vào hàng đợi
+        queue.sendMessage(frame("/topic/room/1/question", "q1"));
+        assertThat(firstSendStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        verify(delegate, timeout(1000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertThat(meterRegistry.get("game.ws.outbound.terminated").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void discardReleasesQueuedFrames() throws Exception {
+        OutboundFrameQueue queue = queue(1 << 20, 10_000);
+
+        queue.sendMessage(frame("/topic/room/1/question", "q1"));
+        assertThat(firstSendStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        queue.sendMessage(frame("/topic/room/1/question", "q2"));
+        queue.sendMessage(frame("/topic/room/1/timer", "t1"));
+
+        queue.discard();
+        release.countDown();
+
+        Thread.sleep(100);
+        assertThat(sent).containsExactly("q1");
+        assertQueueEmpty();
+    }
+
+    private OutboundFrameQueue queue(int bufferSizeLimit, long sendTimeLimitMs) throws Exception {
+        control = new OutboundFlowControl(meterRegistry, bufferSizeLimit, sendTimeLimitMs);
+        when(delegate.getId()).thenReturn("session-1");
+        doAnswer(invocation -> {
+            firstSendStarted.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            sent.add(body(invocation.getArgument(0)));
+            return null;
+        }).when(delegate).sendMessage(any());
+        return control.open(delegate);
+    }
+
+    private void awaitSent(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (sent.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        // Chờ thêm một chút để chắc chắn không có frame thừa
+        Thread.sleep(50);
+    }
+
+    private void assertQueueEmpty() {
+        assertThat(meterRegistry.get("game.ws.outbound.frames").gauge().value()).isZero();
+        assertThat(meterRegistry.get("game.ws.outbound.bytes").gauge().value()).isZero();
+    }
+
+    private static TextMessage frame(String destination, String body) {
+        return new TextMessage("MESSAGE\ndestination:" + destination
+                + "\ncontent-type:application/json\nsubscription:sub-0\n\n" + body + "\u0000");
+    }
+
+    private static String body(WebSocketMessage<?> message) {
+        String payload = ((TextMessage) message).getPayload();
+        if (!payload.startsWith("MESSAGE\n")) {
+            return payload.substring(0, payload.indexOf('\n'));
+        }
+        return payload.substring(payload.indexOf("\n\n") + 2, payload.length() - 1);
+    }
+}
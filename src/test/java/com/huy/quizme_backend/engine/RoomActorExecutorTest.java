@@ -0,0 +1,98 @@
+package com.huy.quizme_backend.engine;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoomActorExecutorTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RoomActorExecutor roomActors = new RoomActorExecutor(meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        roomActors.shutdown();
+    }
+
+    @Test
+    void runsTasksOfOneRoomInSubmissionOrderWithoutOverlap() throws InterruptedException {
+        int tasks = 10_000;
+        List<Integer> order = new ArrayList<>(tasks);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(tasks);
+
+        for (int i = 0; i < tasks; i++) {
+            int value = i;
+            roomActors.execute(1L, () -> {
+                if (running.incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                // Không cần đồng bộ: actor đảm bảo chỉ một tác vụ chạy tại một thời điểm
+                order.add(value);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(overlaps).hasValue(0);
+        assertThat(order).hasSize(tasks);
+        for (int i = 0; i < tasks; i++) {
+            assertThat(order.get(i)).isEqualTo(i);
+        }
+    }
+
+    @Test
+    void blockedRoomDoesNotDelayOtherRooms() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch otherRoomDone = new CountDownLatch(1);
+
+        roomActors.execute(1L, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        roomActors.execute(2L, otherRoomDone::countDown);
+
+        assertThat(otherRoomDone.await(5, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+    }
+
+    @Test
+    void failingTaskDoesNotStopMailbox() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+
+        roomActors.execute(1L, () -> {
+            throw new IllegalStateException("boom");
+        });
+        roomActors.execute(1L, done::countDown);
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(meterRegistry.get("game.actor.failures").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void releasesIdleMailboxes() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(100);
+        for (long roomId = 0; roomId < 100; roomId++) {
+            roomActors.execute(roomId, done::countDown);
+        }
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("game.actor.rooms").gauge().value() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(meterRegistry.get("game.actor.rooms").gauge().value()).isZero();
+    }
+}
@@ -0,0 +1,123 @@
+package com.huy.quizme_backend.engine;
+
+import com.huy.quizme_backend.support.MicroBenchmark;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.AbstractMessageChannel;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * So sánh fan-out của {@link RoomBrokerMessageHandler} với simple broker của Spring:
+ * 10.000 phòng × 50 subscriber (mỗi subscriber đăng ký timer, leaderboard, question của phòng mình).
+ * <p>
+ * Kênh outbound chỉ đếm frame MESSAGE nên số đo là chi phí của broker (tra subscriber, tạo header,
+ * gửi vào kênh), không gồm mã hoá STOMP và ghi socket.
+ * <ul>
+ *   <li>một phòng: gửi một tin nhắn leaderboard và chờ đủ 50 subscriber nhận (độ trễ fan-out)</li>
+ *   <li>mọi phòng: gửi một tin nhắn cho cả 10.000 phòng và chờ đủ 500.000 lần giao (thông lượng)</li>
+ * </ul>
+ * Simple broker chỉ cache 1024 destination; với 10.000 phòng mỗi lần tra là một lần quét toàn bộ
+ * subscription nên nó chỉ được đo trên một mẫu phòng.
+ * <p>
+ * Chạy: {@code mvn test -Dtest=RoomBrokerBenchmark}
+ */
+class RoomBrokerBenchmark {
+    private static final int ROOMS = 10_000;
+    private static final int SUBSCRIBERS_PER_ROOM = 50;
+    private static final List<String> EVENTS = List.of("timer", "leaderboard", "question");
+
+    private final LongAdder delivered = new LongAdder();
+    private final AbstractMessageChannel outbound = new AbstractMessageChannel() {
+        @Override
+        protected boolean sendInternal(Message<?> message, long timeout) {
+            if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+                delivered.increment();
+            }
+            return true;
+        }
+    };
+
+    @Test
+    void roomBroker() {
+        RoomBrokerMessageHandler broker = new RoomBrokerMessageHandler(new ExecutorSubscribableChannel(), outbound,
+                new ExecutorSubscribableChannel(), List.of("/topic"), 0, new SimpleMeterRegistry());
+        run("room broker", broker, ROOMS, 2_000, 20_000);
+    }
+
+    @Test
+    void simpleBroker() {
+        SimpleBrokerMessageHandler broker = new SimpleBrokerMessageHandler(new ExecutorSubscribableChannel(),
+                outbound, new ExecutorSubscribableChannel(), List.of("/topic"));
+        run("simple broker", broker, 50, 20, 200);
+    }
+
+    private void run(String name, AbstractBrokerMessageHandler broker, int burstRooms, int warmup, int iterations) {
+        broker.start();
+        try {
+            long start = System.nanoTime();
+            subscribeAll(broker);
+            MicroBenchmark.print("%s: %,d subscriptions in %d ms", name,
+                    ROOMS * SUBSCRIBERS_PER_ROOM * EVENTS.size(), (System.nanoTime() - start) / 1_000_000);
+
+            MicroBenchmark.measure(name + " fan-out 1 room x " + SUBSCRIBERS_PER_ROOM, warmup, iterations,
+                    i -> publishAndAwait(broker, 1, i));
+
+            start = System.nanoTime();
+            publishAndAwait(broker, burstRooms, 0);
+            long elapsed = System.nanoTime() - start;
+            MicroBenchmark.print("%s: %,d rooms x %d subscribers in %.1f ms (%.1f deliveries/ms)", name,
+                    burstRooms, SUBSCRIBERS_PER_ROOM, elapsed / 1e6,
+                    burstRooms * SUBSCRIBERS_PER_ROOM / (elapsed / 1e6));
+        } finally {
+            broker.stop();
+        }
+    }
+
+    private void subscribeAll(MessageHandler broker) {
+        for (int room = 0; room < ROOMS; room++) {
+            for (int player = 0; player < SUBSCRIBERS_PER_ROOM; player++) {
+                String sessionId = room + "-" + player;
+                SimpMessageHeaderAccessor connect = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+                connect.setSessionId(sessionId);
+                broker.handleMessage(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()));
+
+                for (int event = 0; event < EVENTS.size(); event++) {
+                    SimpMessageHeaderAccessor subscribe = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+                    subscribe.setSessionId(sessionId);
+                    subscribe.setSubscriptionId("sub-" + event);
+                    subscribe.setDestination("/topic/room/" + room + "/" + EVENTS.get(event));
+                    broker.handleMessage(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Gửi leaderboard cho {@code rooms} phòng bắt đầu từ phòng thứ {@code offset} và chờ đủ số lần giao.
+     */
+    private void publishAndAwait(MessageHandler broker, int rooms, int offset) {
+        long expected = delivered.sum() + (long) rooms * SUBSCRIBERS_PER_ROOM;
+        for (int i = 0; i < rooms; i++) {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setDestination("/topic/room/" + Math.floorMod(offset * 7919 + i, ROOMS) + "/leaderboard");
+            broker.handleMessage(MessageBuilder.createMessage(new byte[16], accessor.getMessageHeaders()));
+        }
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        while (delivered.sum() < expected) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.onSpinWait();
+        }
+    }
+}
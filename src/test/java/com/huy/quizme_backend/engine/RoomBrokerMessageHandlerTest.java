@@ -0,0 +1,144 @@
+package com.huy.quizme_backend.engine;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.AbstractMessageChannel;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoomBrokerMessageHandlerTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // sessionId -> các payload đã nhận
+    private final Map<String, List<String>> received = new ConcurrentHashMap<>();
+    private RoomBrokerMessageHandler broker;
+
+    @BeforeEach
+    void setUp() {
+        AbstractMessageChannel outbound = new AbstractMessageChannel() {
+            @Override
+            protected boolean sendInternal(Message<?> message, long timeout) {
+                SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+                received.computeIfAbsent(accessor.getSessionId(), id -> new CopyOnWriteArrayList<>())
+                        .add(accessor.getSubscriptionId() + ":" + message.getPayload());
+                return true;
+            }
+        };
+        broker = new RoomBrokerMessageHandler(new ExecutorSubscribableChannel(), outbound,
+                new ExecutorSubscribableChannel(), List.of("/topic"), 4, meterRegistry);
+        broker.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        broker.stop();
+    }
+
+    @Test
+    void deliversRoomMessagesInOrderToEachSubscriber() throws InterruptedException {
+        subscribe("s1", "sub-1", "/topic/room/1/timer");
+        subscribe("s2", "sub-2", "/topic/room/1/timer");
+        subscribe("s3", "sub-3", "/topic/room/2/timer");
+
+        for (int i = 0; i < 500; i++) {
+            publish("/topic/room/1/timer", Integer.toString(i));
+            publish("/topic/room/2/timer", Integer.toString(i));
+        }
+
+        awaitReceived(1500);
+        for (String sessionId : List.of("s1", "s2", "s3")) {
+            List<String> messages = received.get(sessionId);
+            assertThat(messages).hasSize(500);
+            String subscriptionId = "sub-" + sessionId.substring(1);
+            for (int i = 0; i < 500; i++) {
+                assertThat(messages.get(i)).isEqualTo(subscriptionId + ":" + i);
+            }
+        }
+        assertThat(meterRegistry.get("game.broker.deliveries").counter().count()).isEqualTo(1500);
+    }
+
+    @Test
+    void onlyMatchingEventIsDelivered() throws InterruptedException {
+        subscribe("s1", "sub-q", "/topic/room/1/question");
+        subscribe("s1", "sub-l", "/topic/room/1/leaderboard");
+        subscribe("s2", "sub-x", "/topic/room/10/question");
+
+        publish("/topic/room/1/question", "q");
+        awaitReceived(1);
+        assertThat(received).containsOnlyKeys("s1");
+        assertThat(received.get("s1")).containsExactly("sub-q:q");
+    }
+
+    @Test
+    void stopsDeliveringAfterUnsubscribeAndDisconnect() throws InterruptedException {
+        subscribe("s1", "sub-1", "/topic/room/1/timer");
+        subscribe("s2", "sub-2", "/topic/room/1/timer");
+        subscribe("s3", "sub-3", "/topic/room/1/timer");
+
+        SimpMessageHeaderAccessor unsubscribe = SimpMessageHeaderAccessor.create(SimpMessageType.UNSUBSCRIBE);
+        unsubscribe.setSessionId("s1");
+        unsubscribe.setSubscriptionId("sub-1");
+        broker.handleMessage(MessageBuilder.createMessage(new byte[0], unsubscribe.getMessageHeaders()));
+
+        SimpMessageHeaderAccessor disconnect = SimpMessageHeaderAccessor.create(SimpMessageType.DISCONNECT);
+        disconnect.setSessionId("s2");
+        broker.handleMessage(MessageBuilder.createMessage(new byte[0], disconnect.getMessageHeaders()));
+
+        publish("/topic/room/1/timer", "t");
+        awaitReceived(1);
+        assertThat(received).containsOnlyKeys("s3");
+    }
+
+    @Test
+    void deliversNonRoomTopics() throws InterruptedException {
+        subscribe("s1", "sub-1", "/topic/announcements");
+        subscribe("s2", "sub-2", "/topic/room/*/timer");
+
+        publish("/topic/announcements", "a");
+        publish("/topic/room/7/timer", "t");
+
+        awaitReceived(2);
+        assertThat(received.get("s1")).containsExactly("sub-1:a");
+        assertThat(received.get("s2")).containsExactly("sub-2:t");
+    }
+
+    private void subscribe(String sessionId, String subscriptionId, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        broker.handleMessage(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+    }
+
+    private void publish(String destination, String payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        broker.handleMessage(MessageBuilder.createMessage(payload, accessor.getMessageHeaders()));
+    }
+
+    private void awaitReceived(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (total() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        // Chờ thêm một chút để chắc chắn không có tin nhắn thừa
+        Thread.sleep(50);
+        assertThat(total()).isEqualTo(count);
+    }
+
+    private int total() {
+        return received.values().stream().mapToInt(List::size).sum();
+    }
+}
@@ -0,0 +1,111 @@
+package com.huy.quizme_backend.security;
+
+import com.huy.quizme_backend.support.MicroBenchmark;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Đo tốc độ đăng nhập tối đa qua DaoAuthenticationProvider với BCrypt (strength 10) chạy trên
+ * {@link PasswordHashingExecutor} kích thước mặc định (một nửa số core), không có database.
+ * <p>
+ * Mô phỏng cả lớp đăng nhập cùng lúc: {@code CLASSROOM} người gửi đăng nhập đồng thời.
+ * <ul>
+ *   <li>hàng đợi đủ lớn: tốc độ đăng nhập tối đa và thời gian chờ trong hàng đợi</li>
+ *   <li>hàng đợi mặc định (200): số yêu cầu bị từ chối ngay với 503</li>
+ * </ul>
+ * Chạy: {@code mvn test -Dtest=LoginRateBenchmark}
+ */
+class LoginRateBenchmark {
+    private static final int CLASSROOM = 300;
+
+    private final PasswordEncoder bcrypt = new BCryptPasswordEncoder();
+    private final String passwordHash = bcrypt.encode("password123");
+
+    @Test
+    void classroomLoginStorm() throws InterruptedException {
+        run("queue 1000", 1_000);
+        run("queue 200 (default)", 200);
+    }
+
+    @SuppressWarnings("deprecation")
+    private void run(String name, int queueCapacity) throws InterruptedException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PasswordHashingExecutor executor = new PasswordHashingExecutor(meterRegistry, 0, queueCapacity);
+        try {
+            DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+            // ProviderManager xoá mật khẩu của UserDetails sau khi xác thực nên mỗi lần tạo mới
+            provider.setUserDetailsService(username -> User.withUsername(username)
+                    .password(passwordHash)
+                    .roles("USER")
+                    .build());
+            provider.setPasswordEncoder(new BoundedPasswordEncoder(bcrypt, executor));
+            AuthenticationManager authenticationManager = new ProviderManager(provider);
+
+            // Khởi động JIT cho BCrypt, không qua pool để không tính vào số đo
+            for (int i = 0; i < 20; i++) {
+                bcrypt.matches("password123", passwordHash);
+            }
+            // Lần đăng nhập đầu tiên mã hoá mật khẩu giả chống timing attack của provider;
+            // làm trước để 300 người đầu tiên không cùng mã hoá lại
+            authenticationManager.authenticate(new UsernamePasswordAuthenticationToken("student", "password123"));
+            Timer queueTime = meterRegistry.get("auth.password.hashing.queue-time").timer();
+            Timer hashTime = meterRegistry.get("auth.password.hashing.duration").timer();
+            long hashesBefore = hashTime.count();
+            double hashMillisBefore = hashTime.totalTime(TimeUnit.MILLISECONDS);
+            double queueMillisBefore = queueTime.totalTime(TimeUnit.MILLISECONDS);
+
+            AtomicInteger succeeded = new AtomicInteger();
+            AtomicInteger rejected = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(CLASSROOM);
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < CLASSROOM; i++) {
+                threads.add(Thread.ofVirtual().start(() -> {
+                    try {
+                        start.await();
+                        authenticationManager.authenticate(
+                                new UsernamePasswordAuthenticationToken("student", "password123"));
+                        succeeded.incrementAndGet();
+                    } catch (PasswordHashingRejectedException e) {
+                        rejected.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }));
+            }
+
+            long begin = System.nanoTime();
+            start.countDown();
+            assertThat(done.await(5, TimeUnit.MINUTES)).isTrue();
+            double seconds = (System.nanoTime() - begin) / 1e9;
+
+            long hashes = hashTime.count() - hashesBefore;
+            MicroBenchmark.print("%-20s %d logins: %d ok, %d rejected in %.2f s (%.1f logins/s), "
+                            + "%d hashes, hash mean %.1f ms, queue wait mean %.0f ms",
+                    name, CLASSROOM, succeeded.get(), rejected.get(), seconds, succeeded.get() / seconds, hashes,
+                    (hashTime.totalTime(TimeUnit.MILLISECONDS) - hashMillisBefore) / hashes,
+                    (queueTime.totalTime(TimeUnit.MILLISECONDS) - queueMillisBefore) / hashes);
+            assertThat(succeeded.get() + rejected.get()).isEqualTo(CLASSROOM);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.huy.quizme_backend.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHashingExecutorTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PasswordHashingExecutor executor = new PasswordHashingExecutor(meterRegistry, 1, 1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void saturatedPoolSurfacesAsRejectionThroughAuthenticationManager() throws InterruptedException {
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+        provider.setUserDetailsService(username -> {
+            if (!"alice".equals(username)) {
+                throw new UsernameNotFoundException(username);
+            }
+            return User.withUsername("alice").password("secret").roles("USER").build();
+        });
+        provider.setPasswordEncoder(new BoundedPasswordEncoder(NoOpPasswordEncoder.getInstance(), executor));
+        AuthenticationManager authenticationManager = new ProviderManager(provider);
+
+        // Khi pool còn trống, sai mật khẩu vẫn là lỗi xác thực thông thường
+        assertThatThrownBy(() -> authenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken("alice", "wrong")))
+                .isInstanceOf(BadCredentialsException.class);
+
+        saturate();
+
+        // Người dùng tồn tại: lỗi từ matches() không bị bọc
+        assertThatThrownBy(() -> authenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken("alice", "secret")))
+                .isInstanceOf(PasswordHashingRejectedException.class);
+        // Người dùng không tồn tại: lỗi từ matches() chống timing attack không thành "Bad credentials"
+        assertThatThrownBy(() -> authenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken("bob", "secret")))
+                .isInstanceOf(PasswordHashingRejectedException.class);
+        assertThat(meterRegistry.get("auth.password.hashing.rejected").counter().count()).isEqualTo(2);
+    }
+
+    /**
+     * Giữ thread duy nhất của pool và lấp đầy hàng đợi (sức chứa 1).
+     */
+    private void saturate() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        Thread.ofVirtual().start(() -> executor.execute(() -> {
+            started.countDown();
+            await(release);
+            return null;
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.ofVirtual().start(() -> executor.execute(() -> null));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("auth.password.hashing.queue").gauge().value() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.huy.quizme_backend.service;
+
+import com.huy.quizme_backend.enity.Question;
+import com.huy.quizme_backend.enity.QuestionOption;
+import com.huy.quizme_backend.enity.enums.QuestionType;
+import com.huy.quizme_backend.session.AnswerKey;
+import com.huy.quizme_backend.session.AnswerSheet;
+import com.huy.quizme_backend.session.GameSession;
+import com.huy.quizme_backend.session.ParticipantSession;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class GameAnswerWriterTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final GameProgressService gameProgressService = mock(GameProgressService.class);
+    private final List<Object[]> insertedOptions = new CopyOnWriteArrayList<>();
+    private final List<String> selects = new CopyOnWriteArrayList<>();
+    private final AtomicInteger questionInserts = new AtomicInteger();
+    private GameAnswerWriter writer;
+
+    // Số lần ghi câu hỏi đầu tiên bị lỗi, và câu hỏi luôn bị lỗi
+    private int failFirstInserts;
+    private Long poisonQuestionId;
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            Consumer<TransactionStatus> callback = invocation.getArgument(0);
+            callback.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(gameProgressService.validateAnswer(any(), anyInt())).thenReturn(true);
+
+        doAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            List<Object[]> args = invocation.getArgument(1);
+            if (sql.startsWith("INSERT INTO game_result_question")) {
+                if (questionInserts.incrementAndGet() <= failFirstInserts) {
+                    throw new TransientDataAccessResourceException("connection reset");
+                }
+                for (Object[] row : args) {
+                    if (row[1].equals(poisonQuestionId)) {
+                        throw new TransientDataAccessResourceException("deadlock");
+                    }
+                }
+            }
+            if (sql.startsWith("INSERT INTO game_player_answer_option")) {
+                insertedOptions.addAll(args);
+            }
+            return new int[args.size()];
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+
+        // Câu trả lời vừa ghi có id = participantId * 100 + questionId
+        doAnswer(invocation -> {
+            selects.add(invocation.getArgument(0));
+            RowCallbackHandler handler = invocation.getArgument(1);
+            Object[] args = invocation.getArguments();
+            for (int i = 2; i + 1 < args.length; i += 2) {
+                long gameResultId = (Long) args[i];
+                long questionId = (Long) args[i + 1];
+                for (long participantId = 1; participantId <= 2; participantId++) {
+                    ResultSet rs = mock(ResultSet.class);
+                    when(rs.getLong("id")).thenReturn(participantId * 100 + questionId);
+                    when(rs.getLong("game_result_id")).thenReturn(gameResultId);
+                    when(rs.getLong("question_id")).thenReturn(questionId);
+                    when(rs.getLong("participant_id")).thenReturn(participantId);
+                    handler.processRow(rs);
+                }
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (writer != null) {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    void retriesBatchThenWritesAnswerOptions() throws Exception {
+        failFirstInserts = 1;
+        writer = writer(16, 10);
+        writer.start();
+
+        GameSession gameSession = session(1L, 10L, 1L);
+        writer.enqueue(gameSession, gameSession.getAnswerKeys().get(0), answered(gameSession, 0));
+
+        assertThat(writer.roomFlushed(1L).get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(meterRegistry.get("game.persistence.retries").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("game.persistence.answers").counter().count()).isEqualTo(2);
+        // Slot 0 (participant 1) chọn lựa chọn 11, slot 1 (participant 2) chọn lựa chọn 12
+        assertThat(insertedOptions).containsExactlyInAnyOrder(new Object[]{101L, 11L}, new Object[]{201L, 12L});
+    }
+
+    @Test
+    void fallsBackToSingleRoundsWhenBatchKeepsFailing() throws Exception {
+        poisonQuestionId = 2L;
+        writer = writer(16, 10);
+
+        GameSession first = session(1L, 10L, 1L);
+        GameSession second = session(2L, 20L, 2L);
+        GameSession third = session(3L, 30L, 3L);
+        // Đưa vào hàng đợi trước khi chạy thread ghi để ba câu hỏi nằm trong cùng một lô
+        writer.enqueue(first, first.getAnswerKeys().get(0), answered(first, 0));
+        writer.enqueue(second, second.getAnswerKeys().get(0), answered(second, 0));
+        writer.enqueue(third, third.getAnswerKeys().get(0), answered(third, 0));
+        writer.start();
+
+        assertThat(writer.roomFlushed(1L).get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(writer.roomFlushed(2L).get(5, TimeUnit.SECONDS)).isFalse();
+        assertThat(writer.roomFlushed(3L).get(5, TimeUnit.SECONDS)).isTrue();
+        // Cả lô thử 3 lần, rồi ghi từng câu hỏi
+        assertThat(questionInserts.get()).isEqualTo(3 + 3);
+        assertThat(meterRegistry.get("game.persistence.retries").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("game.persistence.failed").counter().count()).isEqualTo(1);
+        assertThat(insertedOptions).hasSize(4);
+    }
+
+    @Test
+    void looksUpAnswerIdsOncePerBatch() throws Exception {
+        writer = writer(16, 10);
+        GameSession gameSession = session(1L, 10L, 1L, 2L, 3L);
+        for (int questionIndex = 0; questionIndex < 3; questionIndex++) {
+            writer.enqueue(gameSession, gameSession.getAnswerKeys().get(questionIndex), answered(gameSession, questionIndex));
+        }
+        writer.start();
+
+        assertThat(writer.roomFlushed(1L).get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(selects).hasSize(1);
+        assertThat(selects.get(0)).endsWith("IN ((?, ?), (?, ?), (?, ?))");
+        assertThat(insertedOptions).hasSize(6);
+    }
+
+    @Test
+    void countsRoundWithoutGameResult() throws Exception {
+        writer = writer(16, 10);
+        writer.start();
+
+        GameSession gameSession = session(1L, null, 1L);
+        writer.enqueue(gameSession, gameSession.getAnswerKeys().get(0), answered(gameSession, 0));
+
+        assertThat(meterRegistry.get("game.persistence.skipped").counter().count()).isEqualTo(1);
+        assertThat(writer.roomFlushed(1L).get(5, TimeUnit.SECONDS)).isFalse();
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void countsRoundRejectedByFullQueue() throws Exception {
+        writer = writer(1, 10);
+        GameSession gameSession = session(1L, 10L, 1L, 2L);
+        writer.enqueue(gameSession, gameSession.getAnswerKeys().get(0), answered(gameSession, 0));
+        writer.enqueue(gameSession, gameSession.getAnswerKeys().get(1), answered(gameSession, 1));
+        writer.start();
+
+        assertThat(meterRegistry.get("game.persistence.rejected").counter().count()).isEqualTo(1);
+        assertThat(writer.roomFlushed(1L).get(5, TimeUnit.SECONDS)).isFalse();
+        assertThat(questionInserts.get()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsRetryingWhileShuttingDown() throws Exception {
+        writer = writer(16, 10);
+        GameSession gameSession = session(1L, 10L, 1L);
+        writer.enqueue(gameSession, gameSession.getAnswerKeys().get(0), answered(gameSession, 0));
+
+        // Lần ghi đầu tiên lỗi đúng lúc ứng dụng bắt đầu tắt
+        AtomicInteger attempts = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (attempts.incrementAndGet() == 1) {
+                ReflectionTestUtils.setField(writer, "stopping", true);
+                throw new TransientDataAccessResourceException("connection reset");
+            }
+            Consumer<TransactionStatus> callback = invocation.getArgument(0);
+            callback.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        writer.start();
+        writer.shutdown();
+
+        assertThat(writer.roomFlushed(1L).getNow(false)).isTrue();
+        assertThat(meterRegistry.get("game.persistence.retries").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("game.persistence.failed").counter().count()).isZero();
+    }
+
+    private GameAnswerWriter writer(int queueCapacity, long offerTimeoutMs) {
+        return new GameAnswerWriter(jdbcTemplate, transactionTemplate, gameProgressService, meterRegistry,
+                queueCapacity, 32, 3, 1, offerTimeoutMs, 5000);
+    }
+
+    /**
+     * Phiên chơi hai người chơi (participant 1 và 2); câu hỏi {@code q} có lựa chọn {@code q*10+1}, {@code q*10+2}.
+     */
+    private static GameSession session(Long roomId, Long gameResultId, Long... questionIds) {
+        GameSession gameSession = new GameSession();
+        gameSession.setRoomId(roomId);
+        gameSession.setGameResultId(gameResultId);
+        for (int slot = 0; slot < 2; slot++) {
+            ParticipantSession participant = new ParticipantSession();
+            participant.setSlot(slot);
+            participant.setParticipantId(slot + 1L);
+            participant.setUserId(slot + 100L);
+            gameSession.getParticipants().put(participant.getUserId(), participant);
+        }
+
+        List<AnswerKey> answerKeys = new ArrayList<>();
+        for (Long questionId : questionIds) {
+            List<QuestionOption> options = List.of(
+                    QuestionOption.builder().id(questionId * 10 + 1).isCorrect(true).build(),
+                    QuestionOption.builder().id(questionId * 10 + 2).isCorrect(false).build());
+            answerKeys.add(AnswerKey.compile(Question.builder()
+                    .id(questionId)
+                    .type(QuestionType.QUIZ)
+                    .points(1000)
+                    .timeLimit(30)
+                    .options(options)
+                    .build()));
+        }
+        gameSession.setAnswerKeys(answerKeys);
+        gameSession.allocateSlots();
+        return gameSession;
+    }
+
+    /**
+     * Slot 0 chọn lựa chọn đầu tiên, slot 1 chọn lựa chọn thứ hai.
+     */
+    private static AnswerSheet answered(GameSession gameSession, int questionIndex) {
+        AnswerSheet answerSheet = gameSession.getAnswerSheets()[questionIndex];
+        answerSheet.submit(0, 0b01, 1200, true);
+        answerSheet.submit(1, 0b10, 2500, false);
+        answerSheet.setScore(0, 950);
+        answerSheet.seal();
+        return answerSheet;
+    }
+}
@@ -0,0 +1,355 @@
+package com.huy.quizme_backend.service;
+
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.huy.quizme_backend.config.GameProperties;
+import com.huy.quizme_backend.dto.game.QuestionGameDTO;
+import com.huy.quizme_backend.enity.Question;
+import com.huy.quizme_backend.enity.QuestionOption;
+import com.huy.quizme_backend.enity.enums.QuestionType;
+import com.huy.quizme_backend.engine.GameClock;
+import com.huy.quizme_backend.engine.GameJournal;
+import com.huy.quizme_backend.engine.RoomActorExecutor;
+import com.huy.quizme_backend.event.GameSessionRecoveredEvent;
+import com.huy.quizme_backend.repository.RoomParticipantRepository;
+import com.huy.quizme_backend.repository.RoomRepository;
+import com.huy.quizme_backend.session.AnswerKey;
+import com.huy.quizme_backend.session.AnswerSheet;
+import com.huy.quizme_backend.session.ConnectionStatus;
+import com.huy.quizme_backend.session.GameSession;
+import com.huy.quizme_backend.session.GameStatus;
+import com.huy.quizme_backend.session.ParticipantSession;
+import com.huy.quizme_backend.session.PhaseState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.intThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Khôi phục phiên chơi từ journal khi khởi động: journal được ghi như trong một trò chơi thật,
+ * sau đó {@link GameSessionService#recoverSessions()} đọc lại trên một instance journal mới.
+ */
+class GameSessionRecoveryTest {
+    private static final Long ROOM_ID = 5L;
+    private static final Long GAME_RESULT_ID = 50L;
+
+    @TempDir
+    Path directory;
+
+    private final WebSocketService webSocketService = mock(WebSocketService.class);
+    private final GameProgressService gameProgressService = mock(GameProgressService.class);
+    private final GameAnswerWriter gameAnswerWriter = mock(GameAnswerWriter.class);
+    private final GameFinalizationService gameFinalizationService = mock(GameFinalizationService.class);
+    private final GameClock gameClock = mock(GameClock.class);
+    private final RoomActorExecutor roomActors = mock(RoomActorExecutor.class);
+    private final RoomService roomService = mock(RoomService.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final GameProperties gameProperties = new GameProperties();
+    private GameJournal previousRun;
+    private GameJournal gameJournal;
+    private GameSessionService gameSessionService;
+    private WebSocketSessionRegistry sessionRegistry;
+
+    @BeforeEach
+    void setUp() {
+        previousRun = journal();
+        gameJournal = journal();
+        doAnswer(invocation -> {
+            loadQuiz(invocation.getArgument(0));
+            return null;
+        }).when(gameProgressService).loadQuizIntoSession(any());
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(roomActors).execute(any(), any());
+        when(webSocketService.preparePayload(any())).thenReturn(new RawValue("{}"));
+        when(gameAnswerWriter.roomFlushed(any())).thenReturn(CompletableFuture.completedFuture(true));
+
+        gameSessionService = new GameSessionService(webSocketService, mock(LocalStorageService.class),
+                gameProgressService, mock(GameResultService.class), gameAnswerWriter, gameFinalizationService,
+                mock(RoomRepository.class), mock(RoomParticipantRepository.class), gameClock, gameJournal,
+                roomActors, new SimpleMeterRegistry(), gameProperties, eventPublisher);
+
+        sessionRegistry = new WebSocketSessionRegistry(roomService, gameSessionService);
+        ReflectionTestUtils.setField(sessionRegistry, "disconnectTimeoutSeconds", 60);
+        doAnswer(invocation -> {
+            sessionRegistry.onGameSessionRecovered(invocation.getArgument(0));
+            return null;
+        }).when(eventPublisher).publishEvent(any(GameSessionRecoveredEvent.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionRegistry.shutdown();
+        previousRun.shutdown();
+        gameJournal.shutdown();
+    }
+
+    @Test
+    void rebuildsSameSessionFromJournal() {
+        GameSession original = playUntilSecondQuestion(System.currentTimeMillis() + 12_000);
+        previousRun.shutdown();
+
+        gameSessionService.recoverSessions();
+
+        GameSession recovered = gameSessionService.getGameSession(ROOM_ID);
+        assertThat(recovered).isNotNull();
+        assertThat(recovered.getQuizId()).isEqualTo(original.getQuizId());
+        assertThat(recovered.getGameResultId()).isEqualTo(original.getGameResultId());
+        assertThat(recovered.isLegacyTimerTicks()).isEqualTo(original.isLegacyTimerTicks());
+        assertThat(recovered.getParticipants()).hasSameSizeAs(original.getParticipants());
+        for (ParticipantSession expected : original.getParticipants().values()) {
+            ParticipantSession actual = recovered.getParticipants().get(expected.getUserId());
+            assertThat(actual.getSlot()).isEqualTo(expected.getSlot());
+            assertThat(actual.getParticipantId()).isEqualTo(expected.getParticipantId());
+            assertThat(actual.getUsername()).isEqualTo(expected.getUsername());
+            assertThat(actual.getScore()).isEqualTo(expected.getScore());
+            assertThat(actual.getConnectionStatus()).isEqualTo(ConnectionStatus.DISCONNECTED);
+            assertThat(recovered.getLeaderboard().scoreOf(actual.getSlot())).isEqualTo(expected.getScore());
+        }
+        for (int questionIndex = 0; questionIndex < original.getAnswerSheets().length; questionIndex++) {
+            AnswerSheet expected = original.getAnswerSheets()[questionIndex];
+            AnswerSheet actual = recovered.getAnswerSheets()[questionIndex];
+            assertThat(actual.answeredCount()).isEqualTo(expected.answeredCount());
+            assertThat(actual.correctCount()).isEqualTo(expected.correctCount());
+            assertThat(actual.answerTimeSumMs()).isEqualTo(expected.answerTimeSumMs());
+            for (int slot = 0; slot < expected.capacity(); slot++) {
+                assertThat(actual.getOptionMask(slot)).isEqualTo(expected.getOptionMask(slot));
+                assertThat(actual.getAnswerTimeMs(slot)).isEqualTo(expected.getAnswerTimeMs(slot));
+                assertThat(actual.getScore(slot)).isEqualTo(expected.getScore(slot));
+            }
+        }
+        // Câu hỏi đã chấm điểm được ghi lại vào database
+        verify(gameAnswerWriter).enqueue(recovered, recovered.getAnswerKeys().get(0), recovered.getAnswerSheets()[0]);
+    }
+
+    @Test
+    void resumesTimerWithRemainingTime() {
+        playUntilSecondQuestion(System.currentTimeMillis() + 12_000);
+        previousRun.shutdown();
+
+        gameSessionService.recoverSessions();
+
+        GameSession recovered = gameSessionService.getGameSession(ROOM_ID);
+        assertThat(recovered.getStatus()).isEqualTo(GameStatus.IN_PROGRESS);
+        assertThat(recovered.getCurrentQuestionIndex()).isEqualTo(1);
+        verify(gameClock).startPhase(eq(ROOM_ID), intThat(seconds -> seconds >= 11 && seconds <= 12), any(), any());
+        verifyNoInteractions(gameFinalizationService);
+    }
+
+    @Test
+    void resumesExpiredPhaseWithMinimumTimer() {
+        playUntilSecondQuestion(System.currentTimeMillis() - 30_000);
+        previousRun.shutdown();
+
+        gameSessionService.recoverSessions();
+
+        verify(gameClock).startPhase(eq(ROOM_ID), eq(1), any(), any());
+    }
+
+    @Test
+    void reconnectedPlayerReceivesOwnResultsAfterRecovery() {
+        // Phòng lớn: kết quả câu hỏi được gửi riêng cho từng người chơi đang kết nối
+        gameProperties.setLargeRoomThreshold(1);
+        playUntilSecondQuestion(System.currentTimeMillis() + 12_000);
+        previousRun.shutdown();
+        // Người chơi thứ hai đã kết nối trước khi phiên chơi được khôi phục
+        sessionRegistry.registerSession("session-101", 101L, null);
+        gameSessionService.recoverSessions();
+
+        // Người chơi đầu tiên kết nối lại; người chơi thứ hai vào lại phòng
+        sessionRegistry.registerSession("session-100", 100L, null);
+        sessionRegistry.registerRoomParticipation("session-101", ROOM_ID);
+
+        GameSession recovered = gameSessionService.getGameSession(ROOM_ID);
+        assertThat(recovered.getParticipants().get(100L).getConnectionStatus()).isEqualTo(ConnectionStatus.ACTIVE);
+        assertThat(recovered.getParticipants().get(101L).getConnectionStatus()).isEqualTo(ConnectionStatus.ACTIVE);
+        assertThat(recovered.getParticipants().get(102L).getConnectionStatus()).isEqualTo(ConnectionStatus.DISCONNECTED);
+        assertThat(sessionRegistry.getSessionIdByUserId(101L)).isEqualTo("session-101");
+
+        // Hết giờ câu hỏi đang dở
+        ArgumentCaptor<Runnable> deadline = ArgumentCaptor.forClass(Runnable.class);
+        verify(gameClock).startPhase(eq(ROOM_ID), anyInt(), any(), deadline.capture());
+        deadline.getValue().run();
+
+        verify(webSocketService).sendPlayerQuestionResult(eq("player0"), any());
+        verify(webSocketService).sendPlayerQuestionResult(eq("player1"), any());
+        verify(webSocketService, never()).sendPlayerQuestionResult(eq("player2"), any());
+    }
+
+    @Test
+    void timesOutRecoveredPlayersWhoNeverReconnect() {
+        ReflectionTestUtils.setField(sessionRegistry, "disconnectTimeoutSeconds", 1);
+        when(gameFinalizationService.finalizeAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+        playUntilSecondQuestion(System.currentTimeMillis() + 12_000);
+        previousRun.shutdown();
+
+        gameSessionService.recoverSessions();
+
+        verify(roomService, timeout(5_000)).handleDisconnectTimeouts(ROOM_ID, Set.of(100L, 101L, 102L), Set.of());
+        // Không còn người chơi nào: trò chơi kết thúc
+        verify(gameFinalizationService, timeout(5_000)).finalizeAsync(any());
+        assertThat(gameSessionService.getGameSession(ROOM_ID)).isNull();
+    }
+
+    @Test
+    void persistsCompletedGameInsteadOfResuming() {
+        GameSession original = playUntilSecondQuestion(System.currentTimeMillis() + 12_000);
+        Path file = complete(original, true);
+        when(gameFinalizationService.finalizeAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        gameSessionService.recoverSessions();
+
+        assertThat(gameSessionService.getGameSession(ROOM_ID)).isNull();
+        verify(gameClock, never()).startPhase(anyLong(), intThat(seconds -> true), any(), any());
+        ArgumentCaptor<GameSession> finalized = ArgumentCaptor.forClass(GameSession.class);
+        verify(gameFinalizationService).finalizeAsync(finalized.capture());
+        assertThat(finalized.getValue().getStartTime()).isEqualTo(original.getStartTime());
+        assertThat(finalized.getValue().getEndTime()).isEqualTo(original.getEndTime());
+        assertThat(finalized.getValue().getParticipants().get(102L).getScore()).isEqualTo(800);
+        verify(gameAnswerWriter).enqueue(eq(finalized.getValue()), any(), any());
+        // Đã lưu xong: journal bị xoá
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    void keepsCompletedJournalWhenPersistenceFails() {
+        Path file = complete(playUntilSecondQuestion(System.currentTimeMillis() + 12_000), true);
+        when(gameFinalizationService.finalizeAsync(any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("database down")));
+
+        gameSessionService.recoverSessions();
+
+        assertThat(gameSessionService.getGameSession(ROOM_ID)).isNull();
+        assertThat(file).exists();
+    }
+
+    @Test
+    void skipsFinalizationForGameEndedByHostDisconnect() {
+        Path file = complete(playUntilSecondQuestion(System.currentTimeMillis() + 12_000), false);
+
+        gameSessionService.recoverSessions();
+
+        verifyNoInteractions(gameFinalizationService);
+        verify(gameAnswerWriter).roomFlushed(ROOM_ID);
+        assertThat(file).doesNotExist();
+    }
+
+    private GameJournal journal() {
+        return new GameJournal(new SimpleMeterRegistry(), true, directory.toString(), 4096, 10);
+    }
+
+    /**
+     * Ghi journal của một trò chơi ba người chơi: câu hỏi đầu tiên đã chấm điểm,
+     * câu hỏi thứ hai đang diễn ra (deadline {@code deadlineMillis}) với một câu trả lời.
+     */
+    private GameSession playUntilSecondQuestion(long deadlineMillis) {
+        GameSession gameSession = new GameSession();
+        gameSession.setRoomId(ROOM_ID);
+        gameSession.setQuizId(2L);
+        gameSession.setGameResultId(GAME_RESULT_ID);
+        for (int slot = 0; slot < 3; slot++) {
+            ParticipantSession participant = new ParticipantSession();
+            participant.setSlot(slot);
+            participant.setUserId(100L + slot);
+            participant.setParticipantId(1000L + slot);
+            participant.setUsername("player" + slot);
+            participant.setScore(0);
+            gameSession.getParticipants().put(participant.getUserId(), participant);
+        }
+        loadQuiz(gameSession);
+        gameSession.allocateSlots();
+        previousRun.open(gameSession);
+
+        PhaseState phase = PhaseState.initial().next(GameStatus.IN_PROGRESS, 0);
+        previousRun.appendPhase(ROOM_ID, phase, deadlineMillis - 20_000);
+        answer(gameSession, 0, 0, 0b01, 1200, true);
+        answer(gameSession, 0, 1, 0b10, 3400, false);
+        answer(gameSession, 0, 2, 0b01, 2100, true);
+
+        AnswerSheet answerSheet = gameSession.getAnswerSheets()[0];
+        answerSheet.seal();
+        int[] scores = {900, 0, 800};
+        for (int slot = 0; slot < scores.length; slot++) {
+            answerSheet.setScore(slot, scores[slot]);
+            gameSession.getParticipantBySlot(slot).setScore(scores[slot]);
+        }
+        previousRun.appendScores(ROOM_ID, 0, answerSheet);
+
+        phase = phase.next(GameStatus.SHOWING_RESULTS, 0);
+        previousRun.appendPhase(ROOM_ID, phase, deadlineMillis - 10_000);
+        phase = phase.next(GameStatus.IN_PROGRESS, 1);
+        previousRun.appendPhase(ROOM_ID, phase, deadlineMillis);
+        answer(gameSession, 1, 1, 0b11, 900, true);
+        return gameSession;
+    }
+
+    private Path complete(GameSession gameSession, boolean finalizeResults) {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        gameSession.setStartTime(now.minusMinutes(2));
+        gameSession.setEndTime(now);
+        return previousRun.markCompleted(gameSession, finalizeResults);
+    }
+
+    private void answer(GameSession gameSession, int questionIndex, int slot, int optionMask, int answerTimeMs, boolean correct) {
+        gameSession.getAnswerSheets()[questionIndex].submit(slot, optionMask, answerTimeMs, correct);
+        previousRun.appendAnswer(ROOM_ID, questionIndex, slot, optionMask, answerTimeMs, correct);
+    }
+
+    /**
+     * Quiz hai câu hỏi: câu một đáp án và câu nhiều đáp án.
+     */
+    private static void loadQuiz(GameSession gameSession) {
+        List<QuestionGameDTO> questions = new ArrayList<>();
+        List<AnswerKey> answerKeys = new ArrayList<>();
+        QuestionType[] types = {QuestionType.QUIZ, QuestionType.CHECKBOX};
+        for (int i = 0; i < types.length; i++) {
+            long questionId = 20L + i;
+            List<QuestionOption> options = List.of(
+                    QuestionOption.builder().id(questionId * 10 + 1).isCorrect(true).build(),
+                    QuestionOption.builder().id(questionId * 10 + 2).isCorrect(i == 1).build());
+            answerKeys.add(AnswerKey.compile(Question.builder()
+                    .id(questionId)
+                    .type(types[i])
+                    .points(1000)
+                    .timeLimit(20)
+                    .options(options)
+                    .build()));
+            questions.add(QuestionGameDTO.builder()
+                    .questionId(questionId)
+                    .type(types[i])
+                    .timeLimit(20)
+                    .points(1000)
+                    .questionNumber(i + 1)
+                    .totalQuestions(types.length)
+                    .build());
+        }
+        gameSession.setQuestions(questions);
+        gameSession.setAnswerKeys(answerKeys);
+    }
+}
@@ -0,0 +1,83 @@
+package com.huy.quizme_backend.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.huy.quizme_backend.support.MicroBenchmark;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Mô phỏng một đợt kết nối lại hàng loạt: 50.000 người dùng đang kết nối (1.000 phòng),
+ * mỗi lần đo là một người dùng mất kết nối rồi kết nối lại bằng session mới
+ * ({@code handleDisconnect} + {@code registerSession}).
+ * <p>
+ * So sánh với cách cũ: mỗi CONNECT quét toàn bộ {@code sessions.values()} để tìm session cùng userId.
+ * <p>
+ * Chạy: {@code mvn test -Dtest=WebSocketSessionRegistryBenchmark}
+ */
+class WebSocketSessionRegistryBenchmark {
+    private static final int USERS = 50_000;
+    private static final int ROOMS = 1_000;
+
+    private final WebSocketSessionRegistry registry = new WebSocketSessionRegistry(
+            mock(RoomService.class, withSettings().stubOnly()),
+            mock(GameSessionService.class, withSettings().stubOnly()));
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void reconnectStorm() {
+        // Log INFO của mỗi lần đăng ký sẽ lấn át chi phí cần đo
+        ((Logger) LoggerFactory.getLogger(WebSocketSessionRegistry.class)).setLevel(Level.WARN);
+        ReflectionTestUtils.setField(registry, "disconnectTimeoutSeconds", 60);
+
+        long start = System.nanoTime();
+        for (int user = 0; user < USERS; user++) {
+            registry.registerSession(sessionId(user, 0), (long) user, null);
+            registry.registerRoomParticipation(sessionId(user, 0), (long) (user % ROOMS));
+        }
+        MicroBenchmark.print("register %,d sessions: %d ms", USERS, (System.nanoTime() - start) / 1_000_000);
+
+        // Mỗi lần gọi: người dùng i % USERS ngắt kết nối và kết nối lại với session thế hệ tiếp theo
+        MicroBenchmark.measure("reconnect (indexed), " + USERS + " connected", USERS, USERS, i -> {
+            int user = i % USERS;
+            int generation = i / USERS;
+            registry.handleDisconnect(sessionId(user, generation));
+            registry.registerSession(sessionId(user, generation + 1), (long) user, null);
+        });
+
+        for (int user = 0; user < USERS; user += 997) {
+            assertThat(registry.getSessionIdByUserId((long) user)).isEqualTo(sessionId(user, 2));
+        }
+
+        // Cách cũ: quét toàn bộ session để tìm session cùng userId
+        Map<String, Long> sessions = new ConcurrentHashMap<>();
+        for (int user = 0; user < USERS; user++) {
+            sessions.put(sessionId(user, 0), (long) user);
+        }
+        MicroBenchmark.measure("reconnect (scan), " + USERS + " connected", 500, 2_000, i -> {
+            Long userId = (long) (i * 7919 % USERS);
+            for (Map.Entry<String, Long> entry : sessions.entrySet()) {
+                if (userId.equals(entry.getValue())) {
+                    break;
+                }
+            }
+        });
+    }
+
+    private static String sessionId(int user, int generation) {
+        return "s-" + user + "-" + generation;
+    }
+}
@@ -0,0 +1,138 @@
+package com.huy.quizme_backend.session;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnswerSheetTest {
+
+    @Test
+    void recordsAnswerAndStatistics() {
+        AnswerSheet sheet = new AnswerSheet(3, 4);
+
+        assertThat(sheet.submit(0, 0b0010, 1200, true)).isTrue();
+        assertThat(sheet.submit(2, 0b0101, 800, false)).isTrue();
+
+        assertThat(sheet.isAnswered(0)).isTrue();
+        assertThat(sheet.isAnswered(1)).isFalse();
+        assertThat(sheet.getOptionMask(0)).isEqualTo(0b0010);
+        assertThat(sheet.getAnswerTimeMs(0)).isEqualTo(1200);
+        assertThat(sheet.getOptionMask(2)).isEqualTo(0b0101);
+        assertThat(sheet.answeredCount()).isEqualTo(2);
+        assertThat(sheet.correctCount()).isEqualTo(1);
+        assertThat(sheet.answerTimeSumMs()).isEqualTo(2000);
+        assertThat(sheet.optionCount(0)).isEqualTo(1);
+        assertThat(sheet.optionCount(1)).isEqualTo(1);
+        assertThat(sheet.optionCount(2)).isEqualTo(1);
+        assertThat(sheet.optionCount(3)).isZero();
+    }
+
+    @Test
+    void keepsOnlyFirstAnswerPerSlot() {
+        AnswerSheet sheet = new AnswerSheet(1, 4);
+
+        assertThat(sheet.submit(0, 0b0001, 500, true)).isTrue();
+        assertThat(sheet.submit(0, 0b0010, 300, false)).isFalse();
+
+        assertThat(sheet.getOptionMask(0)).isEqualTo(0b0001);
+        assertThat(sheet.getAnswerTimeMs(0)).isEqualTo(500);
+        assertThat(sheet.answeredCount()).isEqualTo(1);
+        assertThat(sheet.optionCount(1)).isZero();
+    }
+
+    @Test
+    void rejectsEmptyMask() {
+        AnswerSheet sheet = new AnswerSheet(1, 4);
+
+        assertThat(sheet.submit(0, 0, 500, false)).isFalse();
+        assertThat(sheet.isAnswered(0)).isFalse();
+    }
+
+    @Test
+    void rejectsAnswersAfterSeal() {
+        AnswerSheet sheet = new AnswerSheet(2, 4);
+        sheet.submit(0, 0b0001, 100, true);
+
+        sheet.seal();
+
+        assertThat(sheet.submit(1, 0b0001, 200, true)).isFalse();
+        assertThat(sheet.isAnswered(1)).isFalse();
+        assertThat(sheet.answeredCount()).isEqualTo(1);
+        // Niêm phong nhiều lần không bị treo
+        sheet.seal();
+    }
+
+    @Test
+    void sealWaitsForInFlightWriters() throws Exception {
+        int capacity = 20_000;
+        AnswerSheet sheet = new AnswerSheet(capacity, 4);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger accepted = new AtomicInteger();
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int slot = offset; slot < capacity; slot += threads) {
+                        if (sheet.submit(slot, 0b0001, slot, true)) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            sheet.seal();
+
+            // Sau khi niêm phong, không còn câu trả lời nào được ghi thêm
+            int answeredAtSeal = sheet.answeredCount();
+            int slotsAtSeal = countAnswered(sheet, capacity);
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+
+            assertThat(slotsAtSeal).isEqualTo(answeredAtSeal);
+            assertThat(sheet.answeredCount()).isEqualTo(answeredAtSeal);
+            assertThat(countAnswered(sheet, capacity)).isEqualTo(answeredAtSeal);
+            assertThat(accepted).hasValue(answeredAtSeal);
+            assertThat(sheet.optionCount(0)).isEqualTo(answeredAtSeal);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void storesScoresPerSlot() {
+        AnswerSheet sheet = new AnswerSheet(2, 2);
+
+        sheet.setScore(1, 950);
+
+        assertThat(sheet.capacity()).isEqualTo(2);
+        assertThat(sheet.getScore(0)).isZero();
+        assertThat(sheet.getScore(1)).isEqualTo(950);
+    }
+
+    private static int countAnswered(AnswerSheet sheet, int capacity) {
+        int count = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            if (sheet.isAnswered(slot)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
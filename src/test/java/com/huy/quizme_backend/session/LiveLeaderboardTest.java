@@ -0,0 +1,114 @@
+package com.huy.quizme_backend.session;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LiveLeaderboardTest {
+
+    @Test
+    void startsWithAllSlotsTiedBySlotOrder() {
+        LiveLeaderboard leaderboard = new LiveLeaderboard(4);
+
+        assertThat(leaderboard.size()).isEqualTo(4);
+        assertThat(leaderboard.topK(10)).containsExactly(0, 1, 2, 3);
+        for (int slot = 0; slot < 4; slot++) {
+            assertThat(leaderboard.rankOf(slot)).isEqualTo(slot + 1);
+            assertThat(leaderboard.scoreOf(slot)).isZero();
+        }
+    }
+
+    @Test
+    void ordersByScoreThenSlot() {
+        LiveLeaderboard leaderboard = new LiveLeaderboard(5);
+
+        leaderboard.update(3, 500);
+        leaderboard.update(1, 900);
+        leaderboard.update(4, 500);
+        leaderboard.update(0, 200);
+
+        assertThat(leaderboard.topK(5)).containsExactly(1, 3, 4, 0, 2);
+        assertThat(leaderboard.rankOf(1)).isEqualTo(1);
+        assertThat(leaderboard.rankOf(3)).isEqualTo(2);
+        assertThat(leaderboard.rankOf(4)).isEqualTo(3);
+        assertThat(leaderboard.rankOf(2)).isEqualTo(5);
+    }
+
+    @Test
+    void movesSlotWhenScoreChanges() {
+        LiveLeaderboard leaderboard = new LiveLeaderboard(3);
+        leaderboard.update(0, 300);
+        leaderboard.update(1, 200);
+        leaderboard.update(2, 100);
+
+        // Vượt lên đầu rồi tụt xuống cuối
+        leaderboard.update(2, 400);
+        assertThat(leaderboard.topK(3)).containsExactly(2, 0, 1);
+        leaderboard.update(2, 0);
+        assertThat(leaderboard.topK(3)).containsExactly(0, 1, 2);
+        // Cập nhật cùng điểm không thay đổi gì
+        leaderboard.update(0, 300);
+        assertThat(leaderboard.topK(3)).containsExactly(0, 1, 2);
+        assertThat(leaderboard.size()).isEqualTo(3);
+    }
+
+    @Test
+    void returnsRangesAndNeighbourhoods() {
+        LiveLeaderboard leaderboard = new LiveLeaderboard(6);
+        for (int slot = 0; slot < 6; slot++) {
+            leaderboard.update(slot, (6 - slot) * 100);
+        }
+
+        assertThat(leaderboard.range(2, 3)).containsExactly(1, 2, 3);
+        assertThat(leaderboard.range(5, 10)).containsExactly(4, 5);
+        assertThat(leaderboard.range(7, 1)).isEmpty();
+        assertThat(leaderboard.range(0, 1)).isEmpty();
+        assertThat(leaderboard.neighbourhood(0, 2)).containsExactly(0, 1, 2);
+        assertThat(leaderboard.neighbourhood(3, 1)).containsExactly(2, 3, 4);
+        assertThat(leaderboard.neighbourhood(5, 2)).containsExactly(3, 4, 5);
+    }
+
+    @Test
+    void matchesSortedListOracleUnderRandomUpdates() {
+        int capacity = 500;
+        Random random = new Random(42);
+        LiveLeaderboard leaderboard = new LiveLeaderboard(capacity);
+        int[] scores = new int[capacity];
+
+        for (int round = 0; round < 20_000; round++) {
+            int slot = random.nextInt(capacity);
+            // Khoảng điểm hẹp để có nhiều người đồng điểm
+            int score = random.nextInt(50) * 10;
+            scores[slot] = score;
+            leaderboard.update(slot, score);
+
+            if (round % 1000 == 0) {
+                assertMatchesOracle(leaderboard, scores);
+            }
+        }
+        assertMatchesOracle(leaderboard, scores);
+    }
+
+    private static void assertMatchesOracle(LiveLeaderboard leaderboard, int[] scores) {
+        List<Integer> expected = new ArrayList<>(scores.length);
+        for (int slot = 0; slot < scores.length; slot++) {
+            expected.add(slot);
+        }
+        expected.sort(Comparator.<Integer>comparingInt(slot -> -scores[slot]).thenComparingInt(slot -> slot));
+
+        assertThat(leaderboard.size()).isEqualTo(scores.length);
+        assertThat(leaderboard.topK(scores.length))
+                .containsExactly(expected.stream().mapToInt(Integer::intValue).toArray());
+        for (int rank = 1; rank <= expected.size(); rank++) {
+            int slot = expected.get(rank - 1);
+            assertThat(leaderboard.rankOf(slot)).as("rank of slot %d", slot).isEqualTo(rank);
+            assertThat(leaderboard.range(rank, 1)).containsExactly(slot);
+            assertThat(leaderboard.scoreOf(slot)).isEqualTo(scores[slot]);
+        }
+    }
+}
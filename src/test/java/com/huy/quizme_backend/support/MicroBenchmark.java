@@ -0,0 +1,80 @@
+package com.huy.quizme_backend.support;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.IntConsumer;
+
+/**
+ * Công cụ đo hiệu năng đơn giản cho các lớp *Benchmark trong src/test.
+ * <p>
+ * Các lớp *Benchmark không chạy cùng {@code mvn test} (surefire chỉ nhận *Test/*Tests),
+ * chạy riêng bằng {@code mvn test -Dtest=<TênBenchmark>}. Mỗi phép đo chạy khởi động (warm-up)
+ * trước để JIT biên dịch xong, sau đó đo từng lần gọi và in trung bình, p50, p99.
+ */
+public final class MicroBenchmark {
+
+    private MicroBenchmark() {
+    }
+
+    /**
+     * Đo {@code operation} {@code iterations} lần sau {@code warmup} lần chạy khởi động.
+     * Tham số của operation là số thứ tự lần gọi.
+     */
+    public static Result measure(String name, int warmup, int iterations, IntConsumer operation) {
+        for (int i = 0; i < warmup; i++) {
+            operation.accept(i);
+        }
+
+        long[] samples = new long[iterations];
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            long begin = System.nanoTime();
+            operation.accept(warmup + i);
+            samples[i] = System.nanoTime() - begin;
+        }
+        long total = System.nanoTime() - start;
+
+        Result result = new Result(name, iterations, total, samples);
+        System.out.println(result);
+        return result;
+    }
+
+    public static void print(String format, Object... args) {
+        System.out.println(String.format(Locale.ROOT, format, args));
+    }
+
+    public static final class Result {
+        private final String name;
+        private final int iterations;
+        private final long totalNanos;
+        private final long[] samples;
+
+        private Result(String name, int iterations, long totalNanos, long[] samples) {
+            this.name = name;
+            this.iterations = iterations;
+            this.totalNanos = totalNanos;
+            this.samples = samples.clone();
+            Arrays.sort(this.samples);
+        }
+
+        public double meanNanos() {
+            return (double) totalNanos / iterations;
+        }
+
+        public long percentileNanos(double percentile) {
+            int index = (int) Math.ceil(percentile * samples.length) - 1;
+            return samples[Math.max(0, Math.min(samples.length - 1, index))];
+        }
+
+        public double opsPerSecond() {
+            return iterations * 1e9 / totalNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-42s %9d ops  mean %10.2f us  p50 %10.2f us  p99 %10.2f us  %,12.0f ops/s",
+                    name, iterations, meanNanos() / 1000.0,
+                    percentileNanos(0.50) / 1000.0, percentileNanos(0.99) / 1000.0, opsPerSecond());
+        }
+    }
+}